@@ -1,16 +1,47 @@
 package com.iggroup;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 
+import javax.management.JMException;
+
+import com.iggroup.engine.EngineMode;
+import com.iggroup.engine.MatchingEngine;
+import com.iggroup.engine.OrderStorage;
+import com.iggroup.gateway.GatewayServer;
 import com.iggroup.handler.DefaultOrderHandler;
 import com.iggroup.handler.OrderHandler;
+import com.iggroup.journal.FlushPolicy;
+import com.iggroup.journal.JournalReplayer;
+import com.iggroup.journal.MappedJournal;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.metrics.MetricsHttpServer;
+import com.iggroup.metrics.MetricsRegistry;
+import com.iggroup.metrics.ThreadUtilisation;
 import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.OrderPool;
 import com.iggroup.model.Side;
 import com.iggroup.producer.OrderProducer;
 import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.RingBufferQueue;
+import com.iggroup.queue.WaitStrategy;
+import com.iggroup.snapshot.SnapshotLoader;
+import com.iggroup.snapshot.SnapshotWriter;
 import com.iggroup.trade.consumer.TradeOrderConsumer;
+import com.iggroup.trade.event.TradeEventPublisher;
 import com.iggroup.util.PrinterUtils;
 
 import lombok.extern.slf4j.Slf4j;
@@ -18,24 +49,111 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class OrderHandlerApplication {
 
-    public static void main(String[] args) throws InterruptedException {
-        BlockingQueue<Order> tradeQueue = new LinkedBlockingQueue<>();
-        OrderHandler orderHandler = new DefaultOrderHandler(OrderBookProvider.getInstance(), tradeQueue);
-        startOrderProducer(orderHandler, "IGG");
-        startOrderProducer(orderHandler, "IGG");
-        startOrderProducer(orderHandler, "IGG");
-        startOrderProducer(orderHandler, "IGG");
-        startOrderProducer(orderHandler, "IGG");
-        startTradeConsumer(orderHandler, tradeQueue);
-        startTradeConsumer(orderHandler, tradeQueue);
-        startTradeConsumer(orderHandler, tradeQueue);
+    private static final String ENGINE_MODE_PROPERTY = "engine.mode";
+    private static final String ENGINE_SHARDS_PROPERTY = "engine.shards";
+    private static final String QUEUE_CAPACITY_PROPERTY = "queue.capacity";
+    private static final String QUEUE_WAIT_STRATEGY_PROPERTY = "queue.wait.strategy";
+    private static final String ORDER_POOL_SIZE_PROPERTY = "order.pool.size";
+    private static final String ORDER_STORAGE_PROPERTY = "order.storage";
+    private static final String JOURNAL_DIR_PROPERTY = "journal.dir";
+    private static final String JOURNAL_FLUSH_PROPERTY = "journal.flush";
+    private static final String JOURNAL_SEGMENT_SIZE_PROPERTY = "journal.segment.size";
+    private static final String SNAPSHOT_INTERVAL_PROPERTY = "snapshot.interval";
+    private static final String TRADE_EVENTS_CAPACITY_PROPERTY = "trade.events.capacity";
+    private static final String METRICS_HTTP_PORT_PROPERTY = "metrics.http.port";
+    private static final String GATEWAY_PORT_PROPERTY = "gateway.port";
+    private static final String GATEWAY_EVENT_LOOPS_PROPERTY = "gateway.event.loops";
+    private static final String SYMBOLS_PROPERTY = "symbols";
+
+    public static void main(String[] args) throws InterruptedException, IOException, JMException {
+        EngineMode mode = EngineMode.valueOf(System.getProperty(ENGINE_MODE_PROPERTY, EngineMode.SINGLE_WRITER.name()));
+        log.info("Starting order handler in [{}] mode", mode);
+        OrderStorage storage = OrderStorage.valueOf(System.getProperty(ORDER_STORAGE_PROPERTY, OrderStorage.HEAP.name()));
+        String journalDir = System.getProperty(JOURNAL_DIR_PROPERTY);
+        if (storage == OrderStorage.OFF_HEAP && (mode != EngineMode.SINGLE_WRITER || System.getProperty(SNAPSHOT_INTERVAL_PROPERTY) != null
+                                                 || System.getProperty(SYMBOLS_PROPERTY) != null)) {
+            // Snapshots and listing work on the provider's books, which stay empty
+            throw new IllegalArgumentException("OFF_HEAP order storage needs SINGLE_WRITER mode without snapshots or listed symbols");
+        }
+        if (journalDir != null) {
+            recover(Paths.get(journalDir));
+        }
+        String symbols = System.getProperty(SYMBOLS_PROPERTY);
+        if (symbols != null) {
+            // Recovered symbols stay listed, any other is rejected
+            for (String symbol : symbols.split(",")) {
+                OrderBookProvider.getInstance().list(symbol.trim());
+            }
+            OrderBookProvider.getInstance().setExplicitListing(true);
+        }
+        int queueCapacity = Integer.getInteger(QUEUE_CAPACITY_PROPERTY, MatchingEngine.DEFAULT_QUEUE_CAPACITY);
+        String waitStrategy = System.getProperty(QUEUE_WAIT_STRATEGY_PROPERTY, "BLOCKING");
+        BlockingQueue<Order> tradeQueue = new RingBufferQueue<>(queueCapacity, WaitStrategy.forName(waitStrategy));
+        // Listeners subscribe to it for fills, publishing is a no-op until then
+        OrderBookProvider.getInstance().setTradeEvents(new TradeEventPublisher(Integer.getInteger(TRADE_EVENTS_CAPACITY_PROPERTY,
+                                                                                                  TradeEventPublisher.DEFAULT_CAPACITY),
+                                                                               WaitStrategy.forName(waitStrategy)));
+        OrderHandler orderHandler;
+        // Orders are only recycled with a single writer, in LOCKING mode other threads may still hold a removed order
+        OrderPool orderPool = OrderPool.NONE;
+        IntSupplier queueDepth;
+        List<ThreadUtilisation> consumers = new ArrayList<>();
+        MatchingEngine offHeapEngine = null;
+        if (mode == EngineMode.SINGLE_WRITER) {
+            orderPool = new OrderPool(Integer.getInteger(ORDER_POOL_SIZE_PROPERTY, queueCapacity));
+            MatchingEngine engine = new MatchingEngine(OrderBookProvider.getInstance(),
+                                                       Integer.getInteger(ENGINE_SHARDS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                                                       queueCapacity, () -> WaitStrategy.forName(waitStrategy), orderPool, storage);
+            engine.start();
+            orderHandler = engine;
+            if (storage == OrderStorage.OFF_HEAP) {
+                offHeapEngine = engine;
+                // Before journaling, the recovered orders are in the journal already
+                engine.moveRecoveredOrders();
+            }
+            queueDepth = engine::getQueueDepth;
+            engine.getShards().forEach(shard -> consumers.add(shard.getUtilisation()));
+        } else {
+            DefaultOrderHandler lockingHandler = new DefaultOrderHandler(OrderBookProvider.getInstance(), tradeQueue);
+            orderHandler = lockingHandler;
+            queueDepth = tradeQueue::size;
+            consumers.add(startTradeConsumer(lockingHandler, tradeQueue));
+            consumers.add(startTradeConsumer(lockingHandler, tradeQueue));
+            consumers.add(startTradeConsumer(lockingHandler, tradeQueue));
+        }
+        if (journalDir != null) {
+            openJournal(Paths.get(journalDir));
+        }
+        startMetrics(new MetricsRegistry(OrderBookProvider.getInstance(), queueDepth, OrderLocking.SHARED, consumers));
+        Integer gatewayPort = Integer.getInteger(GATEWAY_PORT_PROPERTY);
+        if (gatewayPort != null) {
+            // Orders only come from the gateway's clients
+            new GatewayServer(OrderBookProvider.getInstance(), orderHandler, orderPool, new InetSocketAddress(gatewayPort),
+                              Integer.getInteger(GATEWAY_EVENT_LOOPS_PROPERTY, GatewayServer.DEFAULT_EVENT_LOOPS)).start();
+        } else {
+            startOrderProducer(orderHandler, orderPool, "IGG");
+            startOrderProducer(orderHandler, orderPool, "IGG");
+            startOrderProducer(orderHandler, orderPool, "IGG");
+            startOrderProducer(orderHandler, orderPool, "IGG");
+            startOrderProducer(orderHandler, orderPool, "IGG");
+        }
 
         while (true) {
-            PrinterUtils.printStatus(OrderBookProvider.getInstance().getOrderBookBySymbol("IGG"));
+            if (offHeapEngine == null) {
+                OrderBook orderBook = OrderBookProvider.getInstance().getOrderBookBySymbol("IGG");
+                PrinterUtils.printStatus(orderBook);
+                log.info("Latencies of the last interval for {}: {}", "IGG", orderBook.getLatencies().interval());
+            } else {
+                // Off-heap books are the shards', the provider's book of IGG is never created so no empty book is reported
+                log.info("Resting orders for {}: BUY [{}] SELL [{}]", "IGG", offHeapEngine.getOffHeapOrderCount("IGG", Side.BUY),
+                         offHeapEngine.getOffHeapOrderCount("IGG", Side.SELL));
+            }
             log.info("Best average SELL Price: {} and best average BUY Price: {} for quantity of [{}] for {}", 
                      orderHandler.getPrice("IGG", 3, Side.SELL),
                      orderHandler.getPrice("IGG", 3, Side.BUY), 3, "IGG");
-            log.info("TradingQueue {}", tradeQueue);
+            if (mode == EngineMode.LOCKING) {
+                log.info("Lock waits of the last interval: {}", OrderLocking.SHARED.getLockWaits().interval());
+            }
             Thread.sleep(1000);
         }
     }
@@ -47,10 +165,10 @@ public class OrderHandlerApplication {
      * simplicity/test sample and for anyone see this application in action
      * 
      */
-    private static void startOrderProducer(OrderHandler orderHandler, String symbol) {
+    private static void startOrderProducer(OrderHandler orderHandler, OrderPool orderPool, String symbol) {
         new Thread(() -> {
             Random r = new Random();
-            OrderProducer producer = new OrderProducer();
+            OrderProducer producer = new OrderProducer(OrderBookProvider.getInstance(), orderPool);
             while (true) {
                 orderHandler.addOrder(producer.produce(symbol));
                 try {
@@ -62,8 +180,77 @@ public class OrderHandlerApplication {
         }).start();
     }
 
-    private static void startTradeConsumer(OrderHandler orderHandler, BlockingQueue<Order> tradeQueue) {
-        new Thread(new TradeOrderConsumer(OrderBookProvider.getInstance(), tradeQueue, orderHandler::removeOrder)).start();
+    /**
+     *
+     * Rebuilds the books from the latest snapshot and the journal after it before
+     * anything else touches them
+     *
+     */
+    private static void recover(Path directory) throws IOException {
+        long fromSegment = 0L;
+        long maxOrderId = 0L;
+        Optional<Path> snapshot = SnapshotLoader.latest(directory);
+        if (snapshot.isPresent()) {
+            SnapshotLoader loader = new SnapshotLoader(OrderBookProvider.getInstance()).load(snapshot.get());
+            fromSegment = loader.getJournalSegment() < 0 ? Long.MAX_VALUE : loader.getJournalSegment();
+            maxOrderId = loader.getMaxOrderId();
+        }
+        JournalReplayer replayer = new JournalReplayer(OrderBookProvider.getInstance()).replay(directory, fromSegment);
+        OrderProducer.ATOMIC_LONG.set(Math.max(maxOrderId, replayer.getMaxOrderId()));
+    }
+
+    /**
+     *
+     * Keeps journaling into a new segment once the recovered orders rest where the
+     * handler matches them
+     *
+     */
+    private static void openJournal(Path directory) throws IOException {
+        MappedJournal journal = new MappedJournal(directory,
+                                                  Integer.getInteger(JOURNAL_SEGMENT_SIZE_PROPERTY, MappedJournal.DEFAULT_SEGMENT_SIZE),
+                                                  FlushPolicy.valueOf(System.getProperty(JOURNAL_FLUSH_PROPERTY, FlushPolicy.BATCH.name())),
+                                                  MappedJournal.DEFAULT_BATCH_SIZE);
+        OrderBookProvider.getInstance().setJournal(journal);
+        log.info("Journaling to [{}] from segment [{}]", directory, journal.getSegmentIndex());
+
+        Integer snapshotInterval = Integer.getInteger(SNAPSHOT_INTERVAL_PROPERTY);
+        if (snapshotInterval != null) {
+            scheduleSnapshots(new SnapshotWriter(OrderBookProvider.getInstance(), directory), snapshotInterval);
+        }
+    }
+
+    private static void scheduleSnapshots(SnapshotWriter writer, int intervalSeconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                writer.write();
+            } catch (IOException | RuntimeException e) {
+                log.error("Snapshot to [{}] failed", writer.getDirectory(), e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private static ThreadUtilisation startTradeConsumer(DefaultOrderHandler orderHandler, BlockingQueue<Order> tradeQueue) {
+        TradeOrderConsumer consumer = new TradeOrderConsumer(OrderBookProvider.getInstance(), tradeQueue, orderHandler::removeFilled);
+        new Thread(consumer).start();
+        return consumer.getUtilisation();
+    }
+
+    /**
+     *
+     * Over JMX always, and as plain text on localhost when a port is given
+     *
+     */
+    private static void startMetrics(MetricsRegistry registry) throws IOException, JMException {
+        registry.start(ManagementFactory.getPlatformMBeanServer(), 1000);
+        Integer port = Integer.getInteger(METRICS_HTTP_PORT_PROPERTY);
+        if (port != null) {
+            new MetricsHttpServer(registry, port).start();
+        }
     }
 
 }
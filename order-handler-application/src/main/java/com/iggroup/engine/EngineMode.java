@@ -0,0 +1,15 @@
+package com.iggroup.engine;
+
+/**
+ *
+ * LOCKING: producers add straight into the books and several trade consumers
+ * share one trade queue, serialising on per order locks.
+ * <br>
+ * SINGLE_WRITER: each symbol is owned by exactly one {@link MatchingShard}
+ * thread, book mutation needs no locks.
+ *
+ */
+public enum EngineMode {
+    LOCKING,
+    SINGLE_WRITER
+}
@@ -0,0 +1,536 @@
+package com.iggroup.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import com.iggroup.handler.OrderHandler;
+import com.iggroup.handler.OrderOutcome;
+import com.iggroup.metrics.LatencyRecorder;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.OrderAmendment;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.Side;
+import com.iggroup.offheap.OffHeapOrderHandler;
+import com.iggroup.offheap.SlotIndex;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.BlockingWaitStrategy;
+import com.iggroup.queue.WaitStrategy;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * {@link OrderHandler} for {@link EngineMode#SINGLE_WRITER}. Orders are routed by
+ * symbol hash to a {@link MatchingShard}, and addOrder/modifyOrder/removeOrder
+ * become commands executed asynchronously by the owning shard. A batch becomes
+ * one command per shard it touches.
+ * <br>
+ * A modification rejected by the shard is logged there rather than thrown to the
+ * caller.
+ * <br>
+ * Commands by order id only go to the shard the add of the order was queued to
+ * while that add is still queued, then through the resting order: its symbol
+ * with {@link OrderStorage#HEAP}, the shard recorded in the {@link SlotIndex}
+ * with {@link OrderStorage#OFF_HEAP}.
+ *
+ */
+@Slf4j
+public class MatchingEngine implements OrderHandler {
+
+    private final OrderBookProvider provider;
+    @Getter
+    private final List<MatchingShard> shards;
+    @Getter
+    private final OrderPool orderPool;
+    @Getter
+    private final OrderStorage storage;
+    /**
+     * Shard and slot of every resting order, only with {@link OrderStorage#OFF_HEAP}
+     */
+    private final SlotIndex slots;
+    /**
+     * Shard of every order whose add is queued, with no slot. The shard forgets
+     * the order once it has run the add, when the order rests if it is to.
+     */
+    private final SlotIndex queued = new SlotIndex();
+    private final List<Thread> threads = new ArrayList<>();
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 16;
+
+    public MatchingEngine(final OrderBookProvider provider, final int shardCount) {
+        this(provider, shardCount, DEFAULT_QUEUE_CAPACITY, BlockingWaitStrategy::new);
+    }
+
+    /**
+     *
+     * @param queueCapacity capacity of each shard's inbound ring buffer
+     * @param waitStrategies one wait strategy is created per shard
+     */
+    public MatchingEngine(final OrderBookProvider provider, final int shardCount, final int queueCapacity,
+                          final Supplier<WaitStrategy> waitStrategies) {
+        this(provider, shardCount, queueCapacity, waitStrategies, OrderPool.NONE);
+    }
+
+    /**
+     *
+     * @param orderPool filled and removed orders are released to it by the shards,
+     *                  producers should acquire new orders from the same pool
+     */
+    public MatchingEngine(final OrderBookProvider provider, final int shardCount, final int queueCapacity,
+                          final Supplier<WaitStrategy> waitStrategies, final OrderPool orderPool) {
+        this(provider, shardCount, queueCapacity, waitStrategies, orderPool, OrderStorage.HEAP);
+    }
+
+    /**
+     *
+     * @param storage with OFF_HEAP the shards' books are not the provider's, see
+     *                {@link OffHeapOrderHandler}
+     */
+    public MatchingEngine(final OrderBookProvider provider, final int shardCount, final int queueCapacity,
+                          final Supplier<WaitStrategy> waitStrategies, final OrderPool orderPool, final OrderStorage storage) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one matching shard is required, got [" + shardCount + "]");
+        }
+        this.provider = provider;
+        this.orderPool = orderPool;
+        this.storage = storage;
+        this.slots = storage == OrderStorage.OFF_HEAP ? new SlotIndex() : null;
+        final List<MatchingShard> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            created.add(storage == OrderStorage.OFF_HEAP
+                        ? new MatchingShard(i, queueCapacity, waitStrategies.get(), new OffHeapOrderHandler(provider, i, slots, orderPool))
+                        : new MatchingShard(i, provider, queueCapacity, waitStrategies.get(), orderPool));
+        }
+        this.shards = Collections.unmodifiableList(created);
+    }
+
+    public synchronized void start() {
+        if (!threads.isEmpty())
+            return;
+
+        for (MatchingShard shard : shards) {
+            Thread thread = new Thread(shard, "matching-shard-" + shard.getId());
+            threads.add(thread);
+            thread.start();
+        }
+        log.info("Started [{}] matching shards", shards.size());
+    }
+
+    /**
+     *
+     * The interrupt is repeated until every shard is gone, code run by a command
+     * (a log appender writing to an interruptible channel for one) may clear it
+     * before the shard gets to check it.
+     *
+     */
+    public synchronized void stop() throws InterruptedException {
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.interrupt();
+                thread.join(100);
+            }
+        }
+        threads.clear();
+    }
+
+    /**
+     *
+     * Commands queued on every shard, one O(1) read per shard
+     *
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (MatchingShard shard : shards) {
+            depth += shard.getQueueDepth();
+        }
+        return depth;
+    }
+
+    /**
+     *
+     * Resting orders of the symbol kept off-heap by its shard, read from the
+     * calling thread in O(levels). Only with {@link OrderStorage#OFF_HEAP}, the
+     * provider's books hold them otherwise.
+     *
+     */
+    public long getOffHeapOrderCount(final String symbol, final Side side) {
+        if (storage != OrderStorage.OFF_HEAP) {
+            throw new IllegalStateException("Resting orders are in the provider's books with " + storage + " order storage");
+        }
+        return ((OffHeapOrderHandler) route(symbol).getHandler()).getOrderCount(symbol, side);
+    }
+
+    public MatchingShard route(final String symbol) {
+        return shards.get(shardIndex(symbol));
+    }
+
+    private int shardIndex(final String symbol) {
+        return Math.floorMod(symbol.hashCode(), shards.size());
+    }
+
+    /**
+     *
+     * Runs the command on the thread owning the symbol, after every command
+     * already submitted for that shard.
+     *
+     */
+    public void submit(final String symbol, final OrderCommand command) {
+        route(symbol).submit(command);
+    }
+
+    /**
+     *
+     * Off-heap books are found by symbol on their shard, their orders carry no id
+     *
+     */
+    @Override
+    public int admit(final String symbol) {
+        return storage == OrderStorage.HEAP ? provider.admit(symbol) : OrderBookProvider.NO_SYMBOL_ID;
+    }
+
+    /**
+     *
+     * Hands the orders resting in the provider's books, rebuilt there by
+     * recovery, to the off-heap books of the shards level by level in time
+     * priority, then drops the provider's books. Called once started, before any
+     * order comes in.
+     *
+     * @return orders moved
+     */
+    public long moveRecoveredOrders() throws InterruptedException {
+        if (storage != OrderStorage.OFF_HEAP) {
+            throw new IllegalStateException("Recovered orders already rest in the provider's books with " + storage + " order storage");
+        }
+        long moved = 0L;
+        for (OrderBook orderBook : provider.getOrderBooks().values()) {
+            for (Side side : Side.values()) {
+                for (PriceLevel level : orderBook.getOrders(side).values()) {
+                    for (Order order : level) {
+                        final Order copy = orderPool.acquire().init(order.getId(), order.getSymbol(), side, order.getPrice(), order.getQuantity());
+                        copy.setModifications(order.getModifications());
+                        addOrder(copy);
+                        moved++;
+                    }
+                }
+            }
+        }
+        final CountDownLatch added = new CountDownLatch(shards.size());
+        shards.forEach(shard -> shard.submit(handler -> added.countDown()));
+        added.await();
+        provider.clear();
+        log.info("Moved [{}] recovered orders off-heap", moved);
+        return moved;
+    }
+
+    /**
+     *
+     * The symbol is admitted on the calling thread, so an unknown symbol is thrown
+     * to the producer and the shard never hashes it
+     *
+     */
+    @Override
+    public void addOrder(final Order order) {
+        admit(order);
+        order.setQueuedTime(LatencyRecorder.start());
+        final long orderId = order.getId();
+        final int shard = shardIndex(order.getSymbol());
+        queued.put(orderId, SlotIndex.location(shard, 0));
+        shards.get(shard).submit(handler -> {
+            try {
+                handler.addOrder(order);
+            } finally {
+                queued.remove(orderId);
+            }
+        });
+    }
+
+    /**
+     *
+     * One command per shard owning some of the orders, each shard adds its own
+     * orders in list order
+     *
+     */
+    @Override
+    public void addOrders(final List<Order> orders) {
+        for (Order order : orders) {
+            admit(order);
+        }
+        final long queuedTime = LatencyRecorder.start();
+        for (Order order : orders) {
+            order.setQueuedTime(queuedTime);
+            queued.put(order.getId(), SlotIndex.location(shardIndex(order.getSymbol()), 0));
+        }
+        submitByShard(orders, order -> shardIndex(order.getSymbol()), shardOrders -> {
+            // Taken now, the shard may recycle the orders as it adds them
+            final long[] orderIds = shardOrders.stream().mapToLong(Order::getId).toArray();
+            return handler -> {
+                try {
+                    handler.addOrders(shardOrders);
+                } finally {
+                    for (long orderId : orderIds) {
+                        queued.remove(orderId);
+                    }
+                }
+            };
+        });
+    }
+
+    /**
+     *
+     * Only ids and values are captured, the shard never dereferences an order
+     * that may have been recycled since
+     *
+     */
+    @Override
+    public void modifyOrder(final Order order, final Order modifiedOrder) {
+        final long orderId = order.getId();
+        final int quantity = modifiedOrder.getQuantity();
+        final long price = modifiedOrder.getPrice();
+        submit(order.getSymbol(), handler -> handler.modifyOrder(orderId, quantity, price));
+    }
+
+    /**
+     *
+     * Nothing is sent if the order is neither queued nor resting
+     *
+     */
+    @Override
+    public void modifyOrder(final long orderId, final int quantity, final long price) {
+        final int shard = owningShard(orderId);
+        if (shard < 0) {
+            log.debug("OrderId [{}] is not resting, nothing to modify", orderId);
+            return;
+        }
+        shards.get(shard).submit(handler -> handler.modifyOrder(orderId, quantity, price));
+    }
+
+    /**
+     *
+     * Told by the owning shard once it has run the modification, straight away
+     * if the order is neither queued nor resting
+     *
+     */
+    @Override
+    public void modifyOrder(final long orderId, final int quantity, final long price, final int sessionId, final OrderOutcome outcome) {
+        final int shard = owningShard(orderId);
+        if (shard < 0) {
+            outcome.completed(orderId, false);
+            return;
+        }
+        shards.get(shard).submit(handler -> handler.modifyOrder(orderId, quantity, price, sessionId, outcome));
+    }
+
+    /**
+     *
+     * One command per shard, amendments of orders neither queued nor resting are
+     * dropped. Rejected amendments are logged by the shard.
+     *
+     */
+    @Override
+    public void modifyOrders(final List<OrderAmendment> amendments) {
+        submitByShard(amendments, amendment -> owningShard(amendment.getOrderId()),
+                      shardAmendments -> handler -> handler.modifyOrders(shardAmendments));
+    }
+
+    @Override
+    public void removeOrder(final Order order) {
+        final long orderId = order.getId();
+        submit(order.getSymbol(), handler -> handler.removeOrder(orderId));
+    }
+
+    @Override
+    public void removeOrder(final long orderId) {
+        final int shard = owningShard(orderId);
+        if (shard < 0) {
+            log.debug("OrderId [{}] is not resting, nothing to remove", orderId);
+            return;
+        }
+        shards.get(shard).submit(handler -> handler.removeOrder(orderId));
+    }
+
+    /**
+     *
+     * Told by the owning shard once it has run the removal, straight away if the
+     * order is neither queued nor resting
+     *
+     */
+    @Override
+    public void removeOrder(final long orderId, final int sessionId, final OrderOutcome outcome) {
+        final int shard = owningShard(orderId);
+        if (shard < 0) {
+            outcome.completed(orderId, false);
+            return;
+        }
+        shards.get(shard).submit(handler -> handler.removeOrder(orderId, sessionId, outcome));
+    }
+
+    /**
+     *
+     * One command per shard, ids neither queued nor resting are dropped
+     *
+     */
+    @Override
+    public void removeOrders(final long[] orderIds) {
+        final long[][] byShard = new long[shards.size()][];
+        final int[] counts = new int[shards.size()];
+        for (long orderId : orderIds) {
+            final int shard = owningShard(orderId);
+            if (shard < 0)
+                continue;
+
+            if (byShard[shard] == null) {
+                byShard[shard] = new long[orderIds.length];
+            }
+            byShard[shard][counts[shard]++] = orderId;
+        }
+        for (int shard = 0; shard < byShard.length; shard++) {
+            if (counts[shard] > 0) {
+                final long[] shardOrderIds = Arrays.copyOf(byShard[shard], counts[shard]);
+                shards.get(shard).submit(handler -> handler.removeOrders(shardOrderIds));
+            }
+        }
+    }
+
+    /**
+     *
+     * Without a symbol every shard cancels the books it owns, books created after
+     * the call are left alone
+     *
+     */
+    @Override
+    public void removeOrders(final String symbol, final Side side) {
+        if (symbol != null) {
+            submit(symbol, handler -> handler.removeOrders(symbol, side));
+            return;
+        }
+        if (storage == OrderStorage.OFF_HEAP) {
+            // Off-heap handlers only see their own books
+            shards.forEach(shard -> shard.submit(handler -> handler.removeOrders(null, side)));
+            return;
+        }
+        submitByShard(new ArrayList<>(provider.getOrderBooks().keySet()), this::shardIndex, shardSymbols -> handler -> {
+            for (String shardSymbol : shardSymbols) {
+                handler.removeOrders(shardSymbol, side);
+            }
+        });
+    }
+
+    /**
+     *
+     * Drops the book of the symbol and its resting orders on the owning shard,
+     * after every command already submitted for it
+     *
+     */
+    public void delist(final String symbol) {
+        submit(symbol, handler -> provider.delist(symbol));
+    }
+
+    /**
+     *
+     * Off-heap books are not the provider's, their symbols are not admitted
+     *
+     */
+    private void admit(final Order order) {
+        if (storage == OrderStorage.HEAP) {
+            provider.admit(order);
+        }
+    }
+
+    /**
+     *
+     * Splits the items by owning shard, keeping their order, and submits one
+     * command per shard. Items without a shard (-1) are dropped.
+     *
+     */
+    private <T> void submitByShard(final List<T> items, final ToIntFunction<T> owners, final Function<List<T>, OrderCommand> commands) {
+        final List<List<T>> byShard = new ArrayList<>(Collections.nCopies(shards.size(), null));
+        for (T item : items) {
+            final int shard = owners.applyAsInt(item);
+            if (shard < 0)
+                continue;
+
+            List<T> shardItems = byShard.get(shard);
+            if (shardItems == null) {
+                shardItems = new ArrayList<>();
+                byShard.set(shard, shardItems);
+            }
+            shardItems.add(item);
+        }
+        for (int shard = 0; shard < byShard.size(); shard++) {
+            if (byShard.get(shard) != null) {
+                shards.get(shard).submit(commands.apply(byShard.get(shard)));
+            }
+        }
+    }
+
+    /**
+     *
+     * Whether the order rests in a book of any shard, whatever the storage
+     *
+     */
+    public boolean isResting(final long orderId) {
+        return restingShard(orderId) >= 0;
+    }
+
+    /**
+     *
+     * Looked up in the queued adds first: the shard forgets an add once the order
+     * rests, so an order missed there is found resting if it is
+     *
+     * @return shard an order is queued to or rests on, -1 if neither
+     */
+    private int owningShard(final long orderId) {
+        final long location = queued.get(orderId);
+        return location == SlotIndex.ABSENT ? restingShard(orderId) : SlotIndex.shard(location);
+    }
+
+    /**
+     *
+     * @return shard owning a resting order, -1 if it is not resting
+     */
+    private int restingShard(final long orderId) {
+        if (storage == OrderStorage.OFF_HEAP) {
+            final long location = slots.get(orderId);
+            return location == SlotIndex.ABSENT ? -1 : SlotIndex.shard(location);
+        }
+        final String symbol = restingSymbol(orderId);
+        return symbol == null ? -1 : shardIndex(symbol);
+    }
+
+    /**
+     *
+     * Symbol of a resting order, read from the calling thread while the owning
+     * shard may be filling and recycling it. The id is checked again after the
+     * symbol, a changed id means the order was released in between.
+     *
+     */
+    private String restingSymbol(final long orderId) {
+        final Order order = provider.getOrder(orderId);
+        if (order == null)
+            return null;
+
+        final String symbol = order.getSymbol();
+        return order.getId() == orderId ? symbol : null;
+    }
+
+    /**
+     *
+     * Reads the book directly from the calling thread, the shard may be updating
+     * it at the same time.
+     *
+     */
+    @Override
+    public double getPrice(final String symbol, final int quantity, final Side side) {
+        return route(symbol).getHandler().getPrice(symbol, quantity, side);
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.iggroup.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.handler.OrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.metrics.ThreadUtilisation;
+import com.iggroup.model.OrderPool;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.RingBufferQueue;
+import com.iggroup.queue.WaitStrategy;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Owns every symbol routed to it and is the only thread that mutates those
+ * books. Commands are taken from the inbound ring buffer in batches and run one
+ * by one, so adds, modifies, removes and trades never race with each other and
+ * no order locks are taken.
+ *
+ */
+@Slf4j
+public class MatchingShard implements Runnable {
+
+    public static final int BATCH_SIZE = 256;
+
+    @Getter
+    private final int id;
+    private final BlockingQueue<OrderCommand> inbound;
+    @Getter
+    private final OrderHandler handler;
+    @Getter
+    private final ThreadUtilisation utilisation = new ThreadUtilisation();
+
+    public MatchingShard(final int id, final OrderBookProvider provider, final int queueCapacity, final WaitStrategy waitStrategy) {
+        this(id, provider, queueCapacity, waitStrategy, OrderPool.NONE);
+    }
+
+    /**
+     *
+     * Orders leaving the shard's books are released to the pool, no other thread
+     * touches them once submitted
+     *
+     */
+    public MatchingShard(final int id, final OrderBookProvider provider, final int queueCapacity, final WaitStrategy waitStrategy,
+                         final OrderPool orderPool) {
+        // Adds are crossed inline, with a single writer nothing can cross a rested order afterwards
+        this(id, queueCapacity, waitStrategy, new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE, orderPool));
+    }
+
+    /**
+     *
+     * @param handler only ever called from the shard thread, apart from getPrice
+     */
+    public MatchingShard(final int id, final int queueCapacity, final WaitStrategy waitStrategy, final OrderHandler handler) {
+        this.id = id;
+        this.inbound = new RingBufferQueue<>(queueCapacity, waitStrategy);
+        this.handler = handler;
+    }
+
+    /**
+     *
+     * Blocks while the inbound queue is full
+     *
+     */
+    public void submit(final OrderCommand command) {
+        try {
+            inbound.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting to matching shard [" + id + "]", e);
+        }
+    }
+
+    /**
+     *
+     * Commands queued and not taken yet, O(1)
+     *
+     */
+    public int getQueueDepth() {
+        return inbound.size();
+    }
+
+    @Override
+    public void run() {
+        final List<OrderCommand> batch = new ArrayList<>(BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            final long waitStart = System.nanoTime();
+            try {
+                batch.add(inbound.take());
+                inbound.drainTo(batch, BATCH_SIZE - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final long batchStart = System.nanoTime();
+            utilisation.idle(batchStart - waitStart);
+            for (OrderCommand command : batch) {
+                execute(command);
+            }
+            batch.clear();
+            utilisation.busy(System.nanoTime() - batchStart);
+        }
+        log.debug("Matching shard [{}] stopped.", id);
+    }
+
+    void execute(final OrderCommand command) {
+        try {
+            command.execute(handler);
+        } catch (OrderModificationException e) {
+            log.warn("Modification rejected by shard [{}]: {}", id, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Command failed on shard [{}]", id, e);
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.iggroup.engine;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.handler.OrderHandler;
+
+/**
+ *
+ * A unit of work routed to the {@link MatchingShard} that owns a symbol. It is
+ * executed on the shard thread against the shard's own lock-free handler.
+ *
+ */
+@FunctionalInterface
+public interface OrderCommand {
+
+    void execute(OrderHandler shardHandler) throws OrderModificationException;
+
+}
@@ -0,0 +1,17 @@
+package com.iggroup.engine;
+
+/**
+ *
+ * Where a {@link MatchingShard} keeps its resting orders.
+ * <br>
+ * HEAP: {@link com.iggroup.model.Order}s linked in the provider's books.
+ * <br>
+ * OFF_HEAP: records in direct memory addressed by slot, see
+ * {@link com.iggroup.offheap.OffHeapOrderHandler}, for books deep enough that the
+ * order graph becomes a GC problem.
+ *
+ */
+public enum OrderStorage {
+    HEAP,
+    OFF_HEAP
+}
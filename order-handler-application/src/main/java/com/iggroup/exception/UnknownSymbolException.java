@@ -0,0 +1,9 @@
+package com.iggroup.exception;
+
+public class UnknownSymbolException extends RuntimeException {
+
+    public UnknownSymbolException(final String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.iggroup.gateway;
+
+import static com.iggroup.gateway.GatewayFormat.ACCEPTED;
+import static com.iggroup.gateway.GatewayFormat.AMEND;
+import static com.iggroup.gateway.GatewayFormat.NEW_ORDER;
+import static com.iggroup.gateway.GatewayFormat.REJECTED;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import com.iggroup.exception.UnknownSymbolException;
+import com.iggroup.model.Order;
+import com.iggroup.model.Side;
+import com.iggroup.producer.OrderProducer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Selector thread serving a share of the sessions. Requests are decoded from the
+ * session's direct buffer straight into {@link com.iggroup.handler.OrderHandler}
+ * calls, new orders taken from the order pool, and acknowledged on the same
+ * connection.
+ * <br>
+ * A new order is acked once handed to the handler, its executions are reported
+ * by fills. Amends and cancels are acked by the thread that ran them, with
+ * whether they were applied, and only apply to orders entered by the same
+ * session; their acks come in the order they ran.
+ *
+ */
+@Slf4j
+final class EventLoop implements Runnable {
+
+    private static final Side[] SIDES = Side.values();
+
+    private final int id;
+    private final GatewayServer server;
+    private final Selector selector;
+    private final Queue<Session> registrations = new ConcurrentLinkedQueue<>();
+    private final Queue<Session> flushes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final Consumer<SelectionKey> ready = this::ready;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    EventLoop(final int id, final GatewayServer server) throws IOException {
+        this.id = id;
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    void start() {
+        thread = new Thread(this, "gateway-loop-" + id);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        thread.join();
+    }
+
+    /**
+     *
+     * Hands an accepted session to the loop, from the acceptor thread
+     *
+     */
+    void adopt(final Session session) {
+        registrations.add(session);
+        wakeup();
+    }
+
+    /**
+     *
+     * Has the loop write the session's outbound buffer, from any thread. Sessions
+     * already waiting are not queued again.
+     *
+     */
+    void flushLater(final Session session) {
+        if (session.flushPending.compareAndSet(false, true)) {
+            flushes.add(session);
+            wakeup();
+        }
+    }
+
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(ready);
+                wakeupPending.set(false);
+                register();
+                Session session;
+                while ((session = flushes.poll()) != null) {
+                    session.flushPending.set(false);
+                    session.flush();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.error("Gateway event loop [{}] failed", id, e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                close((Session) key.attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Could not close selector of gateway event loop [{}]", id, e);
+            }
+        }
+        log.debug("Gateway event loop [{}] stopped.", id);
+    }
+
+    private void register() {
+        Session session;
+        while ((session = registrations.poll()) != null) {
+            try {
+                session.channel().configureBlocking(false);
+                session.registered(session.channel().register(selector, SelectionKey.OP_READ, session));
+            } catch (IOException e) {
+                log.warn("Could not register gateway session [{}]", session.getId(), e);
+                close(session);
+            }
+        }
+    }
+
+    private void ready(final SelectionKey key) {
+        final Session session = (Session) key.attachment();
+        if (!key.isValid()) {
+            close(session);
+            return;
+        }
+        if (key.isWritable()) {
+            session.flush();
+        }
+        if (key.isValid() && key.isReadable()) {
+            read(session);
+        }
+    }
+
+    private void read(final Session session) {
+        final ByteBuffer in = session.inbound;
+        try {
+            if (session.channel().read(in) < 0) {
+                close(session);
+                return;
+            }
+        } catch (IOException e) {
+            log.debug("Gateway session [{}] read failed: {}", session.getId(), e.getMessage());
+            close(session);
+            return;
+        }
+        in.flip();
+        while (in.hasRemaining()) {
+            final byte type = in.get(in.position());
+            final int size = GatewayFormat.requestSize(type);
+            if (size < 0) {
+                log.warn("Gateway session [{}] sent unknown message type [{}], disconnecting", session.getId(), type);
+                close(session);
+                return;
+            }
+            if (in.remaining() < size)
+                break;
+
+            in.get();
+            if (!dispatch(session, type, in)) {
+                log.warn("Gateway session [{}] is not reading its replies, disconnecting", session.getId());
+                close(session);
+                return;
+            }
+        }
+        in.compact();
+        session.flush();
+    }
+
+    /**
+     *
+     * @return false if the reply could not be queued
+     */
+    private boolean dispatch(final Session session, final byte type, final ByteBuffer in) {
+        switch (type) {
+        case NEW_ORDER:
+            return newOrder(session, in);
+        case AMEND:
+            return amend(session, in);
+        default:
+            return cancel(session, in);
+        }
+    }
+
+    private boolean newOrder(final Session session, final ByteBuffer in) {
+        final long clientOrderId = in.getLong();
+        final String symbol = session.symbols.decode(in);
+        final byte side = in.get();
+        final long price = in.getLong();
+        final int quantity = in.getInt();
+        if (symbol == null || side < 0 || side >= SIDES.length || price <= 0 || quantity <= 0)
+            return session.ack(NEW_ORDER, clientOrderId, 0L, REJECTED);
+
+        final int symbolId;
+        try {
+            symbolId = server.getHandler().admit(symbol);
+        } catch (UnknownSymbolException e) {
+            return session.ack(NEW_ORDER, clientOrderId, 0L, REJECTED);
+        }
+        final long orderId = OrderProducer.ATOMIC_LONG.incrementAndGet();
+        final Order order = server.getOrderPool().acquire().init(orderId, symbol, SIDES[side], price, quantity);
+        order.setSymbolId(symbolId);
+        order.setSessionId(session.getId());
+        // Acked first, a fill of the order must not reach the client before its id
+        if (!session.ack(NEW_ORDER, clientOrderId, orderId, ACCEPTED)) {
+            server.getOrderPool().release(order);
+            return false;
+        }
+
+        try {
+            server.getHandler().addOrder(order);
+        } catch (RuntimeException e) {
+            log.error("Gateway session [{}] could not add OrderId [{}]", session.getId(), orderId, e);
+        }
+        return true;
+    }
+
+    /**
+     *
+     * The owner of the order is checked by the handler, on the thread owning it
+     *
+     */
+    private boolean amend(final Session session, final ByteBuffer in) {
+        final long orderId = in.getLong();
+        final long price = in.getLong();
+        final int quantity = in.getInt();
+        if (price <= 0 || quantity <= 0)
+            return session.ack(AMEND, 0L, orderId, REJECTED);
+
+        server.getHandler().modifyOrder(orderId, quantity, price, session.getId(), session.amended);
+        return true;
+    }
+
+    private boolean cancel(final Session session, final ByteBuffer in) {
+        server.getHandler().removeOrder(in.getLong(), session.getId(), session.cancelled);
+        return true;
+    }
+
+    /**
+     *
+     * From any thread, the key is cancelled by closing the channel
+     *
+     */
+    void close(final Session session) {
+        if (session == null || session.isClosed())
+            return;
+
+        session.close();
+        server.closed(session);
+        log.debug("Gateway session [{}] closed.", session.getId());
+    }
+
+}
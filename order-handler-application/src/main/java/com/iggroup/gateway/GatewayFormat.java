@@ -0,0 +1,96 @@
+package com.iggroup.gateway;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.iggroup.model.Side;
+
+/**
+ *
+ * Binary layout of the gateway messages, big-endian and fixed size per type, so
+ * a message is complete once the bytes for its type have arrived. Every message
+ * starts with its type byte, prices are in ticks of the symbol and sides are
+ * {@link Side} ordinals.
+ * <br>
+ * Client to gateway: {@link #NEW_ORDER}, {@link #AMEND}, {@link #CANCEL}. <br>
+ * Gateway to client: {@link #ACK} for every request, {@link #FILL} for every
+ * execution of an order entered by the session.
+ *
+ */
+public final class GatewayFormat {
+
+    /**
+     * long client order id, symbol as {@link #SYMBOL_LENGTH} ASCII bytes padded
+     * with zeros, byte side, long price, int quantity
+     */
+    public static final byte NEW_ORDER = 1;
+    /**
+     * long order id, long price, int quantity
+     */
+    public static final byte AMEND = 2;
+    /**
+     * long order id
+     */
+    public static final byte CANCEL = 3;
+    /**
+     * byte request type, long client order id (0 but for a new order), long order
+     * id, byte status
+     */
+    public static final byte ACK = 11;
+    /**
+     * long order id, long price, int quantity, int quantity left
+     */
+    public static final byte FILL = 12;
+
+    public static final byte ACCEPTED = 0;
+    public static final byte REJECTED = 1;
+
+    public static final int SYMBOL_LENGTH = 12;
+
+    public static final int NEW_ORDER_SIZE = 1 + 8 + SYMBOL_LENGTH + 1 + 8 + 4;
+    public static final int AMEND_SIZE = 1 + 8 + 8 + 4;
+    public static final int CANCEL_SIZE = 1 + 8;
+    public static final int ACK_SIZE = 1 + 1 + 8 + 8 + 1;
+    public static final int FILL_SIZE = 1 + 8 + 8 + 4 + 4;
+
+    private GatewayFormat() {}
+
+    /**
+     *
+     * @return size of a client message of the type, -1 if it is not one
+     */
+    static int requestSize(final byte type) {
+        switch (type) {
+        case NEW_ORDER:
+            return NEW_ORDER_SIZE;
+        case AMEND:
+            return AMEND_SIZE;
+        case CANCEL:
+            return CANCEL_SIZE;
+        default:
+            return -1;
+        }
+    }
+
+    public static ByteBuffer putNewOrder(final ByteBuffer buffer, final long clientOrderId, final String symbol, final Side side, final long price,
+                                         final int quantity) {
+        final byte[] name = symbol.getBytes(StandardCharsets.US_ASCII);
+        if (name.length == 0 || name.length > SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("Symbol must be 1 to " + SYMBOL_LENGTH + " ASCII characters, got [" + symbol + "]");
+        }
+        buffer.put(NEW_ORDER).putLong(clientOrderId).put(name);
+        for (int i = name.length; i < SYMBOL_LENGTH; i++) {
+            buffer.put((byte) 0);
+        }
+        return buffer.put((byte) side.ordinal()).putLong(price).putInt(quantity);
+    }
+
+    public static ByteBuffer putAmend(final ByteBuffer buffer, final long orderId, final long price, final int quantity) {
+        return buffer.put(AMEND).putLong(orderId).putLong(price).putInt(quantity);
+    }
+
+    public static ByteBuffer putCancel(final ByteBuffer buffer, final long orderId) {
+        return buffer.put(CANCEL).putLong(orderId);
+    }
+
+}
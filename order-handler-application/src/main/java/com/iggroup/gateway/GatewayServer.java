@@ -0,0 +1,223 @@
+package com.iggroup.gateway;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.iggroup.handler.OrderHandler;
+import com.iggroup.model.OrderPool;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.trade.event.TradeEvent;
+import com.iggroup.trade.event.TradeEventPublisher;
+import com.iggroup.trade.event.TradeListener;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * TCP order entry in the binary {@link GatewayFormat}. An acceptor thread hands
+ * new connections round robin to a few {@link EventLoop}s, each running its own
+ * selector over non-blocking channels, so thousands of sessions share a handful
+ * of threads.
+ * <br>
+ * Orders entered through the gateway carry their session id, fills are routed
+ * back to the session from the provider's {@link TradeEventPublisher}, which must
+ * be set before starting.
+ *
+ */
+@Slf4j
+public class GatewayServer implements Closeable {
+
+    public static final int DEFAULT_EVENT_LOOPS = 2;
+    /**
+     * Sessions connected at once, session ids keep growing and are looked up
+     * modulo this
+     */
+    static final int MAX_SESSIONS = 1 << 16;
+
+    @Getter(AccessLevel.PACKAGE)
+    private final OrderBookProvider provider;
+    @Getter(AccessLevel.PACKAGE)
+    private final OrderHandler handler;
+    @Getter(AccessLevel.PACKAGE)
+    private final OrderPool orderPool;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final AtomicReferenceArray<Session> sessions = new AtomicReferenceArray<>(MAX_SESSIONS);
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final TradeListener fills = this::onTrade;
+    private TradeEventPublisher tradeEvents;
+    private Thread acceptor;
+
+    /**
+     *
+     * @param orderPool new orders are taken from it, the pool the handler
+     *                  releases to
+     */
+    public GatewayServer(final OrderBookProvider provider, final OrderHandler handler, final OrderPool orderPool, final InetSocketAddress address,
+                         final int eventLoops) throws IOException {
+        if (eventLoops < 1) {
+            throw new IllegalArgumentException("At least one event loop is required, got [" + eventLoops + "]");
+        }
+        this.provider = provider;
+        this.handler = handler;
+        this.orderPool = orderPool;
+        this.loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            loops[i] = new EventLoop(i, this);
+        }
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+    }
+
+    public synchronized void start() {
+        if (acceptor != null)
+            return;
+
+        tradeEvents = provider.getTradeEvents();
+        if (tradeEvents == TradeEventPublisher.NONE) {
+            throw new IllegalStateException("The provider has no TradeEventPublisher, fills could not be sent");
+        }
+        tradeEvents.subscribe("gateway", fills);
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+        acceptor = new Thread(this::accept, "gateway-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Gateway listening on [{}] with [{}] event loops", serverChannel.socket().getLocalSocketAddress(), loops.length);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getConnectedSessions() {
+        return connected.get();
+    }
+
+    private void accept() {
+        int next = 0;
+        while (serverChannel.isOpen()) {
+            final SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (AsynchronousCloseException e) {
+                break;
+            } catch (IOException e) {
+                log.warn("Gateway accept failed", e);
+                continue;
+            }
+            final EventLoop loop = loops[next++ % loops.length];
+            final Session session = open(channel, loop);
+            if (session == null) {
+                log.warn("Gateway has [{}] sessions connected, refusing [{}]", connected.get(), channel);
+                closeQuietly(channel);
+            } else {
+                loop.adopt(session);
+            }
+        }
+        log.debug("Gateway acceptor stopped.");
+    }
+
+    /**
+     *
+     * @return null when every session slot is taken
+     */
+    private Session open(final SocketChannel channel, final EventLoop loop) {
+        for (int attempt = 0; attempt < MAX_SESSIONS; attempt++) {
+            // 0 is left for orders that did not come through the gateway
+            final int id = sessionIds.updateAndGet(current -> current == Integer.MAX_VALUE ? 1 : current + 1);
+            if (sessions.get(slot(id)) != null)
+                continue;
+
+            final Session session = new Session(id, channel, loop);
+            if (sessions.compareAndSet(slot(id), null, session)) {
+                connected.incrementAndGet();
+                return session;
+            }
+        }
+        return null;
+    }
+
+    void closed(final Session session) {
+        if (sessions.compareAndSet(slot(session.getId()), session, null)) {
+            connected.decrementAndGet();
+        }
+    }
+
+    /**
+     *
+     * Appends the fill of each side entered through the gateway to its session,
+     * which its loop then writes
+     *
+     */
+    private void onTrade(final TradeEvent event) {
+        fill(event.getAggressorSessionId(), event.getAggressorId(), event.getPrice(), event.getQuantity(), event.getAggressorQuantityLeft());
+        fill(event.getRestingSessionId(), event.getRestingId(), event.getPrice(), event.getQuantity(), event.getRestingQuantityLeft());
+    }
+
+    private void fill(final int sessionId, final long orderId, final long price, final int quantity, final int quantityLeft) {
+        if (sessionId == 0)
+            return;
+
+        final Session session = sessions.get(slot(sessionId));
+        // The slot may hold a newer session by now
+        if (session == null || session.getId() != sessionId)
+            return;
+
+        if (session.fill(orderId, price, quantity, quantityLeft)) {
+            session.loop().flushLater(session);
+        } else if (!session.isClosed()) {
+            log.warn("Gateway session [{}] is not reading its fills, disconnecting", sessionId);
+            session.loop().close(session);
+        }
+    }
+
+    private static int slot(final int sessionId) {
+        return sessionId & (MAX_SESSIONS - 1);
+    }
+
+    private static void closeQuietly(final SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Refused anyway
+        }
+    }
+
+    /**
+     *
+     * Stops accepting, disconnects every session and stops sending fills
+     *
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        serverChannel.close();
+        if (acceptor == null)
+            return;
+
+        try {
+            acceptor.join();
+            for (EventLoop loop : loops) {
+                loop.stop();
+            }
+            tradeEvents.unsubscribe(fills);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the gateway", e);
+        }
+        acceptor = null;
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.iggroup.gateway;
+
+import static com.iggroup.gateway.GatewayFormat.ACCEPTED;
+import static com.iggroup.gateway.GatewayFormat.ACK;
+import static com.iggroup.gateway.GatewayFormat.ACK_SIZE;
+import static com.iggroup.gateway.GatewayFormat.AMEND;
+import static com.iggroup.gateway.GatewayFormat.CANCEL;
+import static com.iggroup.gateway.GatewayFormat.FILL;
+import static com.iggroup.gateway.GatewayFormat.FILL_SIZE;
+import static com.iggroup.gateway.GatewayFormat.REJECTED;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.iggroup.handler.OrderOutcome;
+
+import lombok.Getter;
+
+/**
+ *
+ * One client connection, owned by an {@link EventLoop} which does all its reads.
+ * Replies are appended to the outbound buffer by the event loop (new order
+ * acks), the threads running amends and cancels (their acks) and the trade
+ * listener (fills) under the session's lock, and written by the event loop. A client that lets the outbound buffer fill up is disconnected rather
+ * than slowing the engine down.
+ *
+ */
+final class Session {
+
+    static final int INBOUND_BUFFER_SIZE = 1 << 12;
+    static final int OUTBOUND_BUFFER_SIZE = 1 << 15;
+
+    @Getter
+    private final int id;
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    final ByteBuffer inbound = ByteBuffer.allocateDirect(INBOUND_BUFFER_SIZE);
+    /**
+     * In write mode, guarded by the session
+     */
+    private final ByteBuffer outbound = ByteBuffer.allocateDirect(OUTBOUND_BUFFER_SIZE);
+    final SymbolCache symbols = new SymbolCache();
+    /**
+     * Set while the session waits in its loop's flush queue
+     */
+    final AtomicBoolean flushPending = new AtomicBoolean();
+    /**
+     * Ack amends and cancels from the thread that ran them
+     */
+    final OrderOutcome amended = (orderId, applied) -> acked(AMEND, orderId, applied);
+    final OrderOutcome cancelled = (orderId, applied) -> acked(CANCEL, orderId, applied);
+    private SelectionKey key;
+    private volatile boolean closed;
+
+    Session(final int id, final SocketChannel channel, final EventLoop loop) {
+        this.id = id;
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    EventLoop loop() {
+        return loop;
+    }
+
+    void registered(final SelectionKey selectionKey) {
+        this.key = selectionKey;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     *
+     * @return false if the session is closed or too far behind to take it
+     */
+    synchronized boolean ack(final byte requestType, final long clientOrderId, final long orderId, final byte status) {
+        if (!reserve(ACK_SIZE))
+            return false;
+
+        outbound.put(ACK).put(requestType).putLong(clientOrderId).putLong(orderId).put(status);
+        return true;
+    }
+
+    /**
+     *
+     * Has the loop write the ack, or disconnects a session too far behind to take
+     * it
+     *
+     */
+    private void acked(final byte requestType, final long orderId, final boolean applied) {
+        if (ack(requestType, 0L, orderId, applied ? ACCEPTED : REJECTED)) {
+            loop.flushLater(this);
+        } else if (!closed) {
+            loop.close(this);
+        }
+    }
+
+    synchronized boolean fill(final long orderId, final long price, final int quantity, final int quantityLeft) {
+        if (!reserve(FILL_SIZE))
+            return false;
+
+        outbound.put(FILL).putLong(orderId).putLong(price).putInt(quantity).putInt(quantityLeft);
+        return true;
+    }
+
+    private boolean reserve(final int size) {
+        if (closed)
+            return false;
+        if (outbound.remaining() < size) {
+            // Tries to make room before giving up on the client
+            flush();
+        }
+        return outbound.remaining() >= size;
+    }
+
+    /**
+     *
+     * Writes what the socket takes without blocking, and asks the loop to write
+     * the rest once the socket is writable again
+     *
+     */
+    synchronized void flush() {
+        if (closed || outbound.position() == 0)
+            return;
+
+        outbound.flip();
+        try {
+            channel.write(outbound);
+        } catch (IOException e) {
+            outbound.clear();
+            loop.close(this);
+            return;
+        } finally {
+            outbound.compact();
+        }
+        if (key != null && key.isValid()) {
+            key.interestOps(outbound.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    synchronized void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+}
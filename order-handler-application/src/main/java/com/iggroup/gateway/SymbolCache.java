@@ -0,0 +1,72 @@
+package com.iggroup.gateway;
+
+import static com.iggroup.gateway.GatewayFormat.SYMBOL_LENGTH;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Symbols a session has sent, so decoding a known symbol compares bytes in the
+ * buffer instead of creating a String. Direct mapped, a clash only costs a new
+ * String.
+ *
+ */
+final class SymbolCache {
+
+    private static final int SIZE = 64;
+
+    private final byte[][] names = new byte[SIZE][];
+    private final String[] symbols = new String[SIZE];
+
+    /**
+     *
+     * Reads the symbol field at the buffer position and moves past it
+     *
+     * @return null if the field is empty or not ASCII
+     */
+    String decode(final ByteBuffer buffer) {
+        final int start = buffer.position();
+        int length = 0;
+        int hash = 0;
+        while (length < SYMBOL_LENGTH) {
+            final byte b = buffer.get(start + length);
+            if (b == 0)
+                break;
+            if (b < 0) {
+                buffer.position(start + SYMBOL_LENGTH);
+                return null;
+            }
+            hash = 31 * hash + b;
+            length++;
+        }
+        buffer.position(start + SYMBOL_LENGTH);
+        if (length == 0)
+            return null;
+
+        final int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+        final byte[] name = names[slot];
+        if (name != null && matches(name, buffer, start, length))
+            return symbols[slot];
+
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        names[slot] = bytes;
+        symbols[slot] = new String(bytes, StandardCharsets.US_ASCII);
+        return symbols[slot];
+    }
+
+    private static boolean matches(final byte[] name, final ByteBuffer buffer, final int start, final int length) {
+        if (name.length != length)
+            return false;
+
+        for (int i = 0; i < length; i++) {
+            if (name[i] != buffer.get(start + i))
+                return false;
+        }
+        return true;
+    }
+
+}
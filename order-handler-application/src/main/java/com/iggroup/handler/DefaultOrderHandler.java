@@ -1,132 +1,398 @@
 package com.iggroup.handler;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Map.Entry;
-import java.util.NavigableSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
 
 import com.iggroup.exception.OrderModificationException;
-import com.iggroup.lock.OrdersLock;
+import com.iggroup.journal.OrderJournal;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.metrics.LatencyRecorder;
+import com.iggroup.metrics.LatencyStage;
 import com.iggroup.model.Order;
+import com.iggroup.model.OrderAmendment;
 import com.iggroup.model.OrderBook;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.PriceLevel;
 import com.iggroup.model.Side;
 import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.trade.matcher.OrderMatcher;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-@RequiredArgsConstructor
 public class DefaultOrderHandler implements OrderHandler {
 
+    /**
+     * Session filter matching every order
+     */
+    private static final int ANY_SESSION = -1;
+
     private final OrderBookProvider provider;
-    private final BlockingQueue<Order> tradeQueue;
+    private final Consumer<Order> tradeSubmitter;
+    private final OrderLocking locking;
+    private final OrderPool orderPool;
+    private final OrderMatcher matcher;
+
+    public DefaultOrderHandler(final OrderBookProvider provider, final Consumer<Order> tradeSubmitter, final OrderLocking locking) {
+        this(provider, tradeSubmitter, locking, OrderPool.NONE);
+    }
+
+    /**
+     *
+     * Incoming orders are crossed inline first, the trade submitter only receives
+     * orders that have rested with quantity left
+     * <br>
+     * Filled and removed orders are released to the order pool, only safe when no
+     * other thread can still reach them, i.e. with a single writer per book
+     *
+     */
+    public DefaultOrderHandler(final OrderBookProvider provider, final Consumer<Order> tradeSubmitter, final OrderLocking locking,
+                               final OrderPool orderPool) {
+        this.provider = provider;
+        this.tradeSubmitter = tradeSubmitter;
+        this.locking = locking;
+        this.orderPool = orderPool;
+        this.matcher = new OrderMatcher(provider, this::removeFilled, locking);
+    }
 
+    /**
+     *
+     * Rested orders are put on the trade queue, blocking while a bounded queue is
+     * full. The trade consumers re-check them, as an order crossed concurrently by
+     * another producer thread may have rested at the same time.
+     *
+     */
+    public DefaultOrderHandler(final OrderBookProvider provider, final BlockingQueue<Order> tradeQueue) {
+        this(provider, order -> putForTrade(tradeQueue, order), OrderLocking.SHARED);
+    }
+
+    private static void putForTrade(final BlockingQueue<Order> tradeQueue, final Order order) {
+        try {
+            order.setQueuedTime(LatencyRecorder.start());
+            tradeQueue.put(order);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing OrderId [" + order.getId() + "] for trade", e);
+        }
+    }
+
+    /**
+     *
+     * Crosses the order against the opposite side before resting it, only the
+     * quantity left is added to the book
+     *
+     */
     @Override
     public void addOrder(final Order order) {
         log.debug("Adding Order [{}]...", order);
-        provider.getOrderBookBySymbol(order.getSymbol())
-                .getOrders(order.getSide())
-                .computeIfAbsent(order.getPrice().get(), k -> new ConcurrentSkipListSet<>())
-                .add(order);
-        log.debug("OrderId [{}] has been added.", order.getId());
-        tradeQueue.add(order);
+        final long orderId = order.getId();
+        final OrderBook orderBook = provider.getOrderBook(order);
+        if (orderBook == null) {
+            dropDelisted(order);
+            return;
+        }
+        entered(orderBook, order);
+        if (add(orderBook, order)) {
+            log.debug("OrderId [{}] has been added.", orderId);
+        } else {
+            log.debug("OrderId [{}] has been filled on arrival.", orderId);
+        }
     }
 
     /**
      *
-     * Only can modify price and quantity of an order
+     * Only the batch is logged
      *
      */
     @Override
-    public void modifyOrder(final Order order, final Order modifiedOrder) throws OrderModificationException {
-        log.debug("Modifying OrderId [{}]...", order.getId());
-        OrdersLock.acquireLock(order.getId()).lock();
-        if (!provider.checkIfOrderExists(order)) {
-            OrdersLock.unlock(order.getId());
-            log.debug("Order does not exist anymore for modifying");
+    public void addOrders(final List<Order> orders) {
+        log.debug("Adding [{}] orders...", orders.size());
+        int rested = 0;
+        for (Order order : orders) {
+            final OrderBook orderBook = provider.getOrderBook(order);
+            if (orderBook == null) {
+                dropDelisted(order);
+                continue;
+            }
+            entered(orderBook, order);
+            if (add(orderBook, order))
+                rested++;
+        }
+        log.debug("[{}] of [{}] orders have rested.", rested, orders.size());
+    }
+
+    /**
+     *
+     * The symbol was delisted after the order was admitted, there is no book to
+     * cross it against
+     *
+     */
+    private void dropDelisted(final Order order) {
+        log.warn("Symbol [{}] of OrderId [{}] has been delisted, the order is dropped", order.getSymbol(), order.getId());
+        orderPool.release(order);
+    }
+
+    /**
+     *
+     * Counts the order and records the time since the producer created it, or for
+     * an order handed over by a {@link com.iggroup.engine.MatchingEngine} the time
+     * to the hand over and the time spent on the shard queue
+     *
+     */
+    private void entered(final OrderBook orderBook, final Order order) {
+        provider.getCounters().added();
+        if (!LatencyRecorder.ENABLED)
             return;
+
+        final LatencyRecorder latencies = orderBook.getLatencies();
+        final long queuedTime = order.getQueuedTime();
+        if (queuedTime == 0L) {
+            latencies.record(LatencyStage.ORDER_ENTRY, order.getArrivalTime());
+            return;
+        }
+        order.setQueuedTime(0L);
+        latencies.get(LatencyStage.ORDER_ENTRY).record(queuedTime - order.getArrivalTime());
+        latencies.record(LatencyStage.QUEUE_WAIT, queuedTime);
+    }
+
+    @Override
+    public int admit(final String symbol) {
+        return provider.admit(symbol);
+    }
+
+    /**
+     *
+     * The order is stamped first, it is then newer than any order it crosses.
+     * It is journaled and rested in one step, see
+     * {@link OrderJournal#add(Order, OrderBook)}.
+     *
+     * @return false if the order was filled on arrival and released
+     */
+    private boolean add(final OrderBook orderBook, final Order order) {
+        orderBook.stamp(order);
+        if (matcher.crossIncoming(orderBook, order) <= 0) {
+            orderPool.release(order);
+            return false;
+        }
+        provider.getJournal().add(order, orderBook);
+        tradeSubmitter.accept(order);
+        return true;
+    }
+
+    @Override
+    public void modifyOrder(final Order order, final Order modifiedOrder) throws OrderModificationException {
+        modifyOrder(order.getId(), modifiedOrder.getQuantity(), modifiedOrder.getPrice());
+    }
+
+    /**
+     *
+     * Only can modify price and quantity of an order, the resting order is found
+     * through the order id index
+     *
+     */
+    @Override
+    public void modifyOrder(final long orderId, final int quantity, final long price) throws OrderModificationException {
+        log.debug("Modifying OrderId [{}]...", orderId);
+        if (modify(orderId, quantity, price, ANY_SESSION)) {
+            log.debug("OrderId [{}] has been modified with new price of [{}] and quantity [{}].", orderId, price, quantity);
         }
+    }
 
-        if (order.getModification().get() > 4) {
-            log.debug("OrderId [{}] has more than 4 modifications applied, cannot be modified further", modifiedOrder.getId());
-            OrdersLock.unlock(order.getId());
-            throw new OrderModificationException("OrderId [" + order.getId() + "] has more than 4 modifications applied, cannot be modified further.");
+    @Override
+    public void modifyOrders(final List<OrderAmendment> amendments) throws OrderModificationException {
+        log.debug("Modifying [{}] orders...", amendments.size());
+        List<Long> rejected = null;
+        for (OrderAmendment amendment : amendments) {
+            try {
+                modify(amendment.getOrderId(), amendment.getQuantity(), amendment.getPrice(), ANY_SESSION);
+            } catch (OrderModificationException e) {
+                if (rejected == null)
+                    rejected = new ArrayList<>();
+                rejected.add(amendment.getOrderId());
+            }
+        }
+        if (rejected != null) {
+            throw new OrderModificationException("OrderIds " + rejected + " have more than 4 modifications applied, cannot be modified further.");
         }
+    }
 
-        log.debug("Modifying OrderId [{}] price [{}] and quantity [{}]...", order.getId(), order.getPrice().get(), order.getQuantity().get());
-        order.getModification().incrementAndGet();
-        order.getQuantity().set(modifiedOrder.getQuantity().intValue());
+    @Override
+    public void modifyOrder(final long orderId, final int quantity, final long price, final int sessionId, final OrderOutcome outcome) {
+        boolean applied = false;
+        try {
+            applied = modify(orderId, quantity, price, sessionId);
+        } catch (OrderModificationException e) {
+            log.debug(e.getMessage());
+        }
+        outcome.completed(orderId, applied);
+    }
 
-        if (order.getPrice().get().compareTo(modifiedOrder.getPrice().get()) != 0) {
-            log.debug("Modifying OrderId [{}] price [{}] and quantity [{}] by removing and adding...", order.getId(), order.getPrice().get(),
-                      order.getQuantity().get());
-            removeOrder(order);
-            order.getPrice().set(modifiedOrder.getPrice().get());
-            addOrder(order);
+    /**
+     *
+     * @return false if the order does not exist anymore or was entered by another
+     *         session
+     */
+    private boolean modify(final long orderId, final int quantity, final long price, final int sessionId) throws OrderModificationException {
+        locking.lock(orderId);
+        final Order order = provider.getOrder(orderId);
+        if (order == null || (sessionId != ANY_SESSION && order.getSessionId() != sessionId)) {
+            locking.unlock(orderId);
+            log.debug("OrderId [{}] does not exist anymore for modifying", orderId);
+            return false;
+        }
+
+        if (order.getModifications() > 4) {
+            log.debug("OrderId [{}] has more than 4 modifications applied, cannot be modified further", orderId);
+            locking.unlock(orderId);
+            throw new OrderModificationException("OrderId [" + orderId + "] has more than 4 modifications applied, cannot be modified further.");
+        }
+
+        order.setModifications(order.getModifications() + 1);
+        // Resting, so it carries the id of its book
+        final OrderBook orderBook = provider.getOrderBook(order.getSymbolId());
+        orderBook.updateQuantity(order, quantity);
+        provider.getJournal().modify(orderId, quantity, order.getModifications());
+        provider.getCounters().modified();
+
+        if (order.getPrice() != price) {
+            log.debug("Modifying OrderId [{}] price to [{}] by removing and adding...", orderId, price);
+            // Not through removeOrder, the order is re-added rather than recycled
+            orderBook.removeOrder(order);
+            provider.getJournal().remove(orderId);
+            order.setPrice(price);
+            add(orderBook, order);
         }
-        log.debug("OrderId [{}] has been modified with new price of [{}] and quantity [{}].", modifiedOrder.getId(), modifiedOrder.getPrice().get(),
-                  modifiedOrder.getQuantity().get());
-        OrdersLock.unlock(order.getId());
+        locking.unlock(orderId);
+        return true;
     }
 
     @Override
     public void removeOrder(final Order order) {
-        log.debug("Removing orderId [{}]...", order.getId());
-        OrdersLock.acquireLock(order.getId()).tryLock();
-        if (!provider.checkIfOrderExists(order)) {
-            log.debug("Order [{}] does not exist anymore to be removed. ", order.getId());
-            OrdersLock.unlock(order.getId());
-            return;
+        removeOrder(order.getId());
+    }
+
+    @Override
+    public void removeOrder(final long orderId) {
+        log.debug("Removing orderId [{}]...", orderId);
+        if (remove(orderId, ANY_SESSION)) {
+            log.debug("OrderId [{}] has been removed.", orderId);
+        } else {
+            log.debug("Order [{}] does not exist anymore to be removed. ", orderId);
         }
+    }
 
-        OrderBook orderBook = provider.getOrderBookBySymbol(order.getSymbol());
-        ConcurrentNavigableMap<BigDecimal, NavigableSet<Order>> ordersMap = orderBook.getOrders(order.getSide());
-        NavigableSet<Order> orders = ordersMap.get(order.getPrice().get());
+    @Override
+    public void removeOrder(final long orderId, final int sessionId, final OrderOutcome outcome) {
+        outcome.completed(orderId, remove(orderId, sessionId));
+    }
 
-        if (orders.size() == 1) {
-            ordersMap.remove(order.getPrice().get()); // Remove price level and (navigableSet as well as last element)
+    @Override
+    public void removeOrders(final long[] orderIds) {
+        log.debug("Removing [{}] orders...", orderIds.length);
+        int removed = 0;
+        for (long orderId : orderIds) {
+            if (remove(orderId, ANY_SESSION))
+                removed++;
+        }
+        log.debug("[{}] of [{}] orders have been removed.", removed, orderIds.length);
+    }
+
+    /**
+     *
+     * Books are not created for an unknown symbol
+     *
+     */
+    @Override
+    public void removeOrders(final String symbol, final Side side) {
+        log.debug("Removing every order of symbol [{}] and side [{}]...", symbol, side);
+        int removed = 0;
+        if (symbol == null) {
+            for (OrderBook orderBook : provider.getOrderBooks().values()) {
+                removed += removeAll(orderBook, side);
+            }
         } else {
-            orders.remove(order);
+            final OrderBook orderBook = provider.getOrderBooks().get(symbol);
+            if (orderBook != null)
+                removed += removeAll(orderBook, side);
+        }
+        log.debug("[{}] orders of symbol [{}] and side [{}] have been removed.", removed, symbol, side);
+    }
+
+    private int removeAll(final OrderBook orderBook, final Side side) {
+        int removed = 0;
+        for (Side bookSide : Side.values()) {
+            if (side != null && side != bookSide)
+                continue;
+
+            for (PriceLevel level : orderBook.getOrders(bookSide).values()) {
+                Order order;
+                // Always the head, removal unlinks it; stops if another thread got there first
+                while ((order = level.first()) != null && remove(order.getId(), ANY_SESSION)) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     *
+     * Takes an order the matcher filled and already took out of its book:
+     * journaled as removed like a cancel, counted and released
+     *
+     */
+    public void removeFilled(final Order order) {
+        log.debug("OrderId [{}] has been filled.", order.getId());
+        provider.getJournal().remove(order.getId());
+        provider.getCounters().removed();
+        orderPool.release(order);
+    }
+
+    /**
+     *
+     * @return false if the order does not exist anymore or was entered by another
+     *         session
+     */
+    private boolean remove(final long orderId, final int sessionId) {
+        // Only released if taken, the stripe may be held by another thread working on a different order
+        final boolean locked = locking.tryLock(orderId);
+        final Order order = provider.getOrder(orderId);
+        if (order == null || (sessionId != ANY_SESSION && order.getSessionId() != sessionId)) {
+            if (locked) locking.unlock(orderId);
+            return false;
         }
-        OrdersLock.unlock(order.getId());
-        log.debug("OrderId [{}] has been removed.", order.getId());
+
+        // O(1) unlink through the order handle, the level goes with its last order
+        if (provider.getOrderBook(order.getSymbolId()).removeOrder(order)) {
+            provider.getJournal().remove(orderId);
+            provider.getCounters().removed();
+        }
+        if (locked) locking.unlock(orderId);
+        orderPool.release(order);
+        return true;
     }
 
     /**
      *
-     * Time Complexity: O(n + m) where n is the level and m are the sum of orders
-     * which corresponds to -> O(N)
+     * Time Complexity: O(log n) where n is the price range of the side in ticks,
+     * the book keeps cumulative quantity and notional over its price levels
+     * <br>
+     * Sums are done in ticks, only the final average is converted to a decimal.
+     * <br>
+     * The book is read without taking any lock of the matcher, and read again if
+     * a change overlapped, so the price never comes from half a trade.
      *
      */
     @Override
     public double getPrice(final String symbol, final int quantity, final Side side) {
         log.debug("Getting best price for symbol [{}], quantity [{}], and order type [{}]...", symbol, quantity, side);
-        final BigDecimal quantityBdec = BigDecimal.valueOf(quantity); // For calculation
-        final ConcurrentNavigableMap<BigDecimal, NavigableSet<Order>> orders = provider.getOrderBookBySymbol(symbol)
-                                                                                       .getOrders(side);
-        BigDecimal currentQuantity = BigDecimal.ZERO;
-        BigDecimal averagePrice = BigDecimal.ZERO;
-        for (Entry<BigDecimal, NavigableSet<Order>> entry : orders.entrySet()) {
-            final BigDecimal totalQuantityByPrice = entry.getValue()
-                                                         .stream()
-                                                         .map(o -> BigDecimal.valueOf(o.getQuantity().get()))
-                                                         .reduce(BigDecimal::add)
-                                                         .orElseGet(() -> BigDecimal.ZERO);
-            final BigDecimal previousCurrQuantity = currentQuantity;
-            currentQuantity = currentQuantity.add(totalQuantityByPrice);
-            if (currentQuantity.compareTo(quantityBdec) >= 0) {
-                final BigDecimal diff = quantityBdec.subtract(previousCurrQuantity);
-                averagePrice = averagePrice.add(entry.getKey().multiply(diff));
-                break;
-            } else {
-                averagePrice = averagePrice.add(entry.getKey().multiply(currentQuantity));
-            }
-        }
-        double result = averagePrice.divide(quantityBdec, 4, RoundingMode.HALF_UP).doubleValue();
+        final long start = LatencyRecorder.start();
+        final OrderBook orderBook = provider.getOrderBookBySymbol(symbol);
+        final long notionalTicks = orderBook.getNotionalToFill(side, quantity);
+        double result = orderBook.getTickSize().toAveragePrice(notionalTicks, quantity);
+        orderBook.getLatencies().record(LatencyStage.GET_PRICE, start);
         log.debug("Best average price for symbol [{}], with quantity [{}], and order type [{}] is: [{}]", symbol, quantity, side, result);
         return result;
     }
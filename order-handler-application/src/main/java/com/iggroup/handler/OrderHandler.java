@@ -1,17 +1,88 @@
 package com.iggroup.handler;
 
+import java.util.List;
+
 import com.iggroup.exception.OrderModificationException;
+import com.iggroup.exception.UnknownSymbolException;
 import com.iggroup.model.Order;
+import com.iggroup.model.OrderAmendment;
 import com.iggroup.model.Side;
 
 public interface OrderHandler {
 
+    /**
+     *
+     * Checks the symbol at the edge, before an order of it is accepted
+     *
+     * @return symbol id the orders of the symbol are to carry
+     * @throws UnknownSymbolException if the symbol is not listed and listing is
+     *                                explicit
+     */
+    int admit(String symbol);
+
     void addOrder(Order order);
 
+    /**
+     *
+     * Adds the orders in list order, as if addOrder was called for each
+     *
+     */
+    void addOrders(List<Order> orders);
+
     void modifyOrder(Order order, Order modifiedOrder) throws OrderModificationException;
 
+    /**
+     *
+     * Modifies the resting order with this id, price in ticks
+     *
+     */
+    void modifyOrder(long orderId, int quantity, long price) throws OrderModificationException;
+
+    /**
+     *
+     * Modifies the resting order only if it was entered by the session, and tells
+     * whether it did once the modification has run, which may be on another
+     * thread. A modification rejected by the handler is told, not thrown.
+     *
+     */
+    void modifyOrder(long orderId, int quantity, long price, int sessionId, OrderOutcome outcome);
+
+    /**
+     *
+     * Every amendment is applied, a rejected one does not stop the others. The
+     * rejected order ids are reported together afterwards.
+     *
+     */
+    void modifyOrders(List<OrderAmendment> amendments) throws OrderModificationException;
+
     void removeOrder(Order order);
 
+    void removeOrder(long orderId);
+
+    /**
+     *
+     * Removes the resting order only if it was entered by the session, see
+     * {@link #modifyOrder(long, int, long, int, OrderOutcome)}
+     *
+     */
+    void removeOrder(long orderId, int sessionId, OrderOutcome outcome);
+
+    /**
+     *
+     * Ids no longer resting are skipped
+     *
+     */
+    void removeOrders(long[] orderIds);
+
+    /**
+     *
+     * Mass cancel of the resting orders matching both filters
+     *
+     * @param symbol null for every symbol
+     * @param side null for both sides
+     */
+    void removeOrders(String symbol, Side side);
+
     double getPrice(String symbol, int quantity, Side side);
 
 }
@@ -0,0 +1,14 @@
+package com.iggroup.handler;
+
+/**
+ *
+ * Told whether a modify or remove by order id was applied, on the thread that
+ * ran it
+ *
+ */
+@FunctionalInterface
+public interface OrderOutcome {
+
+    void completed(long orderId, boolean applied);
+
+}
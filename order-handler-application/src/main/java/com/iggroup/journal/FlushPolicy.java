@@ -0,0 +1,23 @@
+package com.iggroup.journal;
+
+/**
+ *
+ * When journal records are forced from the mapped segment to disk. Records are
+ * always visible to the OS once written, flushing only matters for surviving a
+ * machine rather than a process crash.
+ *
+ */
+public enum FlushPolicy {
+    /**
+     * Left to the OS, and on close/roll
+     */
+    NONE,
+    /**
+     * Every batch size records
+     */
+    BATCH,
+    /**
+     * After every record
+     */
+    COMMAND
+}
@@ -0,0 +1,101 @@
+package com.iggroup.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ *
+ * Binary layout of journal segments, shared by writer and replayer.
+ * <br>
+ * A segment is a fixed size file of records, each starting with a one byte type
+ * and ending with a CRC32C of the record before it, so a record torn by a crash
+ * is told from a complete one. The unused tail of a segment is zero, i.e.
+ * {@link #END}. Symbols are written
+ * once per segment as {@link #SYMBOL} records and referenced by id afterwards, so
+ * every segment can be replayed on its own.
+ *
+ */
+final class JournalFormat {
+
+    static final byte END = 0;
+    /**
+     * int symbol id, short length, UTF-8 bytes
+     */
+    static final byte SYMBOL = 1;
+    /**
+     * long id, int symbol id, byte side, long price, int quantity, int modifications
+     */
+    static final byte ADD = 2;
+    /**
+     * long id, int quantity, int modifications
+     */
+    static final byte MODIFY = 3;
+    /**
+     * long id
+     */
+    static final byte REMOVE = 4;
+    /**
+     * long id, long against id, long price, int quantity, int quantity left, int
+     * quantity left against
+     */
+    static final byte TRADE = 5;
+
+    static final int CHECKSUM_SIZE = 4;
+    /**
+     * Symbol records are this, the name and the checksum
+     */
+    static final int SYMBOL_HEADER_SIZE = 1 + 4 + 2;
+    static final int ADD_SIZE = 1 + 8 + 4 + 1 + 8 + 4 + 4 + CHECKSUM_SIZE;
+    static final int MODIFY_SIZE = 1 + 8 + 4 + 4 + CHECKSUM_SIZE;
+    static final int REMOVE_SIZE = 1 + 8 + CHECKSUM_SIZE;
+    static final int TRADE_SIZE = 1 + 8 + 8 + 8 + 4 + 4 + 4 + CHECKSUM_SIZE;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private JournalFormat() {}
+
+    /**
+     *
+     * Checksum of the bytes from {@code start} up to the position of the buffer,
+     * which is left at that position
+     *
+     */
+    static int checksum(final CRC32C crc, final ByteBuffer buffer, final int start) {
+        final int end = buffer.position();
+        final int limit = buffer.limit();
+        crc.reset();
+        buffer.position(start).limit(end);
+        crc.update(buffer);
+        buffer.limit(limit);
+        return (int) crc.getValue();
+    }
+
+    static Path segment(final Path directory, final long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     *
+     * @return segment indexes found in the directory, ascending
+     */
+    static List<Long> segments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory))
+            return List.of();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                        .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                        .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.iggroup.journal;
+
+import static com.iggroup.journal.JournalFormat.ADD;
+import static com.iggroup.journal.JournalFormat.ADD_SIZE;
+import static com.iggroup.journal.JournalFormat.CHECKSUM_SIZE;
+import static com.iggroup.journal.JournalFormat.END;
+import static com.iggroup.journal.JournalFormat.MODIFY;
+import static com.iggroup.journal.JournalFormat.MODIFY_SIZE;
+import static com.iggroup.journal.JournalFormat.REMOVE;
+import static com.iggroup.journal.JournalFormat.REMOVE_SIZE;
+import static com.iggroup.journal.JournalFormat.SYMBOL;
+import static com.iggroup.journal.JournalFormat.SYMBOL_HEADER_SIZE;
+import static com.iggroup.journal.JournalFormat.TRADE;
+import static com.iggroup.journal.JournalFormat.TRADE_SIZE;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Rebuilds books from journal segments, applying records straight to the
+ * {@link OrderBook}s without matching or order locks. Must run before anything
+ * else uses the provider.
+ * <br>
+ * Replayed orders are stamped with a new sequence in journal order, so they keep
+ * their priority between themselves and are older than any new order.
+ * <br>
+ * Replay stops at the first record that is cut short or fails its checksum, the
+ * tail left by a crash while it was written. Nothing after it is applied.
+ *
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class JournalReplayer {
+
+    private static final Side[] SIDES = Side.values();
+
+    private final OrderBookProvider provider;
+    /**
+     * Symbols of the segment being replayed, by id
+     */
+    private final List<OrderBook> orderBooks = new ArrayList<>();
+    private final CRC32C crc = new CRC32C();
+
+    @Getter
+    private long records;
+    /**
+     * Highest order id seen, new ids should be issued above it
+     */
+    @Getter
+    private long maxOrderId;
+
+    public JournalReplayer replay(final Path directory) throws IOException {
+        return replay(directory, 0L);
+    }
+
+    /**
+     *
+     * @param fromSegment first segment to replay, earlier ones are skipped
+     */
+    public JournalReplayer replay(final Path directory, final long fromSegment) throws IOException {
+        final long start = System.nanoTime();
+        for (long index : JournalFormat.segments(directory)) {
+            if (index >= fromSegment && !replaySegment(JournalFormat.segment(directory, index)))
+                break;
+        }
+        log.info("Replayed [{}] journal records from [{}] in [{}] ms", records, directory, (System.nanoTime() - start) / 1_000_000);
+        return this;
+    }
+
+    /**
+     *
+     * @return false if the segment ends with a torn record
+     */
+    private boolean replaySegment(final Path path) throws IOException {
+        orderBooks.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.hasRemaining()) {
+                final int start = buffer.position();
+                final byte type = buffer.get(start);
+                if (type == END)
+                    return true;
+
+                final int size = recordSize(type, buffer, start);
+                if (size < 0 || !intact(buffer, start, size)) {
+                    log.warn("Torn journal record at position [{}] of [{}], replay stops at the record before it", start, path);
+                    return false;
+                }
+                buffer.position(start + 1);
+                apply(type, buffer);
+                buffer.position(start + size);
+                records++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return size of the record starting at {@code start} with its checksum, -1
+     *         for a type or symbol length no record has
+     */
+    private static int recordSize(final byte type, final MappedByteBuffer buffer, final int start) {
+        switch (type) {
+        case SYMBOL:
+            if (buffer.limit() - start < SYMBOL_HEADER_SIZE)
+                return -1;
+
+            final short length = buffer.getShort(start + SYMBOL_HEADER_SIZE - 2);
+            return length < 0 ? -1 : SYMBOL_HEADER_SIZE + length + CHECKSUM_SIZE;
+        case ADD:
+            return ADD_SIZE;
+        case MODIFY:
+            return MODIFY_SIZE;
+        case REMOVE:
+            return REMOVE_SIZE;
+        case TRADE:
+            return TRADE_SIZE;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     *
+     * @return true if the record is all in the segment and matches its checksum
+     */
+    private boolean intact(final MappedByteBuffer buffer, final int start, final int size) {
+        final int checksumPosition = start + size - CHECKSUM_SIZE;
+        if (checksumPosition > buffer.limit() - CHECKSUM_SIZE)
+            return false;
+
+        buffer.position(checksumPosition);
+        return JournalFormat.checksum(crc, buffer, start) == buffer.getInt(checksumPosition);
+    }
+
+    private void apply(final byte type, final MappedByteBuffer buffer) {
+        switch (type) {
+        case SYMBOL:
+            final int symbolId = buffer.getInt();
+            final byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            if (symbolId != orderBooks.size()) {
+                throw new IllegalStateException("Journal symbol id [" + symbolId + "] out of sequence");
+            }
+            // Listed whether listing is explicit or not, the journal holds resting orders of it
+            orderBooks.add(provider.getOrderBook(provider.list(new String(name, StandardCharsets.UTF_8))));
+            break;
+        case ADD:
+            add(buffer.getLong(), orderBooks.get(buffer.getInt()), SIDES[buffer.get()], buffer.getLong(), buffer.getInt(), buffer.getInt());
+            break;
+        case MODIFY:
+            modify(buffer.getLong(), buffer.getInt(), buffer.getInt());
+            break;
+        case REMOVE:
+            remove(buffer.getLong());
+            break;
+        case TRADE:
+            final long orderId = buffer.getLong();
+            final long orderAgainstId = buffer.getLong();
+            // Price and traded quantity are only informative, the quantities left are applied
+            buffer.getLong();
+            buffer.getInt();
+            updateQuantity(orderId, buffer.getInt());
+            updateQuantity(orderAgainstId, buffer.getInt());
+            maxOrderId = Math.max(maxOrderId, Math.max(orderId, orderAgainstId));
+            break;
+        default:
+            throw new IllegalStateException("Unknown journal record type [" + type + "] at position [" + (buffer.position() - 1) + "]");
+        }
+    }
+
+    /**
+     *
+     * An add of a resting id replaces it, e.g. an order moved to another price
+     *
+     */
+    private void add(final long id, final OrderBook orderBook, final Side side, final long price, final int quantity, final int modifications) {
+        remove(id);
+        final Order order = new Order().init(id, orderBook.getSymbol(), side, price, quantity);
+        order.setModifications(modifications);
+        orderBook.addOrder(order);
+        maxOrderId = Math.max(maxOrderId, id);
+    }
+
+    private void modify(final long id, final int quantity, final int modifications) {
+        final Order order = provider.getOrder(id);
+        if (order == null)
+            return;
+
+        order.setModifications(modifications);
+        provider.getOrderBook(order).updateQuantity(order, quantity);
+    }
+
+    private void updateQuantity(final long id, final int quantity) {
+        final Order order = provider.getOrder(id);
+        if (order == null)
+            return;
+
+        final OrderBook orderBook = provider.getOrderBook(order);
+        if (quantity <= 0) {
+            orderBook.removeOrder(order);
+        } else {
+            orderBook.updateQuantity(order, quantity);
+        }
+    }
+
+    private void remove(final long id) {
+        final Order order = provider.getOrder(id);
+        if (order != null) {
+            provider.getOrderBook(order).removeOrder(order);
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.iggroup.journal;
+
+import static com.iggroup.journal.JournalFormat.ADD;
+import static com.iggroup.journal.JournalFormat.ADD_SIZE;
+import static com.iggroup.journal.JournalFormat.CHECKSUM_SIZE;
+import static com.iggroup.journal.JournalFormat.MODIFY;
+import static com.iggroup.journal.JournalFormat.MODIFY_SIZE;
+import static com.iggroup.journal.JournalFormat.REMOVE;
+import static com.iggroup.journal.JournalFormat.REMOVE_SIZE;
+import static com.iggroup.journal.JournalFormat.SYMBOL;
+import static com.iggroup.journal.JournalFormat.SYMBOL_HEADER_SIZE;
+import static com.iggroup.journal.JournalFormat.TRADE;
+import static com.iggroup.journal.JournalFormat.TRADE_SIZE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * {@link OrderJournal} appending to memory-mapped segment files. A segment is
+ * mapped at its full size up front, a record that does not fit rolls to the next
+ * segment. Opening never appends to an existing segment, it starts after the
+ * last one found in the directory.
+ * <br>
+ * Appends are synchronized, a journal can be shared by every matching shard.
+ *
+ */
+@Slf4j
+public class MappedJournal implements OrderJournal, Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    @Getter
+    private final Path directory;
+    private final int segmentSize;
+    private final FlushPolicy flushPolicy;
+    private final int batchSize;
+    /**
+     * Ids of the symbols already written to the current segment
+     */
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private final CRC32C crc = new CRC32C();
+
+    @Getter
+    private long segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int unflushed;
+
+    public MappedJournal(final Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, FlushPolicy.BATCH, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     *
+     * @param batchSize records between flushes with {@link FlushPolicy#BATCH}
+     */
+    public MappedJournal(final Path directory, final int segmentSize, final FlushPolicy flushPolicy, final int batchSize) throws IOException {
+        if (segmentSize < SYMBOL_HEADER_SIZE + Short.MAX_VALUE + CHECKSUM_SIZE + ADD_SIZE) {
+            throw new IllegalArgumentException("Segment size must fit a symbol and an add record, got [" + segmentSize + "]");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushPolicy = flushPolicy;
+        this.batchSize = Math.max(1, batchSize);
+        Files.createDirectories(directory);
+        final List<Long> segments = JournalFormat.segments(directory);
+        open(segments.isEmpty() ? 0L : segments.get(segments.size() - 1) + 1);
+    }
+
+    @Override
+    public synchronized void add(final Order order) {
+        final String symbol = order.getSymbol();
+        Integer symbolId = symbolIds.get(symbol);
+        if (symbolId == null || buffer.remaining() < ADD_SIZE) {
+            final byte[] name = symbol.getBytes(StandardCharsets.UTF_8);
+            if (name.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Symbol of OrderId [" + order.getId() + "] is too long to journal");
+            }
+            reserve(SYMBOL_HEADER_SIZE + name.length + CHECKSUM_SIZE + ADD_SIZE);
+            // Rolling forgets the symbols of the previous segment
+            symbolId = symbolIds.get(symbol);
+            if (symbolId == null) {
+                symbolId = symbolIds.size();
+                symbolIds.put(symbol, symbolId);
+                final int start = buffer.position();
+                buffer.put(SYMBOL).putInt(symbolId).putShort((short) name.length).put(name);
+                seal(start);
+            }
+        }
+        final int start = buffer.position();
+        buffer.put(ADD)
+              .putLong(order.getId())
+              .putInt(symbolId)
+              .put((byte) order.getSide().ordinal())
+              .putLong(order.getPrice())
+              .putInt(order.getQuantity())
+              .putInt(order.getModifications());
+        seal(start);
+        written();
+    }
+
+    /**
+     *
+     * Rests the order while holding the journal, so {@link #roll()} waits for it
+     *
+     */
+    @Override
+    public synchronized void add(final Order order, final OrderBook orderBook) {
+        add(order);
+        orderBook.addOrder(order);
+    }
+
+    @Override
+    public synchronized void modify(final long orderId, final int quantity, final int modifications) {
+        reserve(MODIFY_SIZE);
+        final int start = buffer.position();
+        buffer.put(MODIFY).putLong(orderId).putInt(quantity).putInt(modifications);
+        seal(start);
+        written();
+    }
+
+    @Override
+    public synchronized void remove(final long orderId) {
+        reserve(REMOVE_SIZE);
+        final int start = buffer.position();
+        buffer.put(REMOVE).putLong(orderId);
+        seal(start);
+        written();
+    }
+
+    @Override
+    public synchronized void trade(final long orderId, final long orderAgainstId, final long price, final int quantity, final int quantityLeft,
+                                   final int quantityLeftAgainst) {
+        reserve(TRADE_SIZE);
+        final int start = buffer.position();
+        buffer.put(TRADE)
+              .putLong(orderId)
+              .putLong(orderAgainstId)
+              .putLong(price)
+              .putInt(quantity)
+              .putInt(quantityLeft)
+              .putInt(quantityLeftAgainst);
+        seal(start);
+        written();
+    }
+
+    /**
+     *
+     * Forces the current segment and starts the next one
+     *
+     */
+    @Override
+    public synchronized long roll() {
+        try {
+            closeSegment();
+            open(segmentIndex + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll journal in [" + directory + "]", e);
+        }
+        return segmentIndex;
+    }
+
+    public synchronized void flush() {
+        buffer.force();
+        unflushed = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeSegment();
+    }
+
+    private void reserve(final int size) {
+        if (buffer.remaining() < size) {
+            roll();
+        }
+    }
+
+    /**
+     *
+     * Ends the record started at {@code start} with its checksum
+     *
+     */
+    private void seal(final int start) {
+        buffer.putInt(JournalFormat.checksum(crc, buffer, start));
+    }
+
+    private void written() {
+        switch (flushPolicy) {
+        case COMMAND:
+            buffer.force();
+            break;
+        case BATCH:
+            if (++unflushed >= batchSize) {
+                flush();
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void open(final long index) throws IOException {
+        final Path path = JournalFormat.segment(directory, index);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = index;
+        symbolIds.clear();
+        unflushed = 0;
+        log.debug("Journal segment [{}] opened", path);
+    }
+
+    private void closeSegment() throws IOException {
+        if (!channel.isOpen())
+            return;
+
+        buffer.force();
+        channel.close();
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.iggroup.journal;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+
+/**
+ *
+ * Records every change of resting order state, so books can be rebuilt after a
+ * restart by {@link JournalReplayer}.
+ * <br>
+ * An add is written together with the order resting, see
+ * {@link #add(Order, OrderBook)}, every other record after the book has been
+ * changed. Records carry the resulting state (quantities left, modification
+ * count) rather than deltas, so replaying a record twice gives the same book.
+ * {@link #NONE} records nothing.
+ *
+ */
+public interface OrderJournal {
+
+    OrderJournal NONE = new OrderJournal() {
+
+        @Override
+        public void add(final Order order) {}
+
+        @Override
+        public void modify(final long orderId, final int quantity, final int modifications) {}
+
+        @Override
+        public void remove(final long orderId) {}
+
+        @Override
+        public void trade(final long orderId, final long orderAgainstId, final long price, final int quantity, final int quantityLeft,
+                          final int quantityLeftAgainst) {}
+    };
+
+    /**
+     *
+     * Order has rested in its book, with the quantity left after crossing
+     *
+     */
+    void add(Order order);
+
+    /**
+     *
+     * Journals the add and rests the order in its book as one step against
+     * {@link #roll()}, which then comes before both or after both. A snapshot
+     * walking the books after a roll holds every order added in an earlier
+     * segment. The add goes first, as the order can be traded or removed as soon
+     * as it rests and those records have to follow it.
+     *
+     */
+    default void add(final Order order, final OrderBook orderBook) {
+        add(order);
+        orderBook.addOrder(order);
+    }
+
+    void modify(long orderId, int quantity, int modifications);
+
+    void remove(long orderId);
+
+    /**
+     *
+     * @param orderId the aggressive order, which may never rest
+     * @param orderAgainstId the resting order traded against
+     * @param price in ticks
+     * @param quantity traded
+     */
+    void trade(long orderId, long orderAgainstId, long price, int quantity, int quantityLeft, int quantityLeftAgainst);
+
+    /**
+     *
+     * Starts a new segment, every record written afterwards is in it or a later one
+     *
+     * @return index of the new segment, -1 when nothing is journaled
+     */
+    default long roll() {
+        return -1L;
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.iggroup.loadgen;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import com.iggroup.engine.MatchingEngine;
+import com.iggroup.engine.OrderStorage;
+import com.iggroup.model.OrderPool;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.WaitStrategy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Runs a load scenario against a {@link MatchingEngine} in this JVM and logs the
+ * sustained throughput and latency percentiles, for capacity planning. The
+ * scenario is read from system properties, or the stream is replayed from a
+ * file recorded by an earlier run.
+ *
+ */
+@Slf4j
+public final class LoadApplication {
+
+    private static final String SEED_PROPERTY = "load.seed";
+    private static final String COMMANDS_PROPERTY = "load.commands";
+    private static final String RATE_PROPERTY = "load.rate";
+    private static final String SYMBOLS_PROPERTY = "load.symbols";
+    private static final String PRICE_RANGE_PROPERTY = "load.price.range";
+    private static final String AMEND_RATIO_PROPERTY = "load.amend.ratio";
+    private static final String CANCEL_RATIO_PROPERTY = "load.cancel.ratio";
+    private static final String AGGRESSIVENESS_PROPERTY = "load.aggressiveness";
+    private static final String RECORD_PROPERTY = "load.record";
+    private static final String REPLAY_PROPERTY = "load.replay";
+    private static final String ENGINE_SHARDS_PROPERTY = "engine.shards";
+    private static final String QUEUE_CAPACITY_PROPERTY = "queue.capacity";
+    private static final String QUEUE_WAIT_STRATEGY_PROPERTY = "queue.wait.strategy";
+    private static final String ORDER_STORAGE_PROPERTY = "order.storage";
+
+    private LoadApplication() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadStream stream;
+        String replay = System.getProperty(REPLAY_PROPERTY);
+        if (replay != null) {
+            stream = LoadStream.read(Paths.get(replay));
+            log.info("Replaying [{}] commands from [{}]", stream.size(), replay);
+        } else {
+            LoadScenario scenario = scenario();
+            log.info("Generating {}", scenario);
+            stream = LoadGenerator.generate(scenario, 1L);
+        }
+        String record = System.getProperty(RECORD_PROPERTY);
+        if (record != null) {
+            stream.write(Paths.get(record));
+            log.info("Recorded [{}] commands to [{}]", stream.size(), record);
+        }
+
+        int queueCapacity = Integer.getInteger(QUEUE_CAPACITY_PROPERTY, MatchingEngine.DEFAULT_QUEUE_CAPACITY);
+        String waitStrategy = System.getProperty(QUEUE_WAIT_STRATEGY_PROPERTY, "BLOCKING");
+        MatchingEngine engine = new MatchingEngine(OrderBookProvider.getInstance(),
+                                                   Integer.getInteger(ENGINE_SHARDS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                                                   queueCapacity, () -> WaitStrategy.forName(waitStrategy), new OrderPool(queueCapacity),
+                                                   OrderStorage.valueOf(System.getProperty(ORDER_STORAGE_PROPERTY, OrderStorage.HEAP.name())));
+        engine.start();
+        try {
+            new LoadRunner(engine).run(stream, Long.getLong(RATE_PROPERTY, 0L));
+        } finally {
+            engine.stop();
+        }
+    }
+
+    private static LoadScenario scenario() {
+        LoadScenario defaults = LoadScenario.builder().build();
+        return LoadScenario.builder()
+                           .seed(Long.getLong(SEED_PROPERTY, defaults.getSeed()))
+                           .commands(Integer.getInteger(COMMANDS_PROPERTY, defaults.getCommands()))
+                           .symbols(Integer.getInteger(SYMBOLS_PROPERTY, defaults.getSymbols()))
+                           .priceRange(Integer.getInteger(PRICE_RANGE_PROPERTY, defaults.getPriceRange()))
+                           .amendRatio(doubleProperty(AMEND_RATIO_PROPERTY, defaults.getAmendRatio()))
+                           .cancelRatio(doubleProperty(CANCEL_RATIO_PROPERTY, defaults.getCancelRatio()))
+                           .aggressiveness(doubleProperty(AGGRESSIVENESS_PROPERTY, defaults.getAggressiveness()))
+                           .build();
+    }
+
+    private static double doubleProperty(final String name, final double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+}
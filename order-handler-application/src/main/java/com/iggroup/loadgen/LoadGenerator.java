@@ -0,0 +1,74 @@
+package com.iggroup.loadgen;
+
+import java.util.SplittableRandom;
+
+import com.iggroup.model.Side;
+
+/**
+ *
+ * Generates the commands of a {@link LoadScenario} from its seed only, ids are
+ * numbered from the first id given rather than taken from a shared counter, so
+ * two runs of a scenario send the same commands.
+ * <br>
+ * Amends and cancels pick one of the orders added and not cancelled yet. Whether
+ * it is still resting depends on the matching, so some of them find the order
+ * filled already, as they would in production.
+ *
+ */
+public final class LoadGenerator {
+
+    private LoadGenerator() {}
+
+    public static LoadStream generate(final LoadScenario scenario, final long firstId) {
+        final String[] names = new String[scenario.getSymbols()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = LoadScenario.symbol(i);
+        }
+        final int commands = scenario.getCommands();
+        final LoadStream stream = new LoadStream(names, commands);
+        final SplittableRandom random = new SplittableRandom(scenario.getSeed());
+        // Orders not cancelled yet, cancelled ones are swapped out with the last one
+        final long[] liveIds = new long[commands];
+        final int[] liveSymbols = new int[commands];
+        final long[] livePrices = new long[commands];
+        int live = 0;
+        long nextId = firstId;
+        for (int i = 0; i < commands; i++) {
+            final double type = random.nextDouble();
+            if (live > 0 && type < scenario.getAmendRatio()) {
+                final int order = random.nextInt(live);
+                stream.amend(liveIds[order], liveSymbols[order], livePrices[order], quantity(random, scenario));
+            } else if (live > 0 && type < scenario.getAmendRatio() + scenario.getCancelRatio()) {
+                final int order = random.nextInt(live);
+                stream.cancel(liveIds[order], liveSymbols[order]);
+                live--;
+                liveIds[order] = liveIds[live];
+                liveSymbols[order] = liveSymbols[live];
+                livePrices[order] = livePrices[live];
+            } else {
+                final int symbol = random.nextInt(names.length);
+                final Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                final long price = price(random, scenario, side);
+                stream.add(nextId, symbol, side, price, quantity(random, scenario));
+                liveIds[live] = nextId++;
+                liveSymbols[live] = symbol;
+                livePrices[live] = price;
+                live++;
+            }
+        }
+        return stream;
+    }
+
+    private static long price(final SplittableRandom random, final LoadScenario scenario, final Side side) {
+        final int offset = random.nextInt(scenario.getPriceRange()) + 1;
+        // Aggressive orders cross the mid, passive ones stay on their side of it
+        final boolean aggressive = random.nextDouble() < scenario.getAggressiveness();
+        final boolean above = side == Side.BUY == aggressive;
+        return Math.max(1L, above ? scenario.getMidPrice() + offset : scenario.getMidPrice() - offset);
+    }
+
+    private static int quantity(final SplittableRandom random, final LoadScenario scenario) {
+        return random.nextInt(scenario.getMaxQuantity()) + 1;
+    }
+
+}
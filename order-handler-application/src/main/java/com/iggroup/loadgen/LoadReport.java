@@ -0,0 +1,36 @@
+package com.iggroup.loadgen;
+
+import com.iggroup.metrics.LatencySnapshot;
+
+import lombok.Value;
+
+/**
+ *
+ * Outcome of a {@link LoadRunner} run. Latencies are from the time a command was
+ * due to be sent to the time its shard had executed it.
+ *
+ */
+@Value
+public class LoadReport {
+
+    long commands;
+    /**
+     * Amends and cancels of orders no longer resting, or amended too many times
+     */
+    long rejected;
+    /**
+     * From the first command due to every shard having executed the last one
+     */
+    long elapsedNanos;
+    LatencySnapshot latency;
+
+    /**
+     *
+     * Commands per second sustained over the run
+     *
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : commands * 1_000_000_000.0 / elapsedNanos;
+    }
+
+}
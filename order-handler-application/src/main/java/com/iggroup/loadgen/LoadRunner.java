@@ -0,0 +1,109 @@
+package com.iggroup.loadgen;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.iggroup.engine.MatchingEngine;
+import com.iggroup.engine.MatchingShard;
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.metrics.LatencyHistogram;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderPool;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Sends a {@link LoadStream} to a {@link MatchingEngine} open loop: command i is
+ * due at i / rate seconds from the start whether or not the engine kept up, and
+ * its latency is measured from that due time to the owning shard having run it.
+ * Time spent waiting on a full shard queue therefore counts against the engine
+ * instead of quietly slowing the load down.
+ * <br>
+ * Commands are submitted straight to the owning shard, amends and cancels carry
+ * their symbol so no resting order is looked up on the sending thread.
+ *
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LoadRunner {
+
+    private final MatchingEngine engine;
+
+    /**
+     *
+     * @param ratePerSecond commands per second, 0 sends as fast as the shard
+     *                      queues take them
+     */
+    public LoadReport run(final LoadStream stream, final long ratePerSecond) throws InterruptedException {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder rejected = new LongAdder();
+        final OrderPool orderPool = engine.getOrderPool();
+        final double intervalNanos = ratePerSecond > 0 ? 1_000_000_000.0 / ratePerSecond : 0.0;
+        final int size = stream.size();
+        final long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            final long due = start + (long) (i * intervalNanos);
+            while (System.nanoTime() < due) {
+                Thread.onSpinWait();
+            }
+            final long sent = intervalNanos > 0 ? due : System.nanoTime();
+            final long orderId = stream.orderId(i);
+            final int quantity = stream.quantity(i);
+            final long price = stream.price(i);
+            switch (stream.type(i)) {
+            case LoadStream.ADD:
+                final Order order = orderPool.acquire().init(orderId, stream.symbol(i), stream.side(i), price, quantity);
+                engine.submit(order.getSymbol(), handler -> {
+                    handler.addOrder(order);
+                    latency.record(System.nanoTime() - sent);
+                });
+                break;
+            case LoadStream.AMEND:
+                engine.submit(stream.symbol(i), handler -> {
+                    if (!engine.isResting(orderId)) {
+                        rejected.increment();
+                    } else {
+                        try {
+                            handler.modifyOrder(orderId, quantity, price);
+                        } catch (OrderModificationException e) {
+                            rejected.increment();
+                        }
+                    }
+                    latency.record(System.nanoTime() - sent);
+                });
+                break;
+            default:
+                engine.submit(stream.symbol(i), handler -> {
+                    if (engine.isResting(orderId)) {
+                        handler.removeOrder(orderId);
+                    } else {
+                        rejected.increment();
+                    }
+                    latency.record(System.nanoTime() - sent);
+                });
+            }
+        }
+        awaitShards();
+        final long elapsed = System.nanoTime() - start;
+        final LoadReport report = new LoadReport(size, rejected.sum(), elapsed, latency.total());
+        log.info("Sent [{}] commands in [{}] ms, [{}] per second, [{}] rejected, latency {}", size, elapsed / 1_000_000,
+                 (long) report.getThroughput(), report.getRejected(), report.getLatency());
+        return report;
+    }
+
+    /**
+     *
+     * Returns once every shard has run everything submitted before
+     *
+     */
+    private void awaitShards() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(engine.getShards().size());
+        for (MatchingShard shard : engine.getShards()) {
+            shard.submit(handler -> latch.countDown());
+        }
+        latch.await();
+    }
+
+}
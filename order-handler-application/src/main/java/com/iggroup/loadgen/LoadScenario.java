@@ -0,0 +1,67 @@
+package com.iggroup.loadgen;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ *
+ * What a {@link LoadGenerator} produces. The same scenario always gives the same
+ * stream of commands.
+ * <br>
+ * New orders are priced around the mid of each symbol: passive ones rest from one
+ * tick off the mid up to the price range away, aggressive ones are priced up to
+ * the price range through the mid so they cross whatever rests there.
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public class LoadScenario {
+
+    @Builder.Default
+    long seed = 42L;
+    /**
+     * Commands of every type
+     */
+    @Builder.Default
+    int commands = 1_000_000;
+    @Builder.Default
+    int symbols = 8;
+    /**
+     * In ticks
+     */
+    @Builder.Default
+    long midPrice = 10_000L;
+    /**
+     * Ticks either side of the mid
+     */
+    @Builder.Default
+    int priceRange = 50;
+    @Builder.Default
+    int maxQuantity = 20;
+    /**
+     * Share of the commands amending a live order, the quantity changes and the
+     * price stays
+     */
+    @Builder.Default
+    double amendRatio = 0.1;
+    /**
+     * Share of the commands cancelling a live order
+     */
+    @Builder.Default
+    double cancelRatio = 0.1;
+    /**
+     * Share of the new orders priced through the mid
+     */
+    @Builder.Default
+    double aggressiveness = 0.05;
+
+    /**
+     *
+     * Name of the symbol at an index of the stream
+     *
+     */
+    public static String symbol(final int index) {
+        return "SYM" + index;
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.iggroup.loadgen;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.iggroup.model.Side;
+
+import lombok.Getter;
+
+/**
+ *
+ * Captured stream of commands in parallel primitive arrays, so running it reads
+ * no objects but the symbol names. Written to and read back from a file to replay
+ * the exact same load.
+ * <br>
+ * Amends and cancels refer to orders by id, every id is unique within a stream.
+ *
+ */
+public final class LoadStream {
+
+    public static final byte ADD = 1;
+    public static final byte AMEND = 2;
+    public static final byte CANCEL = 3;
+
+    private static final int MAGIC = 0x4C4F4144;
+    private static final int VERSION = 1;
+    private static final Side[] SIDES = Side.values();
+
+    @Getter
+    private final String[] symbolNames;
+    private final byte[] types;
+    private final int[] symbols;
+    private final long[] orderIds;
+    private final byte[] sides;
+    private final long[] prices;
+    private final int[] quantities;
+    private int size;
+
+    public LoadStream(final String[] symbolNames, final int capacity) {
+        this.symbolNames = symbolNames;
+        this.types = new byte[capacity];
+        this.symbols = new int[capacity];
+        this.orderIds = new long[capacity];
+        this.sides = new byte[capacity];
+        this.prices = new long[capacity];
+        this.quantities = new int[capacity];
+    }
+
+    void add(final long orderId, final int symbol, final Side side, final long price, final int quantity) {
+        append(ADD, orderId, symbol, (byte) side.ordinal(), price, quantity);
+    }
+
+    void amend(final long orderId, final int symbol, final long price, final int quantity) {
+        append(AMEND, orderId, symbol, (byte) 0, price, quantity);
+    }
+
+    void cancel(final long orderId, final int symbol) {
+        append(CANCEL, orderId, symbol, (byte) 0, 0L, 0);
+    }
+
+    private void append(final byte type, final long orderId, final int symbol, final byte side, final long price, final int quantity) {
+        types[size] = type;
+        orderIds[size] = orderId;
+        symbols[size] = symbol;
+        sides[size] = side;
+        prices[size] = price;
+        quantities[size] = quantity;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte type(final int index) {
+        return types[index];
+    }
+
+    public String symbol(final int index) {
+        return symbolNames[symbols[index]];
+    }
+
+    public long orderId(final int index) {
+        return orderIds[index];
+    }
+
+    /**
+     *
+     * Only set for {@link #ADD}
+     *
+     */
+    public Side side(final int index) {
+        return SIDES[sides[index]];
+    }
+
+    public long price(final int index) {
+        return prices[index];
+    }
+
+    public int quantity(final int index) {
+        return quantities[index];
+    }
+
+    public void write(final Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(symbolNames.length);
+            for (String name : symbolNames) {
+                out.writeUTF(name);
+            }
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeByte(types[i]);
+                out.writeInt(symbols[i]);
+                out.writeLong(orderIds[i]);
+                out.writeByte(sides[i]);
+                out.writeLong(prices[i]);
+                out.writeInt(quantities[i]);
+            }
+        }
+    }
+
+    public static LoadStream read(final Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a load stream: " + file);
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported load stream version [" + version + "] in " + file);
+            }
+            final String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+            final int size = in.readInt();
+            final LoadStream stream = new LoadStream(names, size);
+            for (int i = 0; i < size; i++) {
+                final byte type = in.readByte();
+                final int symbol = in.readInt();
+                stream.append(type, in.readLong(), symbol, in.readByte(), in.readLong(), in.readInt());
+            }
+            return stream;
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof LoadStream))
+            return false;
+
+        final LoadStream other = (LoadStream) o;
+        return size == other.size
+               && Arrays.equals(symbolNames, other.symbolNames)
+               && Arrays.equals(types, 0, size, other.types, 0, size)
+               && Arrays.equals(symbols, 0, size, other.symbols, 0, size)
+               && Arrays.equals(orderIds, 0, size, other.orderIds, 0, size)
+               && Arrays.equals(sides, 0, size, other.sides, 0, size)
+               && Arrays.equals(prices, 0, size, other.prices, 0, size)
+               && Arrays.equals(quantities, 0, size, other.quantities, 0, size);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(symbolNames);
+    }
+
+}
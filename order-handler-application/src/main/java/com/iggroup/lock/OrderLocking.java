@@ -0,0 +1,54 @@
+package com.iggroup.lock;
+
+/**
+ *
+ * Locking applied around order state changes by the order handler and trade
+ * consumer.
+ * <br>
+ * {@link #SHARED} is a bounded {@link StripedOrderLocks} table (stripe count from
+ * the orders.lock.stripes property) and is needed whenever several threads can
+ * work on the same order book. {@link #NONE} is used by single-writer
+ * matching shards, where exactly one thread ever mutates a book.
+ *
+ */
+public interface OrderLocking {
+
+    StripedOrderLocks SHARED = new StripedOrderLocks(Integer.getInteger("orders.lock.stripes", StripedOrderLocks.DEFAULT_STRIPES));
+
+    OrderLocking NONE = new OrderLocking() {
+
+        @Override
+        public void lock(final long id) {}
+
+        @Override
+        public boolean tryLock(final long id) {
+            return true;
+        }
+
+        @Override
+        public boolean lockAfter(final long heldId, final long id) {
+            return true;
+        }
+
+        @Override
+        public void unlock(final long id) {}
+    };
+
+    void lock(long id);
+
+    boolean tryLock(long id);
+
+    /**
+     *
+     * Takes the lock of an order while the lock of another one may be held. Only
+     * waits when that cannot form a cycle with another thread doing the same,
+     * otherwise only tries.
+     *
+     * @return false if the lock was not taken, the caller then has to let go of
+     *         the held lock before trying again
+     */
+    boolean lockAfter(long heldId, long id);
+
+    void unlock(long id);
+
+}
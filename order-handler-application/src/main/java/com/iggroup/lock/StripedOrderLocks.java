@@ -0,0 +1,156 @@
+package com.iggroup.lock;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.iggroup.metrics.LatencyHistogram;
+import com.iggroup.metrics.LatencyRecorder;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Fixed number of reentrant lock stripes, an order id always maps to the same
+ * stripe. Memory stays bounded however many orders go through the engine, at the
+ * cost of unrelated orders sharing a stripe now and then.
+ * <br>
+ * Every stripe counts its acquisitions and how many of them had to wait for
+ * another thread, so the stripe count can be sized from real contention. How long
+ * those waited goes to {@link #getLockWaits()}, uncontended acquisitions are not
+ * timed.
+ * <br>
+ * Unrelated orders sharing stripes means two threads each holding one order's
+ * stripe can each want the other's. A second stripe is therefore only waited
+ * for when it comes after the held one, see {@link #lockAfter(long, long)}.
+ *
+ */
+@Slf4j
+public class StripedOrderLocks implements OrderLocking {
+
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final LongAdder totalContentions = new LongAdder();
+    @Getter
+    private final LatencyHistogram lockWaits = new LatencyHistogram();
+
+    public StripedOrderLocks(final int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("At least one lock stripe is required, got [" + stripeCount + "]");
+        }
+        // Rounded up to a power of two so a stripe is picked with a mask
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public void lock(final long id) {
+        log.debug("Acquiring lock for OrderId: {}", id);
+        final Stripe stripe = stripeFor(id);
+        if (!stripe.tryLock()) {
+            final long start = LatencyRecorder.start();
+            stripe.lock();
+            stripe.contentions++;
+            totalContentions.increment();
+            if (LatencyRecorder.ENABLED)
+                lockWaits.record(System.nanoTime() - start);
+        }
+        stripe.acquisitions++;
+    }
+
+    @Override
+    public boolean tryLock(final long id) {
+        log.debug("Trying lock for OrderId: {}", id);
+        final Stripe stripe = stripeFor(id);
+        if (!stripe.tryLock()) {
+            stripe.failedTryLocks.increment();
+            return false;
+        }
+        stripe.acquisitions++;
+        return true;
+    }
+
+    /**
+     *
+     * Waits for a stripe with a higher index than the held one, or the held one
+     * itself as stripes are reentrant, and only tries a lower one, so waiting
+     * threads always go up the stripes and never wait on each other in a cycle
+     *
+     */
+    @Override
+    public boolean lockAfter(final long heldId, final long id) {
+        if (stripeIndex(id) >= stripeIndex(heldId)) {
+            lock(id);
+            return true;
+        }
+        return tryLock(id);
+    }
+
+    @Override
+    public void unlock(final long id) {
+        log.debug("Releasing lock for OrderId: {}", id);
+        stripeFor(id).unlock();
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int stripeIndex(final long id) {
+        final long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    public long getAcquisitions(final int stripe) {
+        return stripes[stripe].acquisitions;
+    }
+
+    /**
+     *
+     * Acquisitions of the stripe that found it held by another thread and had to
+     * wait
+     *
+     */
+    public long getContentions(final int stripe) {
+        return stripes[stripe].contentions;
+    }
+
+    public long getFailedTryLocks(final int stripe) {
+        return stripes[stripe].failedTryLocks.sum();
+    }
+
+    /**
+     *
+     * Kept alongside the stripe counters so reading it does not walk the stripes
+     *
+     */
+    public long getTotalContentions() {
+        return totalContentions.sum();
+    }
+
+    private Stripe stripeFor(final long id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    /**
+     * Counters other than failed try locks are only written by the lock holder
+     */
+    private static final class Stripe extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        private volatile long acquisitions;
+        private volatile long contentions;
+        private final LongAdder failedTryLocks = new LongAdder();
+    }
+
+}
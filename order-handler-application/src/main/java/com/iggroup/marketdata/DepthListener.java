@@ -0,0 +1,20 @@
+package com.iggroup.marketdata;
+
+import com.iggroup.model.Side;
+
+/**
+ *
+ * Receives aggregated price level updates of a book. Called on the thread that
+ * changed the level while it holds that level, so it must be quick and must not
+ * call back into the book.
+ * <br>
+ * Quantity and order count are the level totals after the change, zero for a
+ * removed level, so applying updates in order always gives the current depth.
+ *
+ */
+@FunctionalInterface
+public interface DepthListener {
+
+    void onDepthUpdate(String symbol, Side side, DepthUpdate update, long price, long totalQuantity, int orderCount);
+
+}
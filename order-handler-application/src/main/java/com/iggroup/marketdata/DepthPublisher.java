@@ -0,0 +1,111 @@
+package com.iggroup.marketdata;
+
+import java.util.Arrays;
+
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.Side;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Publishes incremental depth of one {@link OrderBook}: every level change made
+ * through the book is sent to the subscribed {@link DepthListener}s, instead of
+ * subscribers scanning the whole book.
+ * <br>
+ * Updates of a level are published while holding the level, so they reach the
+ * listeners in the order the level changed. Updates of different levels may be
+ * published concurrently in LOCKING mode.
+ *
+ */
+@Slf4j
+public class DepthPublisher {
+
+    private static final DepthListener[] NO_LISTENERS = new DepthListener[0];
+
+    private final OrderBook orderBook;
+    private volatile DepthListener[] listeners = NO_LISTENERS;
+
+    public DepthPublisher(final OrderBook orderBook) {
+        this.orderBook = orderBook;
+    }
+
+    /**
+     *
+     * Sends the current depth to the listener as {@link DepthUpdate#LEVEL_ADDED}
+     * updates, then every change from then on. A level changing meanwhile may be
+     * updated before its snapshot row, the row then holds the newer state.
+     *
+     */
+    public void subscribe(final DepthListener listener) {
+        synchronized (this) {
+            final DepthListener[] current = listeners;
+            final DepthListener[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = listener;
+            listeners = updated;
+        }
+        snapshot(listener);
+    }
+
+    public synchronized void unsubscribe(final DepthListener listener) {
+        final DepthListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                final DepthListener[] updated = new DepthListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    public boolean hasListeners() {
+        return listeners.length > 0;
+    }
+
+    /**
+     *
+     * Sends every non-empty level as {@link DepthUpdate#LEVEL_ADDED}, best price
+     * first, buy side then sell side. Each level is read while holding it, other
+     * levels keep changing meanwhile.
+     *
+     */
+    public void snapshot(final DepthListener listener) {
+        final String symbol = orderBook.getSymbol();
+        for (Side side : Side.values()) {
+            for (PriceLevel level : orderBook.getOrders(side).values()) {
+                // Same monitor as the level mutators
+                synchronized (level) {
+                    if (!level.isEmpty()) {
+                        listener.onDepthUpdate(symbol, side, DepthUpdate.LEVEL_ADDED, level.getPrice(), level.getTotalQuantity(),
+                                               level.getOrderCount());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * Called by the level with itself held, right after the change. A failing
+     * listener is logged, it never fails the change.
+     *
+     */
+    public void publish(final PriceLevel level, final DepthUpdate update) {
+        final DepthListener[] current = listeners;
+        if (current.length == 0)
+            return;
+
+        for (DepthListener listener : current) {
+            try {
+                listener.onDepthUpdate(orderBook.getSymbol(), level.getSide(), update, level.getPrice(), level.getTotalQuantity(),
+                                       level.getOrderCount());
+            } catch (RuntimeException e) {
+                log.error("Depth listener failed on symbol [{}]", orderBook.getSymbol(), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.iggroup.marketdata;
+
+/**
+ *
+ * What happened to a price level, the update always carries the level state
+ * after the change
+ *
+ */
+public enum DepthUpdate {
+    LEVEL_ADDED,
+    LEVEL_CHANGED,
+    LEVEL_REMOVED
+}
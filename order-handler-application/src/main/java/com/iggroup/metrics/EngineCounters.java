@@ -0,0 +1,51 @@
+package com.iggroup.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Running totals of the order operations and fills of every book, incremented
+ * by whichever thread does the work. Rates are derived from them by the
+ * {@link MetricsRegistry}.
+ *
+ */
+public final class EngineCounters {
+
+    private final LongAdder ordersAdded = new LongAdder();
+    private final LongAdder ordersModified = new LongAdder();
+    private final LongAdder ordersRemoved = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+
+    public void added() {
+        ordersAdded.increment();
+    }
+
+    public void modified() {
+        ordersModified.increment();
+    }
+
+    public void removed() {
+        ordersRemoved.increment();
+    }
+
+    public void filled() {
+        fills.increment();
+    }
+
+    public long getOrdersAdded() {
+        return ordersAdded.sum();
+    }
+
+    public long getOrdersModified() {
+        return ordersModified.sum();
+    }
+
+    public long getOrdersRemoved() {
+        return ordersRemoved.sum();
+    }
+
+    public long getFills() {
+        return fills.sum();
+    }
+
+}
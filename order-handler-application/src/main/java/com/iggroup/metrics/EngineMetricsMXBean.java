@@ -0,0 +1,44 @@
+package com.iggroup.metrics;
+
+/**
+ *
+ * Engine wide metrics over JMX. Rates and the busy ratio are over the last
+ * sampling interval of the {@link MetricsRegistry}, every read is O(1).
+ *
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * Orders on the trade queue in LOCKING mode, commands on the shard queues in
+     * SINGLE_WRITER mode
+     */
+    int getTradeQueueDepth();
+
+    long getOrdersAdded();
+
+    long getOrdersModified();
+
+    long getOrdersRemoved();
+
+    long getFills();
+
+    double getOrdersAddedPerSecond();
+
+    double getOrdersModifiedPerSecond();
+
+    double getOrdersRemovedPerSecond();
+
+    double getFillsPerSecond();
+
+    /**
+     * Order lock acquisitions that had to wait for another thread
+     */
+    long getLockContentions();
+
+    /**
+     * Share of the time the consumer threads spent working rather than waiting for
+     * work, from 0 to 1
+     */
+    double getConsumerBusyRatio();
+
+}
@@ -0,0 +1,119 @@
+package com.iggroup.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * Log-linear histogram of nanosecond latencies with fixed memory: every power of
+ * two is split into 16 buckets, so a value is known within 1/16, up to
+ * {@link #HIGHEST_VALUE} where larger values are clamped.
+ * <br>
+ * Recording is an atomic increment of one bucket, never allocates and can be done
+ * by several threads. Readers take either everything recorded so far or what was
+ * recorded since their previous interval.
+ *
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HIGHEST_BIT = 36;
+    /**
+     * About 68 seconds
+     */
+    public static final long HIGHEST_VALUE = (1L << (HIGHEST_BIT + 1)) - 1;
+    private static final int BUCKETS = (HIGHEST_BIT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong intervalMax = new AtomicLong();
+    /**
+     * Counts at the end of the previous interval, reader side only
+     */
+    private long[] previous;
+
+    public void record(final long nanos) {
+        final long value = Math.max(0L, Math.min(nanos, HIGHEST_VALUE));
+        counts.getAndIncrement(index(value));
+        if (value > intervalMax.get()) {
+            intervalMax.accumulateAndGet(value, Math::max);
+        }
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     *
+     * Everything recorded since creation
+     *
+     */
+    public LatencySnapshot total() {
+        final long[] current = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            current[i] = counts.get(i);
+        }
+        return snapshot(current, max.get());
+    }
+
+    /**
+     *
+     * What was recorded since the previous call, the first call covers everything
+     * since creation
+     *
+     */
+    public synchronized LatencySnapshot interval() {
+        if (previous == null) {
+            previous = new long[BUCKETS];
+        }
+        final long[] delta = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = counts.get(i);
+            delta[i] = count - previous[i];
+            previous[i] = count;
+        }
+        return snapshot(delta, intervalMax.getAndSet(0L));
+    }
+
+    private static LatencySnapshot snapshot(final long[] buckets, final long max) {
+        long count = 0;
+        for (long bucket : buckets) {
+            count += bucket;
+        }
+        if (count == 0)
+            return LatencySnapshot.EMPTY;
+
+        return new LatencySnapshot(count, percentile(buckets, count, 0.5, max), percentile(buckets, count, 0.99, max),
+                                   percentile(buckets, count, 0.999, max), max);
+    }
+
+    private static long percentile(final long[] buckets, final long count, final double quantile, final long max) {
+        final long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank)
+                return Math.min(highestValueOf(i), max);
+        }
+        return max;
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long highestValueOf(final int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.iggroup.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ *
+ * One {@link LatencyHistogram} per {@link LatencyStage}, kept by each book so
+ * latencies read per symbol.
+ * <br>
+ * On unless the latency.metrics property is false, which turns every recording
+ * site into a constant branch.
+ *
+ */
+public final class LatencyRecorder {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("latency.metrics", "true"));
+    private static final LatencyStage[] STAGES = LatencyStage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    public LatencyRecorder() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     *
+     * Start time for {@link #record(LatencyStage, long)}, 0 when disabled
+     *
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     *
+     * @param startNanos from {@link System#nanoTime()}
+     */
+    public void record(final LatencyStage stage, final long startNanos) {
+        if (ENABLED) {
+            histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public LatencyHistogram get(final LatencyStage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     *
+     * Interval of every stage, see {@link LatencyHistogram#interval()}
+     *
+     */
+    public Map<LatencyStage, LatencySnapshot> interval() {
+        final Map<LatencyStage, LatencySnapshot> snapshots = new EnumMap<>(LatencyStage.class);
+        for (LatencyStage stage : STAGES) {
+            snapshots.put(stage, get(stage).interval());
+        }
+        return snapshots;
+    }
+
+}
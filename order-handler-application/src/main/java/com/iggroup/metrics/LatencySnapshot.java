@@ -0,0 +1,23 @@
+package com.iggroup.metrics;
+
+import lombok.Value;
+
+/**
+ *
+ * Percentiles of the values recorded by a {@link LatencyHistogram}, in nanos.
+ * Percentiles are the upper bound of their bucket, at most 1/16 above the
+ * value, the max is exact.
+ *
+ */
+@Value
+public class LatencySnapshot {
+
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(0L, 0L, 0L, 0L, 0L);
+
+    long count;
+    long p50;
+    long p99;
+    long p999;
+    long max;
+
+}
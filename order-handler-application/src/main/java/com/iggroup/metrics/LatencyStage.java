@@ -0,0 +1,24 @@
+package com.iggroup.metrics;
+
+/**
+ *
+ * Steps of the order lifecycle timed by the {@link LatencyRecorder} of each
+ * book
+ *
+ */
+public enum LatencyStage {
+    /**
+     * From the producer creating the order to the handler adding it
+     */
+    ORDER_ENTRY,
+    /**
+     * From an order being queued to its matching thread taking it, the trade
+     * queue in LOCKING mode and the shard queue in SINGLE_WRITER mode
+     */
+    QUEUE_WAIT,
+    /**
+     * Inside the matcher, crossing an incoming order or re-checking a resting one
+     */
+    MATCHING,
+    GET_PRICE
+}
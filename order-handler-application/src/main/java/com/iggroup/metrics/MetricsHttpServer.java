@@ -0,0 +1,66 @@
+package com.iggroup.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Serves {@link MetricsRegistry#scrape()} as plain text on GET /metrics, bound to
+ * the loopback address only
+ *
+ */
+@Slf4j
+public class MetricsHttpServer {
+
+    public static final String PATH = "/metrics";
+
+    private final HttpServer server;
+
+    /**
+     *
+     * @param port 0 picks a free port, see {@link #getPort()}
+     */
+    public MetricsHttpServer(final MetricsRegistry registry, final int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, exchange -> handle(registry, exchange));
+    }
+
+    public void start() {
+        server.start();
+        log.info("Serving metrics on http://{}:{}{}", server.getAddress().getHostString(), getPort(), PATH);
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private static void handle(final MetricsRegistry registry, final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+package com.iggroup.metrics;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.iggroup.lock.StripedOrderLocks;
+import com.iggroup.model.OrderBook;
+import com.iggroup.provider.OrderBookProvider;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Engine metrics read from counters kept by the books, queues, locks and
+ * consumers as they work, so no read walks a book or a queue. Rates and the
+ * consumer busy ratio are worked out once per interval by {@link #sample()}.
+ * <br>
+ * Once started, the engine is registered over JMX as
+ * {@code com.iggroup.orderhandler:type=Engine} and every book as
+ * {@code com.iggroup.orderhandler:type=OrderBook,symbol=<symbol>}, new books
+ * being picked up and delisted ones dropped at the next sample. {@link #scrape()} gives the same metrics as
+ * plain text.
+ *
+ */
+@Slf4j
+public class MetricsRegistry implements EngineMetricsMXBean {
+
+    public static final String DOMAIN = "com.iggroup.orderhandler";
+
+    private final OrderBookProvider provider;
+    private final IntSupplier queueDepth;
+    private final StripedOrderLocks locks;
+    private final List<ThreadUtilisation> consumers;
+    /**
+     * Metrics of every book seen, by symbol
+     */
+    private final Map<String, OrderBookMetrics> books = new ConcurrentSkipListMap<>();
+    private final Rate ordersAdded = new Rate();
+    private final Rate ordersModified = new Rate();
+    private final Rate ordersRemoved = new Rate();
+    private final Rate fills = new Rate();
+
+    @Getter
+    private volatile double consumerBusyRatio;
+    private long lastSampleTime = System.nanoTime();
+    private long lastBusyNanos;
+    private long lastIdleNanos;
+    private MBeanServer server;
+    private ScheduledExecutorService sampler;
+
+    /**
+     *
+     * @param queueDepth O(1) depth of the queue(s) feeding the matching threads
+     * @param consumers  utilisation of every matching thread
+     */
+    public MetricsRegistry(final OrderBookProvider provider, final IntSupplier queueDepth, final StripedOrderLocks locks,
+                           final List<ThreadUtilisation> consumers) {
+        this.provider = provider;
+        this.queueDepth = queueDepth;
+        this.locks = locks;
+        this.consumers = consumers;
+    }
+
+    /**
+     *
+     * Registers the engine with the MBean server and samples every interval
+     *
+     */
+    public synchronized void start(final MBeanServer mbeanServer, final long intervalMillis) throws JMException {
+        if (sampler != null)
+            return;
+
+        server = mbeanServer;
+        server.registerMBean(this, new ObjectName(DOMAIN + ":type=Engine"));
+        sample();
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            try {
+                sample();
+            } catch (RuntimeException e) {
+                log.error("Metrics sampling failed", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (sampler == null)
+            return;
+
+        sampler.shutdownNow();
+        sampler = null;
+        for (OrderBookMetrics book : books.values()) {
+            unregister(book);
+        }
+        unregister(DOMAIN + ":type=Engine");
+        server = null;
+    }
+
+    /**
+     *
+     * Works out the rates and busy ratio since the previous sample, and picks up
+     * books created and delisted since
+     *
+     */
+    public synchronized void sample() {
+        final long now = System.nanoTime();
+        final double seconds = (now - lastSampleTime) / 1_000_000_000d;
+        lastSampleTime = now;
+        final EngineCounters counters = provider.getCounters();
+        ordersAdded.sample(counters.getOrdersAdded(), seconds);
+        ordersModified.sample(counters.getOrdersModified(), seconds);
+        ordersRemoved.sample(counters.getOrdersRemoved(), seconds);
+        fills.sample(counters.getFills(), seconds);
+
+        long busyNanos = 0;
+        long idleNanos = 0;
+        for (ThreadUtilisation consumer : consumers) {
+            busyNanos += consumer.getBusyNanos();
+            idleNanos += consumer.getIdleNanos();
+        }
+        final long busy = busyNanos - lastBusyNanos;
+        final long total = busy + idleNanos - lastIdleNanos;
+        consumerBusyRatio = total <= 0 ? 0d : (double) busy / total;
+        lastBusyNanos = busyNanos;
+        lastIdleNanos = idleNanos;
+
+        for (OrderBook orderBook : provider.getOrderBooks().values()) {
+            final OrderBookMetrics known = books.get(orderBook.getSymbol());
+            if (known == null || known.getOrderBook() != orderBook) {
+                if (known != null)
+                    unregister(known);
+                final OrderBookMetrics book = new OrderBookMetrics(orderBook);
+                books.put(orderBook.getSymbol(), book);
+                register(book);
+            }
+        }
+        for (Iterator<OrderBookMetrics> it = books.values().iterator(); it.hasNext();) {
+            final OrderBookMetrics book = it.next();
+            if (provider.getOrderBooks().get(book.getSymbol()) != book.getOrderBook()) {
+                it.remove();
+                unregister(book);
+            }
+        }
+    }
+
+    /**
+     *
+     * Every metric as a "name{labels} value" line
+     *
+     */
+    public String scrape() {
+        final StringBuilder text = new StringBuilder(256 + books.size() * 256);
+        line(text, "order_handler_trade_queue_depth", getTradeQueueDepth());
+        line(text, "order_handler_orders_added_total", getOrdersAdded());
+        line(text, "order_handler_orders_modified_total", getOrdersModified());
+        line(text, "order_handler_orders_removed_total", getOrdersRemoved());
+        line(text, "order_handler_fills_total", getFills());
+        line(text, "order_handler_orders_added_per_second", getOrdersAddedPerSecond());
+        line(text, "order_handler_orders_modified_per_second", getOrdersModifiedPerSecond());
+        line(text, "order_handler_orders_removed_per_second", getOrdersRemovedPerSecond());
+        line(text, "order_handler_fills_per_second", getFillsPerSecond());
+        line(text, "order_handler_lock_contentions_total", getLockContentions());
+        line(text, "order_handler_consumer_busy_ratio", getConsumerBusyRatio());
+        for (OrderBookMetrics book : books.values()) {
+            line(text, "order_handler_resting_orders", book.getSymbol(), "BUY", book.getBuyOrders());
+            line(text, "order_handler_resting_orders", book.getSymbol(), "SELL", book.getSellOrders());
+            line(text, "order_handler_price_levels", book.getSymbol(), "BUY", book.getBuyLevels());
+            line(text, "order_handler_price_levels", book.getSymbol(), "SELL", book.getSellLevels());
+        }
+        return text.toString();
+    }
+
+    private static void line(final StringBuilder text, final String name, final Object value) {
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void line(final StringBuilder text, final String name, final String symbol, final String side, final long value) {
+        text.append(name)
+            .append("{symbol=\"")
+            .append(symbol.replace("\\", "\\\\").replace("\"", "\\\""))
+            .append("\",side=\"")
+            .append(side)
+            .append("\"} ")
+            .append(value)
+            .append('\n');
+    }
+
+    private void register(final OrderBookMetrics book) {
+        if (server == null)
+            return;
+
+        try {
+            server.registerMBean(book, objectName(book));
+        } catch (JMException e) {
+            log.warn("Could not register metrics of OrderBook [{}]", book.getSymbol(), e);
+        }
+    }
+
+    private void unregister(final OrderBookMetrics book) {
+        try {
+            unregister(objectName(book).getCanonicalName());
+        } catch (JMException e) {
+            log.warn("Could not unregister metrics of OrderBook [{}]", book.getSymbol(), e);
+        }
+    }
+
+    private void unregister(final String name) {
+        if (server == null)
+            return;
+
+        try {
+            final ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.warn("Could not unregister [{}]", name, e);
+        }
+    }
+
+    private static ObjectName objectName(final OrderBookMetrics book) throws JMException {
+        return new ObjectName(DOMAIN + ":type=OrderBook,symbol=" + ObjectName.quote(book.getSymbol()));
+    }
+
+    @Override
+    public int getTradeQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public long getOrdersAdded() {
+        return provider.getCounters().getOrdersAdded();
+    }
+
+    @Override
+    public long getOrdersModified() {
+        return provider.getCounters().getOrdersModified();
+    }
+
+    @Override
+    public long getOrdersRemoved() {
+        return provider.getCounters().getOrdersRemoved();
+    }
+
+    @Override
+    public long getFills() {
+        return provider.getCounters().getFills();
+    }
+
+    @Override
+    public double getOrdersAddedPerSecond() {
+        return ordersAdded.perSecond;
+    }
+
+    @Override
+    public double getOrdersModifiedPerSecond() {
+        return ordersModified.perSecond;
+    }
+
+    @Override
+    public double getOrdersRemovedPerSecond() {
+        return ordersRemoved.perSecond;
+    }
+
+    @Override
+    public double getFillsPerSecond() {
+        return fills.perSecond;
+    }
+
+    @Override
+    public long getLockContentions() {
+        return locks.getTotalContentions();
+    }
+
+    /**
+     * Rate of a running total over the last sampling interval
+     */
+    private static final class Rate {
+
+        private long last;
+        private volatile double perSecond;
+
+        private void sample(final long value, final double seconds) {
+            if (seconds > 0)
+                perSecond = (value - last) / seconds;
+            last = value;
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.iggroup.metrics;
+
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class OrderBookMetrics implements OrderBookMetricsMXBean {
+
+    @Getter(AccessLevel.PACKAGE)
+    private final OrderBook orderBook;
+
+    @Override
+    public String getSymbol() {
+        return orderBook.getSymbol();
+    }
+
+    @Override
+    public long getBuyOrders() {
+        return orderBook.getOrderCount(Side.BUY);
+    }
+
+    @Override
+    public long getSellOrders() {
+        return orderBook.getOrderCount(Side.SELL);
+    }
+
+    @Override
+    public long getBuyLevels() {
+        return orderBook.getLevelCount(Side.BUY);
+    }
+
+    @Override
+    public long getSellLevels() {
+        return orderBook.getLevelCount(Side.SELL);
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.iggroup.metrics;
+
+/**
+ *
+ * Resting orders and price levels of one book over JMX, read from counters the
+ * book keeps rather than by walking it
+ *
+ */
+public interface OrderBookMetricsMXBean {
+
+    String getSymbol();
+
+    long getBuyOrders();
+
+    long getSellOrders();
+
+    long getBuyLevels();
+
+    long getSellLevels();
+
+}
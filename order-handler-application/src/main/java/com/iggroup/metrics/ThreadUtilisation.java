@@ -0,0 +1,31 @@
+package com.iggroup.metrics;
+
+/**
+ *
+ * Time a consumer thread spent working against waiting for work. Written only
+ * by the thread it measures, a wait is accounted once it ends.
+ *
+ */
+public final class ThreadUtilisation {
+
+    // Volatile for the readers, the increments are not atomic as there is one writer
+    private volatile long busyNanos;
+    private volatile long idleNanos;
+
+    public void busy(final long nanos) {
+        busyNanos += nanos;
+    }
+
+    public void idle(final long nanos) {
+        idleNanos += nanos;
+    }
+
+    public long getBusyNanos() {
+        return busyNanos;
+    }
+
+    public long getIdleNanos() {
+        return idleNanos;
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.iggroup.model;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *
+ * Cumulative quantity and notional of one side of a book, as two Fenwick trees
+ * over tick positions from the best price outwards. Prefix sums, and the price
+ * at which a quantity is filled, take O(log n) whatever the number of levels
+ * or orders.
+ * <br>
+ * The trees cover a window of prices that grows, re-centred, when a price falls
+ * outside of it. A window wider than {@link #MAX_CAPACITY} ticks disables the
+ * aggregate for good, the book then walks its levels instead.
+ * <br>
+ * Writers are serialised, readers use an optimistic read and only take the
+ * read lock when a write got in the way.
+ *
+ */
+final class DepthAggregate {
+
+    static final int INITIAL_CAPACITY = 1 << 10;
+    static final int MAX_CAPACITY = 1 << 22;
+    static final long DISABLED = -1L;
+
+    /**
+     * +1 when the best price is the lowest (asks), -1 when it is the highest
+     */
+    private final int direction;
+    private final StampedLock lock = new StampedLock();
+    private long origin;
+    private int capacity;
+    /**
+     * 1-based Fenwick trees, null until the first change
+     */
+    private long[] quantities;
+    private long[] notionals;
+    private boolean disabled;
+
+    DepthAggregate(final Side side) {
+        this.direction = side == Side.BUY ? -1 : 1;
+    }
+
+    void add(final long price, final long quantityDelta) {
+        if (quantityDelta == 0)
+            return;
+
+        final long stamp = lock.writeLock();
+        try {
+            if (disabled)
+                return;
+
+            if (quantities == null) {
+                capacity = INITIAL_CAPACITY;
+                origin = price - direction * (long) (capacity / 2);
+                quantities = new long[capacity + 1];
+                notionals = new long[capacity + 1];
+            }
+            long position = direction * (price - origin);
+            if (position < 0 || position >= capacity) {
+                if (!resize(position)) {
+                    disabled = true;
+                    quantities = null;
+                    notionals = null;
+                    return;
+                }
+                position = direction * (price - origin);
+            }
+            final long notionalDelta = quantityDelta * price;
+            for (int i = (int) position + 1; i <= capacity; i += i & -i) {
+                quantities[i] += quantityDelta;
+                notionals[i] += notionalDelta;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     *
+     * Notional in ticks of the best quantity, of everything on the side when
+     * there is less
+     *
+     * @return {@link #DISABLED} if the side has to be walked instead
+     */
+    long notionalToFill(final long quantity) {
+        long stamp = lock.tryOptimisticRead();
+        long notional = disabled ? DISABLED : search(quantity);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                notional = disabled ? DISABLED : search(quantity);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return notional;
+    }
+
+    /**
+     *
+     * Fenwick descent to the last position whose prefix quantity is still under
+     * the quantity, the next position fills the rest
+     *
+     */
+    private long search(final long quantity) {
+        final long[] quantityTree = quantities;
+        final long[] notionalTree = notionals;
+        final int size = capacity;
+        if (quantityTree == null || notionalTree == null || quantityTree.length != size + 1 || notionalTree.length != size + 1)
+            return 0L;
+
+        int index = 0;
+        long filled = 0;
+        long notional = 0;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            final int next = index + step;
+            if (next <= size && filled + quantityTree[next] < quantity) {
+                index = next;
+                filled += quantityTree[next];
+                notional += notionalTree[next];
+            }
+        }
+        if (index < size) {
+            // 0-based position of the level completing the quantity
+            notional += (quantity - filled) * (origin + direction * (long) index);
+        }
+        return notional;
+    }
+
+    /**
+     *
+     * Doubles the window past the current one and the new position, keeping the
+     * spare room on both ends
+     *
+     * @return false if the window would be too wide
+     */
+    private boolean resize(final long position) {
+        final long low = Math.min(0L, position);
+        final long high = Math.max(capacity - 1L, position);
+        final long span = high - low + 1;
+        if (span > MAX_CAPACITY / 2)
+            return false;
+
+        final int newCapacity = Integer.highestOneBit((int) span) << 1;
+        final long newOrigin = origin + direction * (low - (newCapacity - span) / 2);
+        final long[] newQuantities = new long[newCapacity + 1];
+        final long[] newNotionals = new long[newCapacity + 1];
+        toPoints(quantities);
+        toPoints(notionals);
+        for (int i = 1; i <= capacity; i++) {
+            if (quantities[i] != 0 || notionals[i] != 0) {
+                final long price = origin + direction * (long) (i - 1);
+                final int newIndex = (int) (direction * (price - newOrigin)) + 1;
+                newQuantities[newIndex] = quantities[i];
+                newNotionals[newIndex] = notionals[i];
+            }
+        }
+        toTree(newQuantities);
+        toTree(newNotionals);
+        origin = newOrigin;
+        capacity = newCapacity;
+        quantities = newQuantities;
+        notionals = newNotionals;
+        return true;
+    }
+
+    /**
+     *
+     * In place, Fenwick tree back to the value at each position
+     *
+     */
+    private static void toPoints(final long[] tree) {
+        final int size = tree.length - 1;
+        for (int i = size; i >= 1; i--) {
+            final int parent = i + (i & -i);
+            if (parent <= size) {
+                tree[parent] -= tree[i];
+            }
+        }
+    }
+
+    /**
+     *
+     * In place, O(n) Fenwick construction from the value at each position
+     *
+     */
+    private static void toTree(final long[] points) {
+        final int size = points.length - 1;
+        for (int i = 1; i <= size; i++) {
+            final int parent = i + (i & -i);
+            if (parent <= size) {
+                points[parent] += points[i];
+            }
+        }
+    }
+
+}
@@ -1,17 +1,25 @@
 package com.iggroup.model;
 
-import java.time.Instant;
-import java.util.Comparator;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import com.iggroup.model.concurrent.AtomicBigDecimal;
-
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
+/**
+ *
+ * Mutable order with primitive fields only, so it can be recycled through an
+ * {@link OrderPool} once it has left its book.
+ * <br>
+ * Quantity is only changed by the thread owning the order (or holding its lock),
+ * it is volatile for readers such as {@link PriceLevel} totals. Id and symbol are
+ * volatile so a reader can tell whether an order was recycled under it, see
+ * {@link #init(long, String, Side, long, int)}.
+ *
+ */
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @NoArgsConstructor
@@ -20,21 +28,105 @@ import lombok.NoArgsConstructor;
 public class Order implements Comparable<Order> {
 
     @EqualsAndHashCode.Include
-    private Long id;
-    private AtomicInteger quantity;
-    private AtomicBigDecimal price;
+    private volatile long id;
+    private volatile int quantity;
+    /**
+     * Price in ticks of the symbol's {@link TickSize}
+     */
+    private long price;
     private Side side;
-    private String symbol;
+    private volatile String symbol;
+    /**
+     * Dense id of the symbol in the provider, set when the symbol is admitted or
+     * the order is added to a book, 0 until then
+     */
+    private int symbolId;
+    /**
+     * {@link System#nanoTime()} at arrival, for latencies only
+     */
     @Builder.Default
-    private Instant arrivalDateTime = Instant.now();
-    @Builder.Default
-    private AtomicInteger modification = new AtomicInteger();
+    private long arrivalTime = System.nanoTime();
+    /**
+     * Time priority within the book, stamped by {@link OrderBook#stamp(Order)}
+     * when the order is accepted and again when it loses its priority. 0 until then.
+     */
+    private long sequence;
+    private int modifications;
+    /**
+     * {@link System#nanoTime()} when put on a matching queue, 0 once taken off it
+     */
+    @ToString.Exclude
+    private long queuedTime;
+    /**
+     * Gateway session that entered the order, 0 when it came from anywhere else
+     */
+    private int sessionId;
+
+    /**
+     * Links of the {@link PriceLevel} the order is resting in, null when not in a book
+     */
+    @ToString.Exclude
+    @Setter(AccessLevel.PACKAGE)
+    private volatile PriceLevel level;
+    @ToString.Exclude
+    @Setter(AccessLevel.PACKAGE)
+    private volatile Order prev;
+    @ToString.Exclude
+    @Setter(AccessLevel.PACKAGE)
+    private volatile Order next;
+
+    /**
+     *
+     * (Re)initialises a new or recycled order. The id is written last, so a reader
+     * that reads the symbol and then still sees the id it looked up has read the
+     * symbol of that order.
+     *
+     */
+    public Order init(final long id, final String symbol, final Side side, final long price, final int quantity) {
+        this.symbol = symbol;
+        this.symbolId = 0;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.modifications = 0;
+        this.queuedTime = 0L;
+        this.sessionId = 0;
+        this.sequence = 0L;
+        this.arrivalTime = System.nanoTime();
+        this.id = id;
+        return this;
+    }
+
+    /**
+     *
+     * Clears the order before it goes back to a pool, the id first so readers
+     * holding a stale reference notice the order is gone
+     *
+     */
+    void reset() {
+        this.id = 0L;
+        this.symbol = null;
+        this.symbolId = 0;
+        this.side = null;
+        this.price = 0L;
+        this.quantity = 0;
+        this.modifications = 0;
+        this.arrivalTime = 0L;
+        this.sequence = 0L;
+        this.queuedTime = 0L;
+        this.sessionId = 0;
+    }
 
+    /**
+     *
+     * Time priority of orders of the same book, by sequence. Ids only separate
+     * orders that were never stamped.
+     *
+     */
     @Override
     public int compareTo(Order o) {
-        return Comparator.comparing(Order::getArrivalDateTime)
-                         .thenComparing(Order::getId)
-                         .compare(this, o);
+        final int bySequence = Long.compare(sequence, o.sequence);
+        return bySequence != 0 ? bySequence : Long.compare(id, o.id);
     }
 
 }
@@ -0,0 +1,17 @@
+package com.iggroup.model;
+
+import lombok.Value;
+
+/**
+ *
+ * New quantity and price, in ticks, for the resting order with this id
+ *
+ */
+@Value(staticConstructor = "of")
+public class OrderAmendment {
+
+    long orderId;
+    int quantity;
+    long price;
+
+}
@@ -1,24 +1,117 @@
 package com.iggroup.model;
 
-import java.math.BigDecimal;
-import java.util.NavigableSet;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import com.iggroup.exception.UnhandledSideException;
+import com.iggroup.marketdata.DepthPublisher;
+import com.iggroup.marketdata.DepthUpdate;
+import com.iggroup.metrics.LatencyRecorder;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 @Getter
-@RequiredArgsConstructor
 public class OrderBook {
 
+    private static final int MAX_READ_SPINS = 100;
+
+    /**
+     * Dense id of the symbol in its provider, 0 for a book outside of a provider
+     */
+    private final int symbolId;
     private final String symbol;
-    private final ConcurrentNavigableMap<BigDecimal, NavigableSet<Order>> buyOrders = new ConcurrentSkipListMap<>((p1, p2) -> p2.compareTo(p1));
-    private final ConcurrentNavigableMap<BigDecimal, NavigableSet<Order>> sellOrders = new ConcurrentSkipListMap<>((p1, p2) -> p1.compareTo(p2));
+    private final TickSize tickSize;
+    /**
+     * Shared by every book of the provider as order ids are unique across symbols
+     */
+    @Getter(AccessLevel.NONE)
+    private final OrderIndex orderIndex;
+    /**
+     * Prices the levels are indexed by tick for, null to keep every level in a skip list
+     */
+    private final PriceBand priceBand;
+    /**
+     * Keyed by price in ticks
+     */
+    private final PriceLevels buyOrders;
+    private final PriceLevels sellOrders;
+    /**
+     * Level deltas for market data, nothing is published until subscribed to
+     */
+    private final DepthPublisher depthPublisher = new DepthPublisher(this);
+    /**
+     * Order lifecycle latencies of the symbol
+     */
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    @Getter(AccessLevel.NONE)
+    private final DepthAggregate buyDepth = new DepthAggregate(Side.BUY);
+    @Getter(AccessLevel.NONE)
+    private final DepthAggregate sellDepth = new DepthAggregate(Side.SELL);
+    /**
+     * Resting orders and levels per side, kept as they change so reading them
+     * never walks the book
+     */
+    @Getter(AccessLevel.NONE)
+    private final LongAdder buyOrderCount = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder sellOrderCount = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder buyLevelCount = new LongAdder();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder sellLevelCount = new LongAdder();
+    /**
+     * Replaced as a whole by the writers, see {@link #getTopOfBook()}
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<TopOfBook> topOfBook = new AtomicReference<>(TopOfBook.EMPTY);
+    /**
+     * Last sequence stamped on an order of the book
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Seqlock of the book, see {@link #beginChange()} and {@link #beginRead()}.
+     * Writers are counted rather than flagged by an odd version, as several
+     * threads change a book at once in LOCKING mode.
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger writers = new AtomicInteger();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong version = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final Function<Long, PriceLevel> buyLevels = price -> new PriceLevel(price, Side.BUY, this);
+    @Getter(AccessLevel.NONE)
+    private final Function<Long, PriceLevel> sellLevels = price -> new PriceLevel(price, Side.SELL, this);
+
+    public OrderBook(final String symbol, final TickSize tickSize, final OrderIndex orderIndex) {
+        this(symbol, tickSize, orderIndex, null);
+    }
+
+    public OrderBook(final String symbol, final TickSize tickSize, final OrderIndex orderIndex, final PriceBand priceBand) {
+        this(0, symbol, tickSize, orderIndex, priceBand);
+    }
+
+    /**
+     *
+     * @param priceBand with a band each side is a {@link PriceLadder}, null for
+     *                  skip lists
+     */
+    public OrderBook(final int symbolId, final String symbol, final TickSize tickSize, final OrderIndex orderIndex, final PriceBand priceBand) {
+        this.symbolId = symbolId;
+        this.symbol = symbol;
+        this.tickSize = tickSize;
+        this.orderIndex = orderIndex;
+        this.priceBand = priceBand;
+        this.buyOrders = priceBand == null ? new SkipListPriceLevels(Side.BUY) : new PriceLadder(Side.BUY, priceBand);
+        this.sellOrders = priceBand == null ? new SkipListPriceLevels(Side.SELL) : new PriceLadder(Side.SELL, priceBand);
+    }
 
-    public ConcurrentNavigableMap<BigDecimal, NavigableSet<Order>> getOrders(final Side side) {
+    public PriceLevels getOrders(final Side side) {
         switch (side) {
         case BUY:
             return buyOrders;
@@ -28,4 +121,267 @@ public class OrderBook {
             throw new UnhandledSideException("Unhandled side type when getting orders");
         }
     }
+
+    /**
+     *
+     * Gives the order time priority behind every order of the book stamped before
+     * it. Done by the handler when it accepts an order, before crossing it, and
+     * when a new price makes it lose its priority.
+     *
+     */
+    public void stamp(final Order order) {
+        order.setSequence(sequence.incrementAndGet());
+    }
+
+    /**
+     *
+     * Indexes the order and appends it to the tail of its price level, creating
+     * the level if needed. An order that was not accepted by a handler (replayed,
+     * loaded from a snapshot) is stamped here, in the order it is added.
+     *
+     */
+    public void addOrder(final Order order) {
+        if (orderIndex.putIfAbsent(order) != null) {
+            throw new IllegalArgumentException("OrderId [" + order.getId() + "] is already resting in a book");
+        }
+        if (order.getSequence() == 0L) {
+            stamp(order);
+        }
+        order.setSymbolId(symbolId);
+        final Function<Long, PriceLevel> levels = order.getSide() == Side.BUY ? buyLevels : sellLevels;
+        beginChange();
+        try {
+            getOrders(order.getSide()).getOrCreate(order.getPrice(), levels).append(order);
+            (order.getSide() == Side.BUY ? buyOrderCount : sellOrderCount).increment();
+            topChanged(order.getSide(), order.getPrice());
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     *
+     * Unlinks the order from its price level, and the level from the book when it
+     * was the last order
+     *
+     * @return false if the order was not resting in the book
+     */
+    public boolean removeOrder(final Order order) {
+        final PriceLevel level = order.getLevel();
+        if (level == null)
+            return false;
+
+        beginChange();
+        try {
+            if (!level.remove(order))
+                return false;
+
+            orderIndex.remove(order.getId(), order);
+            (order.getSide() == Side.BUY ? buyOrderCount : sellOrderCount).decrement();
+            if (level.isEmpty()) {
+                getOrders(order.getSide()).removeLevel(level);
+            }
+            topChanged(order.getSide(), level.getPrice());
+            return true;
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     *
+     * Quantity of a resting order must be changed through here so its level total
+     * stays right
+     *
+     */
+    public void updateQuantity(final Order order, final int quantity) {
+        final PriceLevel level = order.getLevel();
+        if (level == null) {
+            order.setQuantity(quantity);
+        } else {
+            beginChange();
+            try {
+                level.updateQuantity(order, quantity);
+                topChanged(order.getSide(), level.getPrice());
+            } finally {
+                endChange();
+            }
+        }
+    }
+
+    /**
+     *
+     * Starts a change readers must not see half done, such as both sides of a
+     * trade and the removal of the filled orders. Changes nest and every method
+     * changing the book is one, so a caller only wraps a sequence of them. Two
+     * atomic increments, writers never wait on readers.
+     *
+     */
+    public void beginChange() {
+        writers.incrementAndGet();
+    }
+
+    /**
+     *
+     * Ends a change started with {@link #beginChange()}, in a finally block
+     *
+     */
+    public void endChange() {
+        // Bumped before the writer leaves, so a reader that saw no writer still fails validation
+        version.incrementAndGet();
+        writers.decrementAndGet();
+    }
+
+    /**
+     *
+     * Stamp to validate a read of the book with, taken once no change is in
+     * progress. The reader spins rather than locking, then yields if the writers
+     * keep going. Not to be called while changing the book, such as from a depth
+     * listener, which would spin on its own change.
+     * <pre>
+     * do {
+     *     stamp = orderBook.beginRead();
+     *     ... read the levels, counts and totals ...
+     * } while (!orderBook.validate(stamp));
+     * </pre>
+     *
+     */
+    public long beginRead() {
+        for (int spins = 0;; spins++) {
+            final long stamp = version.get();
+            if (writers.get() == 0)
+                return stamp;
+
+            if (spins < MAX_READ_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     *
+     * @return true if no change overlapped the reads since the stamp was taken,
+     *         which then saw the book as it was between two changes
+     */
+    public boolean validate(final long stamp) {
+        // The reads above may not move below the checks
+        VarHandle.acquireFence();
+        return writers.get() == 0 && version.get() == stamp;
+    }
+
+    /**
+     *
+     * Notional in ticks of the best quantity of the side, of the whole side when
+     * it holds less. O(log n) through the depth aggregate, which keeps cumulative
+     * quantity and notional over the price levels, no order is visited.
+     * <br>
+     * Read again if a change overlapped it, so it is worked out from a book that
+     * existed between two changes rather than from the middle of a trade.
+     *
+     */
+    public long getNotionalToFill(final Side side, final long quantity) {
+        long stamp;
+        long notional;
+        do {
+            stamp = beginRead();
+            notional = (side == Side.BUY ? buyDepth : sellDepth).notionalToFill(quantity);
+            if (notional == DepthAggregate.DISABLED) {
+                notional = walkNotionalToFill(side, quantity);
+            }
+        } while (!validate(stamp));
+        return notional;
+    }
+
+    /**
+     *
+     * O(n) over the levels, for a side too wide for its depth aggregate
+     *
+     */
+    private long walkNotionalToFill(final Side side, final long quantity) {
+        long currentQuantity = 0;
+        long notionalTicks = 0;
+        for (PriceLevel level : getOrders(side).values()) {
+            final long filledQuantity = Math.min(level.getTotalQuantity(), quantity - currentQuantity);
+            notionalTicks += level.getPrice() * filledQuantity;
+            currentQuantity += filledQuantity;
+            if (currentQuantity >= quantity)
+                break;
+        }
+        return notionalTicks;
+    }
+
+    /**
+     *
+     * Called by a level of this book while it is held, right after it changed
+     *
+     */
+    void levelChanged(final PriceLevel level, final DepthUpdate update, final long quantityDelta) {
+        final boolean buy = level.getSide() == Side.BUY;
+        (buy ? buyDepth : sellDepth).add(level.getPrice(), quantityDelta);
+        if (update == DepthUpdate.LEVEL_ADDED) {
+            (buy ? buyLevelCount : sellLevelCount).increment();
+        } else if (update == DepthUpdate.LEVEL_REMOVED) {
+            (buy ? buyLevelCount : sellLevelCount).decrement();
+        }
+        depthPublisher.publish(level, update);
+    }
+
+    /**
+     *
+     * Resting orders of the side, without walking its levels
+     *
+     */
+    public long getOrderCount(final Side side) {
+        return (side == Side.BUY ? buyOrderCount : sellOrderCount).sum();
+    }
+
+    /**
+     *
+     * Price levels holding orders on the side, without walking the book
+     *
+     */
+    public long getLevelCount(final Side side) {
+        return (side == Side.BUY ? buyLevelCount : sellLevelCount).sum();
+    }
+
+    /**
+     *
+     * Latest top-of-book, one volatile read that never waits on the writers
+     *
+     */
+    public TopOfBook getTopOfBook() {
+        return topOfBook.get();
+    }
+
+    /**
+     *
+     * Levels behind the best cannot change the top. The best price is read from
+     * the book rather than from the published record, which may not show a
+     * concurrent change of the best level yet.
+     *
+     */
+    private void topChanged(final Side side, final long price) {
+        final PriceLevel best = getOrders(side).best();
+        if (best == null || (side == Side.BUY ? price >= best.getPrice() : price <= best.getPrice())) {
+            refreshTopOfBook();
+        }
+    }
+
+    /**
+     *
+     * Publishes the top as it is now. Retried when another writer published in
+     * between, whose view may be older than this one, so the last change is
+     * always reflected.
+     *
+     */
+    private void refreshTopOfBook() {
+        TopOfBook current;
+        TopOfBook updated;
+        do {
+            current = topOfBook.get();
+            updated = TopOfBook.of(current.getSequence() + 1, buyOrders.best(), sellOrders.best());
+        } while (!topOfBook.compareAndSet(current, updated));
+    }
 }
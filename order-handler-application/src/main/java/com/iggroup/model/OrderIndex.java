@@ -0,0 +1,164 @@
+package com.iggroup.model;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Live orders keyed by their primitive id, pointing straight at the resting
+ * {@link Order} (and through it at its {@link PriceLevel}).
+ * <br>
+ * Split in segments, each an open addressing table with linear probing, so a
+ * lookup neither boxes the id nor walks any book. Each segment is guarded by its
+ * own monitor, threads working on different orders rarely meet on one.
+ *
+ */
+public class OrderIndex {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public OrderIndex() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public Order get(final long id) {
+        final long hash = mix(id);
+        return segmentFor(hash).get(id, hash);
+    }
+
+    /**
+     *
+     * @return the order already indexed under the same id, or null if the order was added
+     */
+    public Order putIfAbsent(final Order order) {
+        final long hash = mix(order.getId());
+        return segmentFor(hash).putIfAbsent(order.getId(), hash, order);
+    }
+
+    /**
+     *
+     * Removes the id only while it still points at the given order
+     *
+     */
+    public boolean remove(final long id, final Order order) {
+        final long hash = mix(id);
+        return segmentFor(hash).remove(id, hash, order);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(final long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    private static long mix(final long id) {
+        final long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static final class Segment {
+
+        private long[] ids = new long[INITIAL_SEGMENT_CAPACITY];
+        private Order[] orders = new Order[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized Order get(final long id, final long hash) {
+            final int mask = orders.length - 1;
+            for (int i = (int) hash & mask; orders[i] != null; i = (i + 1) & mask) {
+                if (ids[i] == id)
+                    return orders[i];
+            }
+            return null;
+        }
+
+        synchronized Order putIfAbsent(final long id, final long hash, final Order order) {
+            int mask = orders.length - 1;
+            int i = (int) hash & mask;
+            for (; orders[i] != null; i = (i + 1) & mask) {
+                if (ids[i] == id)
+                    return orders[i];
+            }
+            // Kept at most half full so probe sequences stay short
+            if ((size + 1) << 1 > orders.length) {
+                resize();
+                mask = orders.length - 1;
+                for (i = (int) hash & mask; orders[i] != null; i = (i + 1) & mask);
+            }
+            ids[i] = id;
+            orders[i] = order;
+            size++;
+            return null;
+        }
+
+        synchronized boolean remove(final long id, final long hash, final Order order) {
+            final int mask = orders.length - 1;
+            int i = (int) hash & mask;
+            for (; orders[i] != null; i = (i + 1) & mask) {
+                if (ids[i] == id)
+                    break;
+            }
+            if (orders[i] != order)
+                return false;
+
+            // Backward shift deletion, entries after the hole move up if their probe started at or before it
+            orders[i] = null;
+            size--;
+            for (int j = (i + 1) & mask; orders[j] != null; j = (j + 1) & mask) {
+                final int home = (int) mix(ids[j]) & mask;
+                final boolean homeInRange = i <= j ? i < home && home <= j : i < home || home <= j;
+                if (!homeInRange) {
+                    ids[i] = ids[j];
+                    orders[i] = orders[j];
+                    orders[j] = null;
+                    i = j;
+                }
+            }
+            return true;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(orders, null);
+            size = 0;
+        }
+
+        private void resize() {
+            final long[] oldIds = ids;
+            final Order[] oldOrders = orders;
+            ids = new long[oldIds.length << 1];
+            orders = new Order[oldOrders.length << 1];
+            final int mask = orders.length - 1;
+            for (int j = 0; j < oldOrders.length; j++) {
+                if (oldOrders[j] == null)
+                    continue;
+
+                int i = (int) mix(oldIds[j]) & mask;
+                while (orders[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                ids[i] = oldIds[j];
+                orders[i] = oldOrders[j];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.iggroup.model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.iggroup.queue.RingBufferQueue;
+import com.iggroup.queue.YieldingWaitStrategy;
+
+/**
+ *
+ * Recycles {@link Order}s that have left their book, so creating, matching and
+ * cancelling orders reuses the same instances instead of producing garbage.
+ * Free orders are kept in a preallocated {@link RingBufferQueue}, acquired by
+ * producers and released by whichever thread removes the order.
+ * <br>
+ * A released order is reset and handed to another producer, so nothing may keep
+ * a reference to an order once it has been submitted. Id based lookups must
+ * check the id still matches after reading from the order.
+ * <br>
+ * When the pool is empty a new order is allocated, when full a released order
+ * is dropped for the GC. {@link #NONE} never recycles.
+ *
+ */
+public class OrderPool {
+
+    public static final OrderPool NONE = new OrderPool(0);
+
+    private final RingBufferQueue<Order> free;
+    private final LongAdder allocations = new LongAdder();
+
+    /**
+     *
+     * @param capacity orders preallocated and kept at most, 0 for no pooling
+     */
+    public OrderPool(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative, got [" + capacity + "]");
+        }
+        this.free = capacity == 0 ? null : new RingBufferQueue<>(capacity, new YieldingWaitStrategy());
+        for (int i = 0; i < capacity; i++) {
+            free.offer(new Order());
+        }
+    }
+
+    public Order acquire() {
+        final Order order = free == null ? null : free.poll();
+        if (order != null)
+            return order;
+
+        allocations.increment();
+        return new Order();
+    }
+
+    /**
+     *
+     * Gives back an order that is not resting in any book
+     *
+     */
+    public void release(final Order order) {
+        if (free == null)
+            return;
+
+        if (order.getLevel() != null) {
+            throw new IllegalStateException("OrderId [" + order.getId() + "] is still resting in a book");
+        }
+        order.reset();
+        free.offer(order);
+    }
+
+    public boolean isPooling() {
+        return free != null;
+    }
+
+    public int available() {
+        return free == null ? 0 : free.size();
+    }
+
+    /**
+     *
+     * Orders allocated because the pool was empty
+     *
+     */
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.iggroup.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ *
+ * Range of prices in ticks, both ends included, that a symbol is expected to
+ * trade in. A book with a band indexes the levels inside it by tick, see
+ * {@link PriceLadder}.
+ *
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PriceBand {
+
+    public static final int MAX_WIDTH = 1 << 22;
+
+    long lowest;
+    long highest;
+
+    public static PriceBand of(final long lowest, final long highest) {
+        if (highest < lowest || highest - lowest >= MAX_WIDTH) {
+            throw new IllegalArgumentException("Price band must hold between 1 and " + MAX_WIDTH + " ticks, got [" + lowest + ", " + highest + "]");
+        }
+        return new PriceBand(lowest, highest);
+    }
+
+    /**
+     *
+     * Ticks in the band
+     *
+     */
+    public int width() {
+        return (int) (highest - lowest + 1);
+    }
+
+    public boolean contains(final long price) {
+        return price >= lowest && price <= highest;
+    }
+
+}
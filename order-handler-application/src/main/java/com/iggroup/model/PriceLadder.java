@@ -0,0 +1,291 @@
+package com.iggroup.model;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ *
+ * {@link PriceLevels} over a {@link PriceBand}: the levels inside the band sit in
+ * an array indexed by tick offset from the best end of the band, so finding,
+ * creating and dropping one is O(1). A bitset of the occupied offsets lets the
+ * best level and iteration skip empty ticks 64 at a time. Prices outside of the
+ * band go to a {@link SkipListPriceLevels}.
+ * <br>
+ * Levels are swapped in and out of their slot with a compare and set, as several
+ * threads can add to a book in LOCKING mode. The best offset is kept as a hint
+ * no occupied offset is below: lowered when a level is created, and moved up
+ * when the level at it is dropped, then checked again for a level created
+ * behind it in the meantime.
+ *
+ */
+final class PriceLadder extends AbstractMap<Long, PriceLevel> implements PriceLevels {
+
+    /**
+     * Best price of the band, at offset 0
+     */
+    private final long origin;
+    /**
+     * +1 when the best price is the lowest (asks), -1 when it is the highest
+     */
+    private final int direction;
+    private final int width;
+    private final AtomicReferenceArray<PriceLevel> levels;
+    private final AtomicLongArray occupied;
+    private final AtomicInteger bestOffset;
+    private final AtomicInteger levelCount = new AtomicInteger();
+    private final SkipListPriceLevels outside;
+    private final Collection<PriceLevel> values = new Values();
+    private final Set<Entry<Long, PriceLevel>> entrySet = new EntrySet();
+
+    PriceLadder(final Side side, final PriceBand band) {
+        this.direction = side == Side.BUY ? -1 : 1;
+        this.origin = side == Side.BUY ? band.getHighest() : band.getLowest();
+        this.width = band.width();
+        this.levels = new AtomicReferenceArray<>(width);
+        this.occupied = new AtomicLongArray((width + 63) >>> 6);
+        this.bestOffset = new AtomicInteger(width);
+        this.outside = new SkipListPriceLevels(side);
+    }
+
+    /**
+     *
+     * @return offset of the price from the best end of the band, -1 outside of it
+     */
+    private int offset(final long price) {
+        final long offset = direction * (price - origin);
+        return offset >= 0 && offset < width ? (int) offset : -1;
+    }
+
+    private long price(final int offset) {
+        return origin + direction * (long) offset;
+    }
+
+    @Override
+    public PriceLevel level(final long price) {
+        final int offset = offset(price);
+        return offset < 0 ? outside.level(price) : levels.get(offset);
+    }
+
+    @Override
+    public PriceLevel getOrCreate(final long price, final Function<Long, PriceLevel> levelFactory) {
+        final int offset = offset(price);
+        if (offset < 0)
+            return outside.getOrCreate(price, levelFactory);
+
+        PriceLevel created = null;
+        while (true) {
+            final PriceLevel level = levels.get(offset);
+            if (level != null)
+                return level;
+
+            if (created == null) {
+                created = levelFactory.apply(price);
+            }
+            if (levels.compareAndSet(offset, null, created)) {
+                levelCount.incrementAndGet();
+                setOccupied(offset);
+                bestOffset.accumulateAndGet(offset, Math::min);
+                return created;
+            }
+        }
+    }
+
+    @Override
+    public boolean removeLevel(final PriceLevel level) {
+        final int offset = offset(level.getPrice());
+        if (offset < 0)
+            return outside.removeLevel(level);
+
+        if (!levels.compareAndSet(offset, level, null))
+            return false;
+
+        levelCount.decrementAndGet();
+        clearOccupied(offset);
+        // A level created in between may have set the bit before it was cleared
+        if (levels.get(offset) != null) {
+            setOccupied(offset);
+        }
+        if (bestOffset.get() == offset) {
+            advanceBest(offset);
+        }
+        return true;
+    }
+
+    private void advanceBest(final int offset) {
+        final int next = nextOccupied(offset);
+        if (next == offset || !bestOffset.compareAndSet(offset, next))
+            return;
+
+        final int skipped = nextOccupied(offset);
+        if (skipped < next) {
+            bestOffset.accumulateAndGet(skipped, Math::min);
+        }
+    }
+
+    @Override
+    public PriceLevel best() {
+        final PriceLevel outsideBest = outside.best();
+        if (outsideBest != null && direction * (outsideBest.getPrice() - origin) < 0)
+            return outsideBest;
+
+        for (int offset = nextOccupied(bestOffset.get()); offset < width; offset = nextOccupied(offset + 1)) {
+            final PriceLevel level = levels.get(offset);
+            if (level != null)
+                return level;
+        }
+        return outsideBest;
+    }
+
+    private void setOccupied(final int offset) {
+        occupied.accumulateAndGet(offset >>> 6, 1L << offset, (word, bit) -> word | bit);
+    }
+
+    private void clearOccupied(final int offset) {
+        occupied.accumulateAndGet(offset >>> 6, ~(1L << offset), (word, mask) -> word & mask);
+    }
+
+    /**
+     *
+     * @return first occupied offset from this one, the width if there is none
+     */
+    private int nextOccupied(final int from) {
+        if (from >= width)
+            return width;
+
+        int index = from >>> 6;
+        long word = occupied.get(index) & (-1L << from);
+        while (word == 0) {
+            if (++index == occupied.length())
+                return width;
+
+            word = occupied.get(index);
+        }
+        return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    public PriceLevel get(final Object key) {
+        return key instanceof Long ? level((Long) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return levelCount.get() + outside.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return levelCount.get() == 0 && outside.isEmpty();
+    }
+
+    /**
+     *
+     * Best first: the outside levels better than the band, the band, then the
+     * outside levels behind it. Weakly consistent like the skip list's.
+     *
+     */
+    @Override
+    public Collection<PriceLevel> values() {
+        return values;
+    }
+
+    @Override
+    public Set<Entry<Long, PriceLevel>> entrySet() {
+        return entrySet;
+    }
+
+    private Iterator<PriceLevel> levelIterator() {
+        final Iterator<PriceLevel> better = outside.headMap(origin, false).values().iterator();
+        final Iterator<PriceLevel> worse = outside.tailMap(price(width - 1), false).values().iterator();
+        return new Iterator<PriceLevel>() {
+
+            private int offset = -1;
+            private PriceLevel next = advance();
+
+            private PriceLevel advance() {
+                // Outside levels created better than the band once it was reached are not gone back to
+                if (offset < 0 && better.hasNext())
+                    return better.next();
+
+                while (offset < width) {
+                    offset = nextOccupied(offset + 1);
+                    final PriceLevel level = offset < width ? levels.get(offset) : null;
+                    if (level != null)
+                        return level;
+                }
+                return worse.hasNext() ? worse.next() : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public PriceLevel next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final PriceLevel current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    private final class Values extends AbstractCollection<PriceLevel> {
+
+        @Override
+        public Iterator<PriceLevel> iterator() {
+            return levelIterator();
+        }
+
+        @Override
+        public int size() {
+            return PriceLadder.this.size();
+        }
+
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<Long, PriceLevel>> {
+
+        @Override
+        public Iterator<Entry<Long, PriceLevel>> iterator() {
+            final Iterator<PriceLevel> levelIterator = levelIterator();
+            return new Iterator<Entry<Long, PriceLevel>>() {
+
+                @Override
+                public boolean hasNext() {
+                    return levelIterator.hasNext();
+                }
+
+                @Override
+                public Entry<Long, PriceLevel> next() {
+                    final PriceLevel level = levelIterator.next();
+                    return new SimpleImmutableEntry<>(level.getPrice(), level);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return PriceLadder.this.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.iggroup.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import com.iggroup.marketdata.DepthPublisher;
+import com.iggroup.marketdata.DepthUpdate;
+
+import lombok.Getter;
+
+/**
+ *
+ * Orders resting at one price, kept in arrival order as an intrusive doubly
+ * linked queue through the links held by each {@link Order}.
+ * <br>
+ * Append and removal by order handle are O(1), the order count and total
+ * quantity are cached so they never need a walk over the orders.
+ * <br>
+ * Mutators are synchronized as several threads can work on the same level in
+ * LOCKING mode, a single-writer shard never contends on them. Each change is
+ * reported to the owning {@link OrderBook}, for its depth aggregates and
+ * {@link DepthPublisher}, before the level is released.
+ *
+ */
+public class PriceLevel implements Iterable<Order> {
+
+    @Getter
+    private final long price;
+    @Getter
+    private final Side side;
+    /**
+     * Null for a level outside of a book
+     */
+    private final OrderBook orderBook;
+    private volatile Order head;
+    private volatile Order tail;
+    @Getter
+    private volatile int orderCount;
+    @Getter
+    private volatile long totalQuantity;
+
+    public PriceLevel(final long price) {
+        this(price, null, null);
+    }
+
+    public PriceLevel(final long price, final Side side, final OrderBook orderBook) {
+        this.price = price;
+        this.side = side;
+        this.orderBook = orderBook;
+    }
+
+    synchronized void append(final Order order) {
+        order.setLevel(this);
+        order.setPrev(tail);
+        order.setNext(null);
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.setNext(order);
+        }
+        tail = order;
+        orderCount++;
+        totalQuantity += order.getQuantity();
+        changed(orderCount == 1 ? DepthUpdate.LEVEL_ADDED : DepthUpdate.LEVEL_CHANGED, order.getQuantity());
+    }
+
+    synchronized boolean remove(final Order order) {
+        if (order.getLevel() != this)
+            return false;
+
+        final Order prev = order.getPrev();
+        final Order next = order.getNext();
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.setNext(next);
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.setPrev(prev);
+        }
+        order.setLevel(null);
+        order.setPrev(null);
+        order.setNext(null);
+        orderCount--;
+        totalQuantity -= order.getQuantity();
+        changed(orderCount == 0 ? DepthUpdate.LEVEL_REMOVED : DepthUpdate.LEVEL_CHANGED, -order.getQuantity());
+        return true;
+    }
+
+    synchronized void updateQuantity(final Order order, final int quantity) {
+        if (order.getLevel() != this) {
+            order.setQuantity(quantity);
+            return;
+        }
+        final int quantityDelta = quantity - order.getQuantity();
+        totalQuantity += quantityDelta;
+        order.setQuantity(quantity);
+        changed(DepthUpdate.LEVEL_CHANGED, quantityDelta);
+    }
+
+    private void changed(final DepthUpdate update, final long quantityDelta) {
+        if (orderBook != null) {
+            orderBook.levelChanged(this, update, quantityDelta);
+        }
+    }
+
+    public boolean contains(final Order order) {
+        return order.getLevel() == this;
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    /**
+     *
+     * Oldest order of the level, walk the rest with {@link Order#getNext()}
+     *
+     * @return
+     */
+    public Order first() {
+        return head;
+    }
+
+    /**
+     *
+     * Iterates in arrival order, the current order can be removed while iterating
+     *
+     */
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<Order>() {
+
+            private Order next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final Order current = next;
+                next = current.getNext();
+                return current;
+            }
+        };
+    }
+
+    /**
+     *
+     * Visits the orders in arrival order while holding the level, so the visit
+     * sees a consistent level. Changes to this level wait meanwhile, other levels
+     * are not affected.
+     *
+     */
+    public synchronized void forEachLocked(final Consumer<? super Order> action) {
+        for (Order order = head; order != null; order = order.getNext()) {
+            action.accept(order);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PriceLevel(price=" + price + ", orderCount=" + orderCount + ", totalQuantity=" + totalQuantity + ")";
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.iggroup.model;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ *
+ * Price levels of one side of a book keyed by price in ticks, iterated from the
+ * best price. Read as a map from any thread; levels are only created and dropped
+ * by the book, through the methods below.
+ *
+ */
+public interface PriceLevels extends Map<Long, PriceLevel> {
+
+    /**
+     *
+     * @return the level at the price, null if there is none
+     */
+    PriceLevel level(long price);
+
+    /**
+     *
+     * @param levels called when there is no level at the price yet, the level it
+     *               returns may be dropped if another thread created one first
+     */
+    PriceLevel getOrCreate(long price, Function<Long, PriceLevel> levels);
+
+    /**
+     *
+     * Drops the level, only if it is still the one at its price
+     *
+     */
+    boolean removeLevel(PriceLevel level);
+
+    /**
+     *
+     * @return the level with the best price, null if the side is empty
+     */
+    PriceLevel best();
+
+}
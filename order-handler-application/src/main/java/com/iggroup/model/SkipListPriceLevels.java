@@ -0,0 +1,42 @@
+package com.iggroup.model;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ *
+ * {@link PriceLevels} of any price, each lookup O(log n) through the skip list.
+ *
+ */
+final class SkipListPriceLevels extends ConcurrentSkipListMap<Long, PriceLevel> implements PriceLevels {
+
+    private static final long serialVersionUID = 1L;
+
+    SkipListPriceLevels(final Side side) {
+        super(side == Side.BUY ? Comparator.reverseOrder() : null);
+    }
+
+    @Override
+    public PriceLevel level(final long price) {
+        return get(price);
+    }
+
+    @Override
+    public PriceLevel getOrCreate(final long price, final Function<Long, PriceLevel> levels) {
+        return computeIfAbsent(price, levels);
+    }
+
+    @Override
+    public boolean removeLevel(final PriceLevel level) {
+        return remove(level.getPrice(), level);
+    }
+
+    @Override
+    public PriceLevel best() {
+        final Map.Entry<Long, PriceLevel> entry = firstEntry();
+        return entry == null ? null : entry.getValue();
+    }
+
+}
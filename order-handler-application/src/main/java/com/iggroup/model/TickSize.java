@@ -0,0 +1,85 @@
+package com.iggroup.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ *
+ * Minimum price increment of a symbol. Inside the engine prices are primitive
+ * long tick counts, this is where they are converted from/to decimals at the API
+ * edge.
+ *
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class TickSize {
+
+    public static final TickSize ONE_HUNDREDTH = TickSize.of("0.01");
+
+    private final BigDecimal value;
+    /**
+     * Ticks in one whole unit of price, 0 when a unit is not a whole number of ticks
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final long ticksPerUnit;
+
+    private TickSize(final BigDecimal value) {
+        if (value.signum() <= 0) {
+            throw new IllegalArgumentException("Tick size must be positive, got [" + value + "]");
+        }
+        this.value = value;
+        final BigDecimal[] quotientAndRemainder = BigDecimal.ONE.divideAndRemainder(value);
+        this.ticksPerUnit = quotientAndRemainder[1].signum() == 0 ? quotientAndRemainder[0].longValueExact() : 0L;
+    }
+
+    public static TickSize of(final String value) {
+        return new TickSize(new BigDecimal(value));
+    }
+
+    public static TickSize of(final BigDecimal value) {
+        return new TickSize(value);
+    }
+
+    public long toTicks(final BigDecimal price) {
+        final BigDecimal[] quotientAndRemainder = price.divideAndRemainder(value);
+        if (quotientAndRemainder[1].signum() != 0) {
+            throw new IllegalArgumentException("Price [" + price.toPlainString() + "] is not a multiple of tick size [" + value.toPlainString() + "]");
+        }
+        return quotientAndRemainder[0].longValueExact();
+    }
+
+    /**
+     *
+     * Ticks of a whole number price, without allocating when a unit is a whole
+     * number of ticks
+     *
+     */
+    public long toTicks(final long units) {
+        return ticksPerUnit > 0 ? Math.multiplyExact(units, ticksPerUnit) : toTicks(BigDecimal.valueOf(units));
+    }
+
+    public BigDecimal toPrice(final long ticks) {
+        return value.multiply(BigDecimal.valueOf(ticks));
+    }
+
+    /**
+     *
+     * Average price of a fill, rounded to 4 decimal places
+     *
+     * @param notionalTicks sum of price ticks multiplied by quantity
+     * @param quantity
+     * @return
+     */
+    public double toAveragePrice(final long notionalTicks, final long quantity) {
+        return value.multiply(BigDecimal.valueOf(notionalTicks))
+                    .divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP)
+                    .doubleValue();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.iggroup.model;
+
+import lombok.Value;
+
+/**
+ *
+ * Best bid and ask of a book at one point in time, prices in ticks. A side with
+ * no order has a zero order count, quantity and price.
+ * <br>
+ * The sequence goes up by one with every record the book publishes.
+ *
+ */
+@Value
+public class TopOfBook {
+
+    public static final TopOfBook EMPTY = new TopOfBook(0L, 0L, 0L, 0, 0L, 0L, 0);
+
+    long sequence;
+    long bidPrice;
+    long bidQuantity;
+    int bidOrderCount;
+    long askPrice;
+    long askQuantity;
+    int askOrderCount;
+
+    static TopOfBook of(final long sequence, final PriceLevel bid, final PriceLevel ask) {
+        return new TopOfBook(sequence,
+                             bid == null ? 0L : bid.getPrice(), bid == null ? 0L : bid.getTotalQuantity(), bid == null ? 0 : bid.getOrderCount(),
+                             ask == null ? 0L : ask.getPrice(), ask == null ? 0L : ask.getTotalQuantity(), ask == null ? 0 : ask.getOrderCount());
+    }
+
+    public boolean hasBid() {
+        return bidOrderCount > 0;
+    }
+
+    public boolean hasAsk() {
+        return askOrderCount > 0;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.iggroup.offheap;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.iggroup.model.Side;
+import com.iggroup.model.TickSize;
+
+import lombok.Getter;
+
+/**
+ *
+ * Book of one symbol over an {@link OffHeapOrderStore}. The price levels are the
+ * only objects per book, each a queue of slots in arrival order, so heap use
+ * grows with the price range and not with the orders resting.
+ * <br>
+ * Written by the owning shard only. Level totals are volatile so getPrice can
+ * read them from another thread, as it does for heap books.
+ *
+ */
+@Getter
+public class OffHeapBook {
+
+    private final String symbol;
+    /**
+     * Index of the book in its handler, kept in each of its records
+     */
+    private final int index;
+    private final TickSize tickSize;
+    private final ConcurrentNavigableMap<Long, Level> buyLevels = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    private final ConcurrentNavigableMap<Long, Level> sellLevels = new ConcurrentSkipListMap<>();
+
+    OffHeapBook(final String symbol, final int index, final TickSize tickSize) {
+        this.symbol = symbol;
+        this.index = index;
+        this.tickSize = tickSize;
+    }
+
+    public ConcurrentNavigableMap<Long, Level> getLevels(final Side side) {
+        return side == Side.BUY ? buyLevels : sellLevels;
+    }
+
+    void append(final OffHeapOrderStore store, final int slot) {
+        final long price = store.price(slot);
+        final ConcurrentNavigableMap<Long, Level> levels = getLevels(store.side(slot));
+        Level level = levels.get(price);
+        if (level == null) {
+            level = new Level(price);
+            levels.put(price, level);
+        }
+        store.setPrev(slot, level.tail);
+        store.setNext(slot, OffHeapOrderStore.NONE);
+        if (level.tail == OffHeapOrderStore.NONE) {
+            level.head = slot;
+        } else {
+            store.setNext(level.tail, slot);
+        }
+        level.tail = slot;
+        level.orderCount++;
+        level.totalQuantity += store.quantity(slot);
+    }
+
+    /**
+     *
+     * O(1) through the record's links, the level goes with its last order
+     *
+     */
+    void unlink(final OffHeapOrderStore store, final int slot) {
+        final ConcurrentNavigableMap<Long, Level> levels = getLevels(store.side(slot));
+        final Level level = levels.get(store.price(slot));
+        final int prev = store.prev(slot);
+        final int next = store.next(slot);
+        if (prev == OffHeapOrderStore.NONE) {
+            level.head = next;
+        } else {
+            store.setNext(prev, next);
+        }
+        if (next == OffHeapOrderStore.NONE) {
+            level.tail = prev;
+        } else {
+            store.setPrev(next, prev);
+        }
+        level.orderCount--;
+        level.totalQuantity -= store.quantity(slot);
+        if (level.orderCount == 0) {
+            levels.remove(level.price);
+        }
+    }
+
+    void updateQuantity(final OffHeapOrderStore store, final int slot, final int quantity) {
+        getLevels(store.side(slot)).get(store.price(slot)).totalQuantity += quantity - store.quantity(slot);
+        store.setQuantity(slot, quantity);
+    }
+
+    /**
+     *
+     * O(n) over the levels of the side, no record is read
+     *
+     */
+    public long getNotionalToFill(final Side side, final long quantity) {
+        long currentQuantity = 0;
+        long notionalTicks = 0;
+        for (Level level : getLevels(side).values()) {
+            final long filledQuantity = Math.min(level.totalQuantity, quantity - currentQuantity);
+            notionalTicks += level.price * filledQuantity;
+            currentQuantity += filledQuantity;
+            if (currentQuantity >= quantity)
+                break;
+        }
+        return notionalTicks;
+    }
+
+    /**
+     *
+     * Orders resting at one price, as first and last slot of a queue linked through
+     * the records
+     *
+     */
+    @Getter
+    public static final class Level {
+
+        private final long price;
+        private int head = OffHeapOrderStore.NONE;
+        private int tail = OffHeapOrderStore.NONE;
+        private volatile int orderCount;
+        private volatile long totalQuantity;
+
+        Level(final long price) {
+            this.price = price;
+        }
+
+    }
+
+}
@@ -0,0 +1,359 @@
+package com.iggroup.offheap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.handler.OrderHandler;
+import com.iggroup.handler.OrderOutcome;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderAmendment;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * {@link OrderHandler} of one matching shard keeping its resting orders in an
+ * {@link OffHeapOrderStore}. An incoming order is crossed against the opposite
+ * side, its quantity left copied into a record and the {@link Order} released to
+ * the pool straight away, so no order object outlives the command that added it.
+ * <br>
+ * Matching is price-time like {@link com.iggroup.handler.DefaultOrderHandler},
+ * fills are published to the provider's trade events and counted, and changes
+ * are journaled to the provider's journal like the provider's books do. Books
+ * are not the provider's though: they have no depth publisher, top of book or
+ * latency recorder, and are not snapshotted.
+ * <br>
+ * Single writer: every method but getPrice runs on the owning shard.
+ *
+ */
+@Slf4j
+public class OffHeapOrderHandler implements OrderHandler {
+
+    private static final int MAX_MODIFICATIONS = 4;
+    /**
+     * Session filter matching every order
+     */
+    private static final int ANY_SESSION = -1;
+
+    private final OrderBookProvider provider;
+    private final int shard;
+    private final SlotIndex slots;
+    private final OrderPool orderPool;
+    @Getter
+    private final OffHeapOrderStore store = new OffHeapOrderStore();
+    private final ConcurrentMap<String, OffHeapBook> books = new ConcurrentHashMap<>();
+    private final List<OffHeapBook> booksByIndex = new ArrayList<>();
+    /**
+     * Journaled for an order rested again at a new price, which has no order
+     * object any more
+     */
+    private final Order repriced = new Order();
+    private long arrivals;
+
+    /**
+     *
+     * @param slots shared by every shard of the engine, resting ids are indexed
+     *              with this shard
+     */
+    public OffHeapOrderHandler(final OrderBookProvider provider, final int shard, final SlotIndex slots, final OrderPool orderPool) {
+        this.provider = provider;
+        this.shard = shard;
+        this.slots = slots;
+        this.orderPool = orderPool;
+    }
+
+    @Override
+    public int admit(final String symbol) {
+        return OrderBookProvider.NO_SYMBOL_ID;
+    }
+
+    @Override
+    public void addOrder(final Order order) {
+        log.debug("Adding Order [{}]...", order);
+        add(order);
+    }
+
+    @Override
+    public void addOrders(final List<Order> orders) {
+        log.debug("Adding [{}] orders...", orders.size());
+        for (Order order : orders) {
+            add(order);
+        }
+    }
+
+    private void add(final Order order) {
+        provider.getCounters().added();
+        final OffHeapBook book = book(order.getSymbol());
+        final int quantityLeft = cross(book, order.getId(), order.getSide(), order.getPrice(), order.getQuantity(), order.getSessionId());
+        if (quantityLeft > 0) {
+            final int slot = store.allocate();
+            store.setId(slot, order.getId());
+            store.setSide(slot, order.getSide());
+            store.setSessionId(slot, order.getSessionId());
+            store.setModifications(slot, order.getModifications());
+            store.setBook(slot, book.getIndex());
+            rest(book, slot, order.getPrice(), quantityLeft);
+            slots.put(order.getId(), SlotIndex.location(shard, slot));
+            order.setQuantity(quantityLeft);
+            provider.getJournal().add(order);
+        }
+        orderPool.release(order);
+    }
+
+    private void rest(final OffHeapBook book, final int slot, final long price, final int quantity) {
+        store.setPrice(slot, price);
+        store.setQuantity(slot, quantity);
+        store.setArrival(slot, ++arrivals);
+        book.append(store, slot);
+    }
+
+    /**
+     *
+     * Fills the incoming quantity against the best opposite levels, oldest order
+     * first, while the price crosses
+     *
+     * @return quantity left to rest
+     */
+    private int cross(final OffHeapBook book, final long orderId, final Side side, final long price, final int quantity, final int sessionId) {
+        final Side oppositeSide = side == Side.BUY ? Side.SELL : Side.BUY;
+        int quantityLeft = quantity;
+        while (quantityLeft > 0) {
+            final OffHeapBook.Level level = firstLevel(book, oppositeSide);
+            if (level == null || (side == Side.BUY ? level.getPrice() > price : level.getPrice() < price))
+                break;
+
+            final int resting = level.getHead();
+            final long restingId = store.id(resting);
+            final int restingQuantity = store.quantity(resting);
+            final int traded = Math.min(quantityLeft, restingQuantity);
+            quantityLeft -= traded;
+            final int restingLeft = restingQuantity - traded;
+            provider.getTradeEvents().publish(book.getSymbol(), orderId, side, sessionId, restingId, store.sessionId(resting), level.getPrice(),
+                                              traded, quantityLeft, restingLeft);
+            provider.getJournal().trade(orderId, restingId, level.getPrice(), traded, quantityLeft, restingLeft);
+            provider.getCounters().filled();
+            if (restingLeft == 0) {
+                book.unlink(store, resting);
+                slots.remove(restingId);
+                store.release(resting);
+                provider.getJournal().remove(restingId);
+                provider.getCounters().removed();
+            } else {
+                book.updateQuantity(store, resting, restingLeft);
+            }
+        }
+        return quantityLeft;
+    }
+
+    private static OffHeapBook.Level firstLevel(final OffHeapBook book, final Side side) {
+        final Map.Entry<Long, OffHeapBook.Level> first = book.getLevels(side).firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    @Override
+    public void modifyOrder(final Order order, final Order modifiedOrder) throws OrderModificationException {
+        modifyOrder(order.getId(), modifiedOrder.getQuantity(), modifiedOrder.getPrice());
+    }
+
+    @Override
+    public void modifyOrder(final long orderId, final int quantity, final long price) throws OrderModificationException {
+        log.debug("Modifying OrderId [{}]...", orderId);
+        if (!modify(orderId, quantity, price, ANY_SESSION)) {
+            log.debug("OrderId [{}] does not exist anymore for modifying", orderId);
+        }
+    }
+
+    @Override
+    public void modifyOrders(final List<OrderAmendment> amendments) throws OrderModificationException {
+        log.debug("Modifying [{}] orders...", amendments.size());
+        List<Long> rejected = null;
+        for (OrderAmendment amendment : amendments) {
+            try {
+                modify(amendment.getOrderId(), amendment.getQuantity(), amendment.getPrice(), ANY_SESSION);
+            } catch (OrderModificationException e) {
+                if (rejected == null)
+                    rejected = new ArrayList<>();
+                rejected.add(amendment.getOrderId());
+            }
+        }
+        if (rejected != null) {
+            throw new OrderModificationException("OrderIds " + rejected + " have more than 4 modifications applied, cannot be modified further.");
+        }
+    }
+
+    @Override
+    public void modifyOrder(final long orderId, final int quantity, final long price, final int sessionId, final OrderOutcome outcome) {
+        boolean applied = false;
+        try {
+            applied = modify(orderId, quantity, price, sessionId);
+        } catch (OrderModificationException e) {
+            log.debug(e.getMessage());
+        }
+        outcome.completed(orderId, applied);
+    }
+
+    /**
+     *
+     * A new price loses time priority, the order is crossed again at that price
+     * and only the quantity left rests
+     *
+     * @return false if the order does not exist anymore or was entered by another
+     *         session
+     */
+    private boolean modify(final long orderId, final int quantity, final long price, final int sessionId) throws OrderModificationException {
+        final int slot = slotOf(orderId, sessionId);
+        if (slot == OffHeapOrderStore.NONE)
+            return false;
+
+        final int modifications = store.modifications(slot);
+        if (modifications > MAX_MODIFICATIONS) {
+            throw new OrderModificationException("OrderId [" + orderId + "] has more than 4 modifications applied, cannot be modified further.");
+        }
+        store.setModifications(slot, modifications + 1);
+        final OffHeapBook book = booksByIndex.get(store.book(slot));
+        book.updateQuantity(store, slot, quantity);
+        provider.getJournal().modify(orderId, quantity, modifications + 1);
+        provider.getCounters().modified();
+        if (store.price(slot) != price) {
+            book.unlink(store, slot);
+            provider.getJournal().remove(orderId);
+            final int quantityLeft = cross(book, orderId, store.side(slot), price, quantity, store.sessionId(slot));
+            if (quantityLeft > 0) {
+                rest(book, slot, price, quantityLeft);
+                repriced.init(orderId, book.getSymbol(), store.side(slot), price, quantityLeft);
+                repriced.setModifications(modifications + 1);
+                provider.getJournal().add(repriced);
+            } else {
+                slots.remove(orderId);
+                store.release(slot);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void removeOrder(final Order order) {
+        removeOrder(order.getId());
+    }
+
+    @Override
+    public void removeOrder(final long orderId) {
+        log.debug("Removing orderId [{}]...", orderId);
+        if (!remove(orderId, ANY_SESSION)) {
+            log.debug("Order [{}] does not exist anymore to be removed. ", orderId);
+        }
+    }
+
+    @Override
+    public void removeOrder(final long orderId, final int sessionId, final OrderOutcome outcome) {
+        outcome.completed(orderId, remove(orderId, sessionId));
+    }
+
+    @Override
+    public void removeOrders(final long[] orderIds) {
+        log.debug("Removing [{}] orders...", orderIds.length);
+        for (long orderId : orderIds) {
+            remove(orderId, ANY_SESSION);
+        }
+    }
+
+    /**
+     *
+     * Only the books of this shard, books are not created for an unknown symbol
+     *
+     */
+    @Override
+    public void removeOrders(final String symbol, final Side side) {
+        log.debug("Removing every order of symbol [{}] and side [{}]...", symbol, side);
+        for (OffHeapBook book : booksByIndex) {
+            if (symbol != null && !symbol.equals(book.getSymbol()))
+                continue;
+
+            for (Side bookSide : Side.values()) {
+                if (side != null && side != bookSide)
+                    continue;
+
+                OffHeapBook.Level level;
+                while ((level = firstLevel(book, bookSide)) != null) {
+                    remove(store.id(level.getHead()), ANY_SESSION);
+                }
+            }
+        }
+    }
+
+    private boolean remove(final long orderId, final int sessionId) {
+        final int slot = slotOf(orderId, sessionId);
+        if (slot == OffHeapOrderStore.NONE)
+            return false;
+
+        booksByIndex.get(store.book(slot)).unlink(store, slot);
+        slots.remove(orderId);
+        store.release(slot);
+        provider.getJournal().remove(orderId);
+        provider.getCounters().removed();
+        return true;
+    }
+
+    /**
+     *
+     * @return the slot of an order resting on this shard and entered by the
+     *         session, {@link OffHeapOrderStore#NONE} otherwise
+     */
+    private int slotOf(final long orderId, final int sessionId) {
+        final long location = slots.get(orderId);
+        if (location == SlotIndex.ABSENT || SlotIndex.shard(location) != shard)
+            return OffHeapOrderStore.NONE;
+
+        final int slot = SlotIndex.slot(location);
+        return sessionId == ANY_SESSION || store.sessionId(slot) == sessionId ? slot : OffHeapOrderStore.NONE;
+    }
+
+    /**
+     *
+     * Reads level totals from the calling thread, a book not created yet has no
+     * quantity
+     *
+     */
+    @Override
+    public double getPrice(final String symbol, final int quantity, final Side side) {
+        final OffHeapBook book = books.get(symbol);
+        final long notionalTicks = book == null ? 0L : book.getNotionalToFill(side, quantity);
+        return provider.getTickSize(symbol).toAveragePrice(notionalTicks, quantity);
+    }
+
+    private OffHeapBook book(final String symbol) {
+        OffHeapBook book = books.get(symbol);
+        if (book == null) {
+            book = new OffHeapBook(symbol, booksByIndex.size(), provider.getTickSize(symbol));
+            booksByIndex.add(book);
+            books.put(symbol, book);
+        }
+        return book;
+    }
+
+    /**
+     *
+     * Resting orders of the symbol on this shard, O(levels)
+     *
+     */
+    public long getOrderCount(final String symbol, final Side side) {
+        final OffHeapBook book = books.get(symbol);
+        if (book == null)
+            return 0L;
+
+        long count = 0L;
+        for (OffHeapBook.Level level : book.getLevels(side).values()) {
+            count += level.getOrderCount();
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,195 @@
+package com.iggroup.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import com.iggroup.model.Side;
+
+/**
+ *
+ * Resting order records in direct memory, addressed by slot. A record holds the
+ * id, price in ticks, arrival sequence, quantity, modifications, session, book
+ * and side of an order, and the slots before and after it in its price level, so
+ * a level is a linked queue of slots rather than of objects.
+ * <br>
+ * Memory comes in chunks of {@link #CHUNK_RECORDS} records allocated as the store
+ * grows and kept afterwards, freed slots are reused first. Only the chunk array
+ * lives on the heap, however many orders rest.
+ * <br>
+ * Single writer: only the owning shard thread reads and writes records.
+ *
+ */
+public final class OffHeapOrderStore {
+
+    public static final int NONE = -1;
+
+    static final int CHUNK_BITS = 16;
+    public static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int ARRIVAL = 16;
+    private static final int QUANTITY = 24;
+    private static final int PREV = 28;
+    private static final int NEXT = 32;
+    private static final int MODIFICATIONS = 36;
+    private static final int SESSION = 40;
+    private static final int BOOK = 44;
+    private static final int SIDE = 48;
+    static final int RECORD_SIZE = 56;
+
+    private static final Side[] SIDES = Side.values();
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    /**
+     * Slots never handed out start here, freed ones are chained through NEXT
+     */
+    private int highWater;
+    private int freeHead = NONE;
+    private int size;
+
+    /**
+     *
+     * @return a slot for a new record, its fields still hold the previous record's
+     */
+    public int allocate() {
+        final int slot;
+        if (freeHead != NONE) {
+            slot = freeHead;
+            freeHead = next(slot);
+        } else {
+            if (highWater >>> CHUNK_BITS == chunks.length) {
+                grow();
+            }
+            slot = highWater++;
+        }
+        size++;
+        return slot;
+    }
+
+    public void release(final int slot) {
+        setId(slot, 0L);
+        setNext(slot, freeHead);
+        freeHead = slot;
+        size--;
+    }
+
+    private void grow() {
+        chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        chunks[chunks.length - 1] = ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     *
+     * Records in use
+     *
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     * Direct memory held, in bytes
+     *
+     */
+    public long capacityBytes() {
+        return (long) chunks.length * CHUNK_RECORDS * RECORD_SIZE;
+    }
+
+    private ByteBuffer chunk(final int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    private static int offset(final int slot) {
+        return (slot & CHUNK_MASK) * RECORD_SIZE;
+    }
+
+    public long id(final int slot) {
+        return chunk(slot).getLong(offset(slot) + ID);
+    }
+
+    public void setId(final int slot, final long id) {
+        chunk(slot).putLong(offset(slot) + ID, id);
+    }
+
+    public long price(final int slot) {
+        return chunk(slot).getLong(offset(slot) + PRICE);
+    }
+
+    public void setPrice(final int slot, final long price) {
+        chunk(slot).putLong(offset(slot) + PRICE, price);
+    }
+
+    public long arrival(final int slot) {
+        return chunk(slot).getLong(offset(slot) + ARRIVAL);
+    }
+
+    public void setArrival(final int slot, final long arrival) {
+        chunk(slot).putLong(offset(slot) + ARRIVAL, arrival);
+    }
+
+    public int quantity(final int slot) {
+        return chunk(slot).getInt(offset(slot) + QUANTITY);
+    }
+
+    public void setQuantity(final int slot, final int quantity) {
+        chunk(slot).putInt(offset(slot) + QUANTITY, quantity);
+    }
+
+    public int prev(final int slot) {
+        return chunk(slot).getInt(offset(slot) + PREV);
+    }
+
+    public void setPrev(final int slot, final int prev) {
+        chunk(slot).putInt(offset(slot) + PREV, prev);
+    }
+
+    public int next(final int slot) {
+        return chunk(slot).getInt(offset(slot) + NEXT);
+    }
+
+    public void setNext(final int slot, final int next) {
+        chunk(slot).putInt(offset(slot) + NEXT, next);
+    }
+
+    public int modifications(final int slot) {
+        return chunk(slot).getInt(offset(slot) + MODIFICATIONS);
+    }
+
+    public void setModifications(final int slot, final int modifications) {
+        chunk(slot).putInt(offset(slot) + MODIFICATIONS, modifications);
+    }
+
+    public int sessionId(final int slot) {
+        return chunk(slot).getInt(offset(slot) + SESSION);
+    }
+
+    public void setSessionId(final int slot, final int sessionId) {
+        chunk(slot).putInt(offset(slot) + SESSION, sessionId);
+    }
+
+    /**
+     *
+     * Index of the order's book in its handler
+     *
+     */
+    public int book(final int slot) {
+        return chunk(slot).getInt(offset(slot) + BOOK);
+    }
+
+    public void setBook(final int slot, final int book) {
+        chunk(slot).putInt(offset(slot) + BOOK, book);
+    }
+
+    public Side side(final int slot) {
+        return SIDES[chunk(slot).get(offset(slot) + SIDE)];
+    }
+
+    public void setSide(final int slot, final Side side) {
+        chunk(slot).put(offset(slot) + SIDE, (byte) side.ordinal());
+    }
+
+}
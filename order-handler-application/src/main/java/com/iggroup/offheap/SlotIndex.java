@@ -0,0 +1,163 @@
+package com.iggroup.offheap;
+
+/**
+ *
+ * Resting order ids to the shard and {@link OffHeapOrderStore} slot holding
+ * them, shared by the shards so an id-only command can be routed.
+ * <br>
+ * Laid out like {@link com.iggroup.model.OrderIndex}, segments of open addressing
+ * tables each guarded by its own monitor, but over primitive arrays only: the GC
+ * never has anything to trace in it, however many orders rest. Id 0 marks a free
+ * entry and is never indexed.
+ * <br>
+ * The engine also keeps the shard of the adds still queued in one, with no slot.
+ *
+ */
+public class SlotIndex {
+
+    public static final long ABSENT = -1L;
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public SlotIndex() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public static long location(final int shard, final int slot) {
+        return (long) shard << 32 | slot & 0xFFFFFFFFL;
+    }
+
+    public static int shard(final long location) {
+        return (int) (location >>> 32);
+    }
+
+    public static int slot(final long location) {
+        return (int) location;
+    }
+
+    /**
+     *
+     * @return the location of the id, {@link #ABSENT} if it is not resting
+     */
+    public long get(final long id) {
+        final long hash = mix(id);
+        return segmentFor(hash).get(id, hash);
+    }
+
+    public void put(final long id, final long location) {
+        if (id == 0L) {
+            throw new IllegalArgumentException("Order id 0 cannot be indexed");
+        }
+        final long hash = mix(id);
+        segmentFor(hash).put(id, hash, location);
+    }
+
+    public void remove(final long id) {
+        final long hash = mix(id);
+        segmentFor(hash).remove(id, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segmentFor(final long hash) {
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    private static long mix(final long id) {
+        final long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static final class Segment {
+
+        private long[] ids = new long[INITIAL_SEGMENT_CAPACITY];
+        private long[] locations = new long[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized long get(final long id, final long hash) {
+            final int mask = ids.length - 1;
+            for (int i = (int) hash & mask; ids[i] != 0L; i = (i + 1) & mask) {
+                if (ids[i] == id)
+                    return locations[i];
+            }
+            return ABSENT;
+        }
+
+        synchronized void put(final long id, final long hash, final long location) {
+            int mask = ids.length - 1;
+            int i = (int) hash & mask;
+            for (; ids[i] != 0L; i = (i + 1) & mask) {
+                if (ids[i] == id) {
+                    locations[i] = location;
+                    return;
+                }
+            }
+            // Kept at most half full so probe sequences stay short
+            if ((size + 1) << 1 > ids.length) {
+                resize();
+                mask = ids.length - 1;
+                for (i = (int) hash & mask; ids[i] != 0L; i = (i + 1) & mask);
+            }
+            ids[i] = id;
+            locations[i] = location;
+            size++;
+        }
+
+        synchronized void remove(final long id, final long hash) {
+            final int mask = ids.length - 1;
+            int i = (int) hash & mask;
+            for (; ids[i] != id; i = (i + 1) & mask) {
+                if (ids[i] == 0L)
+                    return;
+            }
+            // Backward shift deletion, entries after the hole move up if their probe started at or before it
+            ids[i] = 0L;
+            size--;
+            for (int j = (i + 1) & mask; ids[j] != 0L; j = (j + 1) & mask) {
+                final int home = (int) mix(ids[j]) & mask;
+                final boolean homeInRange = i <= j ? i < home && home <= j : i < home || home <= j;
+                if (!homeInRange) {
+                    ids[i] = ids[j];
+                    locations[i] = locations[j];
+                    ids[j] = 0L;
+                    i = j;
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private void resize() {
+            final long[] oldIds = ids;
+            final long[] oldLocations = locations;
+            ids = new long[oldIds.length << 1];
+            locations = new long[oldLocations.length << 1];
+            final int mask = ids.length - 1;
+            for (int j = 0; j < oldIds.length; j++) {
+                if (oldIds[j] == 0L)
+                    continue;
+
+                int i = (int) mix(oldIds[j]) & mask;
+                while (ids[i] != 0L) {
+                    i = (i + 1) & mask;
+                }
+                ids[i] = oldIds[j];
+                locations[i] = oldLocations[j];
+            }
+        }
+    }
+
+}
@@ -1,33 +1,40 @@
 package com.iggroup.producer;
 
-import java.time.Instant;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.iggroup.model.Order;
+import com.iggroup.model.OrderPool;
 import com.iggroup.model.Side;
-import com.iggroup.model.concurrent.AtomicBigDecimal;
+import com.iggroup.provider.OrderBookProvider;
+
+import lombok.RequiredArgsConstructor;
 
 /**
  * 
  * Ideally there would be another application that would produce Orders to a MQ.
- * This is a simple producer that creates orders
+ * This is a simple producer that creates orders, taken from the order pool so
+ * producing does not allocate once the pool is warm
  * 
  */
+@RequiredArgsConstructor
 public class OrderProducer {
 
     public static final AtomicLong ATOMIC_LONG = new AtomicLong();
+    private final OrderBookProvider provider;
+    private final OrderPool orderPool;
     private Random random = new Random();
 
+    public OrderProducer(final OrderBookProvider provider) {
+        this(provider, OrderPool.NONE);
+    }
+
     public Order produce(final String symbol) {
-        return Order.builder()
-                    .id(ATOMIC_LONG.addAndGet(1L))
-                    .arrivalDateTime(Instant.now())
-                    .symbol(symbol)
-                    .quantity(new AtomicInteger(random.nextInt(20) + 1))
-                    .price(AtomicBigDecimal.valueOf(random.nextInt(50) + 1))
-                    .side(random.nextBoolean() ? Side.BUY : Side.SELL)
-                    .build();
+        return orderPool.acquire()
+                        .init(ATOMIC_LONG.addAndGet(1L),
+                              symbol,
+                              random.nextBoolean() ? Side.BUY : Side.SELL,
+                              provider.getTickSize(symbol).toTicks(random.nextInt(50) + 1),
+                              random.nextInt(20) + 1);
     }
 }
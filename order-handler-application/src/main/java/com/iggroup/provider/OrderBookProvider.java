@@ -1,29 +1,281 @@
 package com.iggroup.provider;
 
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import com.iggroup.exception.UnknownSymbolException;
+import com.iggroup.journal.OrderJournal;
+import com.iggroup.metrics.EngineCounters;
 import com.iggroup.model.Order;
 import com.iggroup.model.OrderBook;
+import com.iggroup.model.OrderIndex;
+import com.iggroup.model.PriceBand;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.Side;
+import com.iggroup.model.TickSize;
+import com.iggroup.trade.event.TradeEventPublisher;
 
 import lombok.Getter;
+import lombok.Setter;
 
+/**
+ *
+ * Books of every listed symbol. A symbol is given a dense int id when it is
+ * listed and orders carry that id once admitted, so the engine finds a book
+ * with one array read; the name is only hashed at the edge, when a symbol is
+ * admitted or looked up by name.
+ * <br>
+ * Symbols are listed on first use unless listing is explicit, in which case an
+ * unknown symbol is rejected instead of silently getting an empty book.
+ *
+ */
 public class OrderBookProvider {
 
+    /**
+     * Symbol id of an order not admitted yet
+     */
+    public static final int NO_SYMBOL_ID = 0;
+    private static final int INITIAL_SYMBOLS = 1 << 8;
+
     @Getter
     private ConcurrentHashMap<String, OrderBook> orderBooks = new ConcurrentHashMap<>();
+    /**
+     * Id of every listed symbol, ids of delisted symbols are not given again so
+     * an order admitted before a delisting never reaches another book
+     */
+    private final ConcurrentHashMap<String, Integer> symbolIds = new ConcurrentHashMap<>();
+    /**
+     * Books by symbol id, replaced by a larger copy when full
+     */
+    private volatile AtomicReferenceArray<OrderBook> booksById = new AtomicReferenceArray<>(INITIAL_SYMBOLS);
+    private int nextSymbolId = NO_SYMBOL_ID + 1;
+    /**
+     * Only listed symbols are admitted, rather than listing them on first use
+     */
+    @Getter
+    @Setter
+    private volatile boolean explicitListing;
+    private final ConcurrentHashMap<String, TickSize> tickSizes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PriceBand> priceBands = new ConcurrentHashMap<>();
+    private final OrderIndex orderIndex = new OrderIndex();
+    /**
+     * Where handlers and matchers record resting order changes, nothing by default
+     */
+    @Getter
+    @Setter
+    private volatile OrderJournal journal = OrderJournal.NONE;
+    /**
+     * Where matchers publish executions, nowhere by default
+     */
+    @Getter
+    @Setter
+    private volatile TradeEventPublisher tradeEvents = TradeEventPublisher.NONE;
+    /**
+     * Operations and fills of every book since start, not reset by {@link #clear()}
+     */
+    @Getter
+    private final EngineCounters counters = new EngineCounters();
+    private static final TickSize DEFAULT_TICK_SIZE = TickSize.ONE_HUNDREDTH;
     private static final OrderBookProvider INSTANCE = new OrderBookProvider();
 
     private OrderBookProvider() {}
 
     public boolean checkIfOrderExists(final Order order) {
-        return getOrderBookBySymbol(order.getSymbol()).getOrders(order.getSide())
-                                                      .getOrDefault(order.getPrice().get(), new ConcurrentSkipListSet<>())
-                                                      .contains(order);
+        return checkIfOrderExists(order.getId());
+    }
+
+    /**
+     *
+     * O(1) through the order id index, no book is looked up
+     *
+     */
+    public boolean checkIfOrderExists(final long orderId) {
+        return orderIndex.get(orderId) != null;
+    }
+
+    /**
+     *
+     * @return the resting order with this id, null if it is not in any book
+     */
+    public Order getOrder(final long orderId) {
+        return orderIndex.get(orderId);
     }
 
+    /**
+     *
+     * One map lookup by name, for callers at the edge. Engine code goes through
+     * {@link #getOrderBook(Order)}.
+     *
+     * @throws UnknownSymbolException if listing is explicit and the symbol is not listed
+     */
     public OrderBook getOrderBookBySymbol(final String symbol) {
-        return orderBooks.computeIfAbsent(symbol, OrderBook::new);
+        OrderBook orderBook;
+        // Delisted in between, admitted again
+        while ((orderBook = orderBooks.get(symbol)) == null) {
+            admit(symbol);
+        }
+        return orderBook;
+    }
+
+    /**
+     *
+     * O(1) array read
+     *
+     * @return null if no symbol is listed with the id
+     */
+    public OrderBook getOrderBook(final int symbolId) {
+        final AtomicReferenceArray<OrderBook> books = booksById;
+        return symbolId < books.length() ? books.get(symbolId) : null;
+    }
+
+    /**
+     *
+     * Book of the order's symbol id, the symbol is admitted first if the order
+     * does not carry an id yet
+     *
+     * @return null if the symbol was delisted since the order was admitted
+     * @throws UnknownSymbolException if listing is explicit and the symbol is not listed
+     */
+    public OrderBook getOrderBook(final Order order) {
+        return getOrderBook(admit(order));
+    }
+
+    /**
+     *
+     * Sets the order's symbol id if it has none yet, at the edge so that the
+     * matching threads do not hash its symbol
+     *
+     * @throws UnknownSymbolException if listing is explicit and the symbol is not listed
+     */
+    public int admit(final Order order) {
+        if (order.getSymbolId() == NO_SYMBOL_ID) {
+            order.setSymbolId(admit(order.getSymbol()));
+        }
+        return order.getSymbolId();
+    }
+
+    /**
+     *
+     * @return id of the symbol, listed now unless listing is explicit
+     * @throws UnknownSymbolException if listing is explicit and the symbol is not listed
+     */
+    public int admit(final String symbol) {
+        final Integer symbolId = symbolIds.get(symbol);
+        if (symbolId != null)
+            return symbolId;
+
+        if (explicitListing) {
+            throw new UnknownSymbolException("Symbol [" + symbol + "] is not listed");
+        }
+        return list(symbol);
+    }
+
+    /**
+     *
+     * @return id of the symbol, {@link #NO_SYMBOL_ID} if it is not listed
+     */
+    public int getSymbolId(final String symbol) {
+        return symbolIds.getOrDefault(symbol, NO_SYMBOL_ID);
+    }
+
+    /**
+     *
+     * Creates the book of the symbol with the next id, unless it is listed
+     * already. The id is published last, so whoever reads it finds the book.
+     *
+     * @return id of the symbol
+     */
+    public synchronized int list(final String symbol) {
+        final Integer listed = symbolIds.get(symbol);
+        if (listed != null)
+            return listed;
+
+        final int symbolId = nextSymbolId++;
+        AtomicReferenceArray<OrderBook> books = booksById;
+        if (symbolId >= books.length()) {
+            final AtomicReferenceArray<OrderBook> grown = new AtomicReferenceArray<>(Math.max(books.length() * 2, symbolId + 1));
+            for (int i = 0; i < books.length(); i++) {
+                grown.set(i, books.get(i));
+            }
+            booksById = books = grown;
+        }
+        final OrderBook orderBook = new OrderBook(symbolId, symbol, getTickSize(symbol), orderIndex, priceBands.get(symbol));
+        books.set(symbolId, orderBook);
+        orderBooks.put(symbol, orderBook);
+        symbolIds.put(symbol, symbolId);
+        return symbolId;
+    }
+
+    /**
+     *
+     * Drops the book of the symbol and every order resting in it, which are
+     * journaled as removed; the book is then left to the GC. Has to be called by
+     * the thread writing the book, or while nothing else touches it.
+     *
+     * @return false if the symbol was not listed
+     */
+    public synchronized boolean delist(final String symbol) {
+        final Integer symbolId = symbolIds.remove(symbol);
+        if (symbolId == null)
+            return false;
+
+        booksById.set(symbolId, null);
+        final OrderBook orderBook = orderBooks.remove(symbol);
+        for (Side side : Side.values()) {
+            for (PriceLevel level : orderBook.getOrders(side).values()) {
+                for (Order order : level) {
+                    orderIndex.remove(order.getId(), order);
+                    journal.remove(order.getId());
+                    counters.removed();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * Drops every book, listed symbol and indexed order. Symbol ids keep going up.
+     *
+     */
+    public synchronized void clear() {
+        orderBooks.clear();
+        symbolIds.clear();
+        booksById = new AtomicReferenceArray<>(INITIAL_SYMBOLS);
+        orderIndex.clear();
+    }
+
+    public TickSize getTickSize(final String symbol) {
+        return tickSizes.getOrDefault(symbol, DEFAULT_TICK_SIZE);
+    }
+
+    /**
+     *
+     * Tick size has to be set before the book of the symbol is created, as every
+     * resting price is already expressed in ticks.
+     *
+     */
+    public void setTickSize(final String symbol, final TickSize tickSize) {
+        final OrderBook orderBook = orderBooks.get(symbol);
+        if (orderBook != null && !orderBook.getTickSize().equals(tickSize)) {
+            throw new IllegalStateException("OrderBook for symbol [" + symbol + "] already exists with tick size [" + orderBook.getTickSize() + "]");
+        }
+        tickSizes.put(symbol, tickSize);
+    }
+
+    /**
+     *
+     * Books of the symbol index their levels by tick inside the band, and keep
+     * prices outside of it in a skip list. Has to be set before the book of the
+     * symbol is created, like the tick size.
+     *
+     */
+    public void setPriceBand(final String symbol, final PriceBand priceBand) {
+        final OrderBook orderBook = orderBooks.get(symbol);
+        if (orderBook != null && !priceBand.equals(orderBook.getPriceBand())) {
+            throw new IllegalStateException("OrderBook for symbol [" + symbol + "] already exists with price band [" + orderBook.getPriceBand() + "]");
+        }
+        priceBands.put(symbol, priceBand);
     }
 
     public static OrderBookProvider getInstance() {
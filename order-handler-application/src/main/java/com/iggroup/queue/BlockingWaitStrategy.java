@@ -0,0 +1,57 @@
+package com.iggroup.queue;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ *
+ * Parks waiting threads on a condition. The signalling side only takes the lock
+ * when a thread has announced it is about to wait, so an uncontended hand-off
+ * costs a volatile read.
+ *
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition signal = lock.newCondition();
+    private volatile boolean signalNeeded;
+
+    @Override
+    public boolean await(final BooleanSupplier condition, final long timeoutNanos) throws InterruptedException {
+        if (condition.getAsBoolean())
+            return true;
+
+        long nanos = timeoutNanos;
+        lock.lockInterruptibly();
+        try {
+            // Announced before re-checking, a publish either sees the flag or is seen by the check
+            signalNeeded = true;
+            while (!condition.getAsBoolean()) {
+                if (nanos <= 0)
+                    return false;
+
+                nanos = signal.awaitNanos(nanos);
+                signalNeeded = true;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void signalAll() {
+        if (!signalNeeded)
+            return;
+
+        lock.lock();
+        try {
+            signalNeeded = false;
+            signal.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.iggroup.queue;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ *
+ * Never gives the core up, lowest hand-off latency for threads pinned to a
+ * dedicated core
+ *
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public boolean await(final BooleanSupplier condition, final long timeoutNanos) throws InterruptedException {
+        final long start = System.nanoTime();
+        while (!condition.getAsBoolean()) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (System.nanoTime() - start >= timeoutNanos)
+                return false;
+
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    @Override
+    public void signalAll() {}
+
+}
@@ -0,0 +1,275 @@
+package com.iggroup.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ *
+ * Bounded multi-producer multi-consumer queue on a ring buffer preallocated at
+ * construction. Each slot carries a sequence counter telling whether it is free
+ * for the producer of that lap or published for its consumer, so a hand-off is a
+ * CAS on the head or tail counter and never allocates a node.
+ * <br>
+ * Waiting on an empty or full queue is left to the {@link WaitStrategy}.
+ * {@link #drain(Consumer, int)} and {@link #drainTo(Collection, int)} claim every
+ * ready slot up to the limit with a single CAS, so one consumer wake-up can
+ * process many elements.
+ *
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final PaddedAtomicLong head = new PaddedAtomicLong();
+    private final PaddedAtomicLong tail = new PaddedAtomicLong();
+    private final WaitStrategy waitStrategy;
+    private final BooleanSupplier notEmpty = this::isHeadPublished;
+    private final BooleanSupplier notFull = this::isTailFree;
+
+    /**
+     *
+     * @param capacity rounded up to a power of two
+     * @param waitStrategy
+     */
+    public RingBufferQueue(final int capacity, final WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got [" + capacity + "]");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        Objects.requireNonNull(e);
+        if (!tryPublish(e))
+            return false;
+
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    @Override
+    public void put(final E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        while (!tryPublish(e)) {
+            waitStrategy.await(notFull, Long.MAX_VALUE);
+        }
+        waitStrategy.signalAll();
+    }
+
+    @Override
+    public boolean offer(final E e, final long timeout, final TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!tryPublish(e)) {
+            if (!waitStrategy.await(notFull, deadline - System.nanoTime()))
+                return false;
+        }
+        waitStrategy.signalAll();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        final E e = tryConsume();
+        if (e != null) {
+            waitStrategy.signalAll();
+        }
+        return e;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        while ((e = tryConsume()) == null) {
+            waitStrategy.await(notEmpty, Long.MAX_VALUE);
+        }
+        waitStrategy.signalAll();
+        return e;
+    }
+
+    @Override
+    public E poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        while ((e = tryConsume()) == null) {
+            if (!waitStrategy.await(notEmpty, deadline - System.nanoTime()))
+                return null;
+        }
+        waitStrategy.signalAll();
+        return e;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long position = head.get();
+        final int index = (int) position & mask;
+        return sequences.get(index) == position + 1 ? (E) buffer[index] : null;
+    }
+
+    /**
+     *
+     * Hands every published element, up to maxElements, to the consumer after
+     * claiming them all with one CAS
+     *
+     * @return number of elements drained
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(final Consumer<? super E> consumer, final int maxElements) {
+        long position;
+        int count;
+        do {
+            position = head.get();
+            count = 0;
+            while (count < maxElements && sequences.get((int) (position + count) & mask) == position + count + 1) {
+                count++;
+            }
+            if (count == 0)
+                return 0;
+        } while (!head.compareAndSet(position, position + count));
+
+        for (int i = 0; i < count; i++) {
+            final int index = (int) (position + i) & mask;
+            final E e = (E) buffer[index];
+            buffer[index] = null;
+            sequences.set(index, position + i + buffer.length);
+            consumer.accept(e);
+        }
+        waitStrategy.signalAll();
+        return count;
+    }
+
+    @Override
+    public int drainTo(final Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(final Collection<? super E> c, final int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        return drain(c::add, maxElements);
+    }
+
+    @Override
+    public int size() {
+        final long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, buffer.length));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return buffer.length - size();
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     *
+     * Weakly consistent snapshot of the published elements, removal is not
+     * supported
+     *
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<E> iterator() {
+        final List<E> snapshot = new ArrayList<>();
+        final long end = tail.get();
+        for (long position = head.get(); position < end; position++) {
+            final int index = (int) position & mask;
+            final Object e = buffer[index];
+            if (sequences.get(index) == position + 1 && e != null) {
+                snapshot.add((E) e);
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private boolean tryPublish(final E e) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = e;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // Slot still holds the element of the previous lap, queue is full
+                return false;
+            }
+            position = tail.get();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E tryConsume() {
+        long position = head.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final E e = (E) buffer[index];
+                    buffer[index] = null;
+                    sequences.set(index, position + buffer.length);
+                    return e;
+                }
+            } else if (difference < 0) {
+                // Slot not published yet, queue is empty
+                return null;
+            }
+            position = head.get();
+        }
+    }
+
+    private boolean isHeadPublished() {
+        final long position = head.get();
+        return sequences.get((int) position & mask) == position + 1;
+    }
+
+    private boolean isTailFree() {
+        final long position = tail.get();
+        return sequences.get((int) position & mask) == position;
+    }
+
+    /**
+     * Keeps the head and tail counters off each other's cache line
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedAtomicLong extends AtomicLong {
+
+        private static final long serialVersionUID = 1L;
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+}
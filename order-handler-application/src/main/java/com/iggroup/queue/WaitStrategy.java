@@ -0,0 +1,47 @@
+package com.iggroup.queue;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ *
+ * How a thread waits on a {@link RingBufferQueue} that is empty (consumer) or
+ * full (producer). Trades CPU for hand-off latency:
+ * <br>
+ * BLOCKING parks the thread until signalled, YIELDING spins then yields the
+ * core, BUSY_SPIN never gives the core up.
+ *
+ */
+public interface WaitStrategy {
+
+    /**
+     *
+     * Waits until the condition holds or the timeout elapses
+     *
+     * @param condition
+     * @param timeoutNanos
+     * @return whether the condition holds
+     * @throws InterruptedException
+     */
+    boolean await(BooleanSupplier condition, long timeoutNanos) throws InterruptedException;
+
+    /**
+     *
+     * Wakes up waiting threads, called after every publish and consume
+     *
+     */
+    void signalAll();
+
+    static WaitStrategy forName(final String name) {
+        switch (name) {
+        case "BLOCKING":
+            return new BlockingWaitStrategy();
+        case "YIELDING":
+            return new YieldingWaitStrategy();
+        case "BUSY_SPIN":
+            return new BusySpinWaitStrategy();
+        default:
+            throw new IllegalArgumentException("Unknown wait strategy [" + name + "], expected BLOCKING, YIELDING or BUSY_SPIN");
+        }
+    }
+
+}
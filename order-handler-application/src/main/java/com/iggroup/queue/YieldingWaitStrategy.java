@@ -0,0 +1,37 @@
+package com.iggroup.queue;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ *
+ * Spins for a while, then yields the core between checks
+ *
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public boolean await(final BooleanSupplier condition, final long timeoutNanos) throws InterruptedException {
+        final long start = System.nanoTime();
+        int counter = 0;
+        while (!condition.getAsBoolean()) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (System.nanoTime() - start >= timeoutNanos)
+                return false;
+
+            if (counter < SPIN_TRIES) {
+                counter++;
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void signalAll() {}
+
+}
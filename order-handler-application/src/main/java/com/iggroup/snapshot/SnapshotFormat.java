@@ -0,0 +1,63 @@
+package com.iggroup.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ *
+ * Binary layout of a snapshot file, shared by writer and loader.
+ * <br>
+ * Header: int magic, int version, long journal segment, int book count. <br>
+ * Per book: short length + UTF-8 symbol, short length + tick size, then the buy
+ * and the sell side, each as a run of {@link #ORDER} records ending with
+ * {@link #END_OF_SIDE}. Orders are written best price first and in arrival
+ * order within a price. <br>
+ * Trailer: long order count, int magic.
+ *
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x4F42534E;
+    static final int VERSION = 1;
+
+    static final byte END_OF_SIDE = 0;
+    /**
+     * long id, long price, int quantity, int modifications, long arrival time
+     */
+    static final byte ORDER = 1;
+
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    static final int ORDER_SIZE = 1 + 8 + 8 + 4 + 4 + 8;
+    static final int TRAILER_SIZE = 8 + 4;
+
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private SnapshotFormat() {}
+
+    static Path snapshot(final Path directory, final long sequence) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     *
+     * @return the snapshot with the highest sequence in the directory
+     */
+    static Optional<Path> latest(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory))
+            return Optional.empty();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                final String name = path.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).max(Path::compareTo);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.iggroup.snapshot;
+
+import static com.iggroup.snapshot.SnapshotFormat.END_OF_SIDE;
+import static com.iggroup.snapshot.SnapshotFormat.MAGIC;
+import static com.iggroup.snapshot.SnapshotFormat.ORDER;
+import static com.iggroup.snapshot.SnapshotFormat.ORDER_SIZE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+import com.iggroup.model.TickSize;
+import com.iggroup.provider.OrderBookProvider;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Loads a snapshot straight into the books of the provider, without matching or
+ * order locks. Must run before anything else uses the provider, then the journal
+ * is replayed from {@link #getJournalSegment()}.
+ * <br>
+ * Orders are stamped with a new sequence in file order, like journal replay
+ * does, so the loaded orders keep their priority and are older than any new
+ * order. An order
+ * seen twice, moved while the snapshot was written, is only loaded once; its
+ * journaled move puts it right.
+ *
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SnapshotLoader {
+
+    private static final Side[] SIDES = { Side.BUY, Side.SELL };
+
+    private final OrderBookProvider provider;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SnapshotFormat.BUFFER_SIZE);
+    private FileChannel channel;
+
+    /**
+     * First journal segment not covered by the snapshot, -1 if there was no journal
+     */
+    @Getter
+    private long journalSegment = -1L;
+    @Getter
+    private long orders;
+    @Getter
+    private long maxOrderId;
+
+    /**
+     *
+     * @return the latest snapshot in the directory
+     */
+    public static Optional<Path> latest(final Path directory) throws IOException {
+        return SnapshotFormat.latest(directory);
+    }
+
+    public SnapshotLoader load(final Path snapshot) throws IOException {
+        final long start = System.nanoTime();
+        buffer.clear().flip();
+        try (FileChannel fileChannel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            channel = fileChannel;
+            require(SnapshotFormat.HEADER_SIZE);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != SnapshotFormat.VERSION) {
+                throw new IllegalStateException("[" + snapshot + "] is not a version " + SnapshotFormat.VERSION + " order book snapshot");
+            }
+            journalSegment = buffer.getLong();
+            final int bookCount = buffer.getInt();
+            for (int i = 0; i < bookCount; i++) {
+                loadBook();
+            }
+            require(SnapshotFormat.TRAILER_SIZE);
+            final long written = buffer.getLong();
+            if (buffer.getInt() != MAGIC || written < orders) {
+                throw new IllegalStateException("[" + snapshot + "] is corrupt, trailer does not match the orders read");
+            }
+        } finally {
+            channel = null;
+        }
+        log.info("Loaded [{}] orders from snapshot [{}] in [{}] ms", orders, snapshot, (System.nanoTime() - start) / 1_000_000);
+        return this;
+    }
+
+    private void loadBook() throws IOException {
+        final String symbol = readString();
+        final TickSize tickSize = TickSize.of(readString());
+        provider.setTickSize(symbol, tickSize);
+        final OrderBook orderBook = provider.getOrderBook(provider.list(symbol));
+        for (Side side : SIDES) {
+            while (true) {
+                require(1);
+                final byte type = buffer.get();
+                if (type == END_OF_SIDE)
+                    break;
+                if (type != ORDER) {
+                    throw new IllegalStateException("Unknown snapshot record type [" + type + "]");
+                }
+                require(ORDER_SIZE - 1);
+                loadOrder(orderBook, side);
+            }
+        }
+    }
+
+    private void loadOrder(final OrderBook orderBook, final Side side) {
+        final long id = buffer.getLong();
+        final long price = buffer.getLong();
+        final int quantity = buffer.getInt();
+        final int modifications = buffer.getInt();
+        // Arrival time of the previous run, only the file order is kept
+        buffer.getLong();
+        if (provider.checkIfOrderExists(id))
+            return;
+
+        final Order order = new Order().init(id, orderBook.getSymbol(), side, price, quantity);
+        order.setModifications(modifications);
+        orderBook.addOrder(order);
+        orders++;
+        maxOrderId = Math.max(maxOrderId, id);
+    }
+
+    private String readString() throws IOException {
+        require(2);
+        final byte[] bytes = new byte[buffer.getShort()];
+        require(bytes.length);
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     *
+     * Makes sure the next size bytes are in the buffer
+     *
+     */
+    private void require(final int size) throws IOException {
+        if (buffer.remaining() >= size)
+            return;
+
+        buffer.compact();
+        while (buffer.position() < size) {
+            if (channel.read(buffer) < 0) {
+                throw new IllegalStateException("Snapshot is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.iggroup.snapshot;
+
+import static com.iggroup.snapshot.SnapshotFormat.END_OF_SIDE;
+import static com.iggroup.snapshot.SnapshotFormat.MAGIC;
+import static com.iggroup.snapshot.SnapshotFormat.ORDER;
+import static com.iggroup.snapshot.SnapshotFormat.ORDER_SIZE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Writes every book of the provider to a binary snapshot file while matching
+ * carries on, meant to be called from a background thread.
+ * <br>
+ * The journal is rolled first and the new segment recorded in the snapshot.
+ * Books are then read one price level at a time, each level held only while it
+ * is copied, so the snapshot is fuzzy: changes made while it is written may or
+ * may not be in it. They are all journaled from the recorded segment on, and as
+ * journal records carry resulting state, replaying them over the snapshot gives
+ * the books as they were when the journal stopped. An order rests in the same
+ * step as its add is journaled, so an order added before the roll is in the
+ * books walked.
+ *
+ */
+@Slf4j
+public class SnapshotWriter {
+
+    private static final Side[] SIDES = { Side.BUY, Side.SELL };
+
+    private final OrderBookProvider provider;
+    @Getter
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SnapshotFormat.BUFFER_SIZE);
+    private FileChannel channel;
+    private long orderCount;
+
+    public SnapshotWriter(final OrderBookProvider provider, final Path directory) {
+        this.provider = provider;
+        this.directory = directory;
+    }
+
+    /**
+     *
+     * Writes to a temporary file first, the snapshot only appears once complete
+     *
+     * @return the snapshot written
+     */
+    public synchronized Path write() throws IOException {
+        final long start = System.nanoTime();
+        Files.createDirectories(directory);
+        final long journalSegment = provider.getJournal().roll();
+        final Path snapshot = SnapshotFormat.snapshot(directory, System.currentTimeMillis());
+        final Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        final List<OrderBook> orderBooks = new ArrayList<>(provider.getOrderBooks().values());
+        orderCount = 0;
+        buffer.clear();
+        try (FileChannel fileChannel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                        StandardOpenOption.WRITE)) {
+            channel = fileChannel;
+            buffer.putInt(MAGIC).putInt(SnapshotFormat.VERSION).putLong(journalSegment).putInt(orderBooks.size());
+            for (OrderBook orderBook : orderBooks) {
+                writeBook(orderBook);
+            }
+            ensure(SnapshotFormat.TRAILER_SIZE);
+            buffer.putLong(orderCount).putInt(MAGIC);
+            drain();
+            fileChannel.force(true);
+        } finally {
+            channel = null;
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Snapshot of [{}] orders written to [{}] in [{}] ms", orderCount, snapshot, (System.nanoTime() - start) / 1_000_000);
+        return snapshot;
+    }
+
+    private void writeBook(final OrderBook orderBook) throws IOException {
+        final byte[] symbol = orderBook.getSymbol().getBytes(StandardCharsets.UTF_8);
+        final byte[] tickSize = orderBook.getTickSize().getValue().toPlainString().getBytes(StandardCharsets.UTF_8);
+        ensure(2 + symbol.length + 2 + tickSize.length);
+        buffer.putShort((short) symbol.length).put(symbol).putShort((short) tickSize.length).put(tickSize);
+        for (Side side : SIDES) {
+            for (PriceLevel level : orderBook.getOrders(side).values()) {
+                // Room made before holding the level, so the level is not held over file writes
+                ensure((level.getOrderCount() + 16) * ORDER_SIZE);
+                level.forEachLocked(this::writeOrder);
+            }
+            ensure(1);
+            buffer.put(END_OF_SIDE);
+        }
+    }
+
+    private void writeOrder(final Order order) {
+        try {
+            ensure(ORDER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.put(ORDER)
+              .putLong(order.getId())
+              .putLong(order.getPrice())
+              .putInt(order.getQuantity())
+              .putInt(order.getModifications())
+              .putLong(order.getArrivalTime());
+        orderCount++;
+    }
+
+    private void ensure(final int size) throws IOException {
+        if (buffer.remaining() < size) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
@@ -1,163 +1,127 @@
 package com.iggroup.trade.consumer;
 
-import java.math.BigDecimal;
-import java.util.Iterator;
-import java.util.Map.Entry;
-import java.util.NavigableSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.function.Consumer;
 
-import com.iggroup.lock.OrdersLock;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.metrics.LatencyStage;
+import com.iggroup.metrics.ThreadUtilisation;
 import com.iggroup.model.Order;
-import com.iggroup.model.Side;
+import com.iggroup.model.OrderBook;
 import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.trade.matcher.OrderMatcher;
 
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import lombok.Getter;
 
-@Slf4j
-@RequiredArgsConstructor
 public class TradeOrderConsumer implements Runnable {
 
-    private static final String SIDE_TRADE_EXECUTED_LOG_FORMAT = "OrderId [{}]: {} TRADE EXECUTED at price: [{}] and amount [{}] against OrderId [{}]";
+    public static final int BATCH_SIZE = 256;
 
     private final OrderBookProvider provider;
     private final BlockingQueue<Order> tradeQueue;
-    private final Consumer<Order> removeConsumer;
+    private final OrderLocking locking;
+    private final OrderMatcher matcher;
+    @Getter
+    private final ThreadUtilisation utilisation = new ThreadUtilisation();
 
+    /**
+     *
+     * @param filledConsumer takes each filled order once the matcher took it out
+     *                       of its book, see {@link com.iggroup.handler.DefaultOrderHandler#removeFilled(Order)}
+     */
+    public TradeOrderConsumer(final OrderBookProvider provider, final BlockingQueue<Order> tradeQueue, final Consumer<Order> filledConsumer) {
+        this(provider, tradeQueue, filledConsumer, OrderLocking.SHARED);
+    }
+
+    public TradeOrderConsumer(final OrderBookProvider provider, final BlockingQueue<Order> tradeQueue, final Consumer<Order> filledConsumer,
+                              final OrderLocking locking) {
+        this.provider = provider;
+        this.tradeQueue = tradeQueue;
+        this.locking = locking;
+        this.matcher = new OrderMatcher(provider, filledConsumer, locking);
+    }
+
+    /**
+     *
+     * Each wake-up drains up to {@link #BATCH_SIZE} queued orders at once. Time
+     * waiting on the queue and time working on a batch go to the utilisation.
+     *
+     */
     @Override
     public void run() {
+        final List<Order> batch = new ArrayList<>(BATCH_SIZE);
         while (true) {
-            Order order = null;
+            final long waitStart = System.nanoTime();
             try {
-                order = tradeQueue.take();
-                OrdersLock.acquireLock(order.getId()).lock();
-                executeTradePlan(order);
+                batch.add(tradeQueue.take());
+                tradeQueue.drainTo(batch, BATCH_SIZE - 1);
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
-            } finally {
-                if (order != null) OrdersLock.unlock(order.getId());
             }
+            final long batchStart = System.nanoTime();
+            utilisation.idle(batchStart - waitStart);
+            for (Order order : batch) {
+                dequeued(order);
+            }
+            for (Order order : batch) {
+                matchResting(order);
+            }
+            batch.clear();
+            utilisation.busy(System.nanoTime() - batchStart);
         }
     }
 
     /**
-     * 
-     * Checks if order price matches against the order (level 1 of order book). If
-     * matches, execute trade. <br>
-     * Scenario 1: Order fill the opposite side order but with quantity left,
-     * continue to look for next level for price match and repeat <br>
-     * Scenario 2: Order completely fill the opposite side order with all of the
-     * quantity <br>
-     * Scenario 3: Order unable to completely fill the opposite side order. <br>
-     * 
-     * @param order
+     *
+     * Records how long the order waited on the trade queue, see
+     * {@link LatencyStage#QUEUE_WAIT}
+     *
      */
-    public void executeTradePlan(final Order order) {
-        if (!provider.checkIfOrderExists(order))
+    private void dequeued(final Order order) {
+        final long queuedTime = order.getQueuedTime();
+        if (queuedTime == 0L)
             return;
 
-        final ConcurrentNavigableMap<BigDecimal, NavigableSet<Order>> orderMap = getOppositeSideOrderMap(order.getSymbol(), order.getSide());
-        log.debug("ExecuteTradePlan for OrderId [{}]", order.getId());
-        log.debug("Checking if price matches for trade...");
-        for (Entry<BigDecimal, NavigableSet<Order>> entry : orderMap.entrySet()) {
-            if (!priceMatch(entry.getKey(), order)) {
-                log.debug("No further price match for trade.");
-                return;
-            }
-
-            // Ask price is lower than/equal to bid price
-            // Or the bid price is greater than/equal the ask price
-            log.debug("Price matches...");
-            int quantityLeft = executeTrade(order, entry);
-            if (quantityLeft <= 0)
-                return;
+        order.setQueuedTime(0L);
+        final OrderBook orderBook = provider.getOrderBook(order);
+        if (orderBook != null) {
+            orderBook.getLatencies().record(LatencyStage.QUEUE_WAIT, queuedTime);
         }
     }
 
-    private int executeTrade(final Order order, final Entry<BigDecimal, NavigableSet<Order>> entry) {
-        for (final Order orderToTradeAgainst : entry.getValue()) {
-            if (!isBeforeArrivalDateTime(order, orderToTradeAgainst))
-                continue;
-
-            log.debug("Price match against orderId: {}", orderToTradeAgainst.getId());
-            OrdersLock.acquireLock(orderToTradeAgainst.getId()).lock();
-            if (!provider.checkIfOrderExists(orderToTradeAgainst) || !checkIfPriceIsStillSameLevel(orderToTradeAgainst.getPrice().get(), entry.getKey())) {
-                OrdersLock.unlock(orderToTradeAgainst.getId());
-                continue;
-            }
-
-            log.debug("Trade executing for orderId [{}]... against orderId [{}]", order.getId(), orderToTradeAgainst.getId());
-            int previousQuantTotal = order.getQuantity().getPlain();
-            order.getQuantity().set(order.getQuantity().get() - orderToTradeAgainst.getQuantity().get());
-            if (order.getQuantity().get() > 0) {
-                // Order to trade is completely filled and order is partially filled
-                orderCompletelyFilledAndOrderAgainstPartiallyFilled(order, orderToTradeAgainst, previousQuantTotal);
-            } else if (order.getQuantity().get() == 0) {
-                // Both orders is completely filled
-                return orderAndOrderAgainstCompletelyFilled(order, orderToTradeAgainst);
-            } else {
-                // Order to trade partially filled and order is completely filled
-                return orderPartiallyFilledAndOrderAgainstCompletelyFilled(order, orderToTradeAgainst, previousQuantTotal);
-            }
-        }
-        return order.getQuantity().get();
-    }
-
-    private boolean checkIfPriceIsStillSameLevel(BigDecimal price, BigDecimal currentPriceLevel) {
-        return price.compareTo(currentPriceLevel) == 0;
-    }
-
-    private void orderCompletelyFilledAndOrderAgainstPartiallyFilled(final Order order, final Order orderToTradeAgainst, int previousQuantTotal) {
-        orderToTradeAgainst.getQuantity().set(0);
-        removeConsumer.accept(orderToTradeAgainst);
-        OrdersLock.unlock(orderToTradeAgainst.getId());
-        log.debug(SIDE_TRADE_EXECUTED_LOG_FORMAT, order.getId(), order.getSide(), orderToTradeAgainst.getPrice().get(),
-                  Math.abs(order.getQuantity().get() - previousQuantTotal), orderToTradeAgainst.getId());
-    }
-
-    private int orderAndOrderAgainstCompletelyFilled(final Order order, final Order orderToTradeAgainst) {
-        order.getQuantity().set(0);
-        orderToTradeAgainst.getQuantity().set(0);
-        removeConsumer.accept(orderToTradeAgainst);
-        removeConsumer.accept(order);
-        OrdersLock.unlock(orderToTradeAgainst.getId());
-        log.debug(SIDE_TRADE_EXECUTED_LOG_FORMAT, order.getId(), order.getSide(), orderToTradeAgainst.getPrice().get(), order.getQuantity(),
-                  orderToTradeAgainst.getId());
-        return order.getQuantity().get();
-    }
-
-    private int orderPartiallyFilledAndOrderAgainstCompletelyFilled(final Order order, final Order orderToTradeAgainst, int previousQuantTotal) {
-        orderToTradeAgainst.getQuantity().set(Math.abs(order.getQuantity().get()));
-        order.getQuantity().set(0);
-        removeConsumer.accept(order);
-        OrdersLock.unlock(orderToTradeAgainst.getId());
-        log.debug(SIDE_TRADE_EXECUTED_LOG_FORMAT, order.getId(), order.getSide(), orderToTradeAgainst.getPrice().get(), previousQuantTotal,
-                  orderToTradeAgainst.getId());
-        return order.getQuantity().get();
-    }
-
-    private boolean isBeforeArrivalDateTime(Order order, Order orderToTradeAgainst) {
-        return order.compareTo(orderToTradeAgainst) > 0;
+    /**
+     *
+     * Matches an order already resting in the book, see
+     * {@link OrderMatcher#executeTradePlan(Order)}
+     *
+     */
+    public boolean executeTradePlan(final Order order) {
+        return matcher.executeTradePlan(order);
     }
 
     /**
-     * 
-     * If Ask price is lower than/equal to bid price Or the bid price is
-     * greater/equal than the ask price. The Price matches and will return true,
-     * otherwise false
-     * 
-     * @param levelPrice
-     * @param order
-     * @return
+     *
+     * Matches under the order's lock. When a resting order it crosses is locked
+     * by another thread out of stripe order, the lock is let go of so that thread
+     * can finish, and matching starts again.
+     *
      */
-    private boolean priceMatch(BigDecimal levelPrice, Order order) {
-        return levelPrice.compareTo(order.getPrice().get()) != (order.getSide() == Side.BUY ? 1 : -1);
-    }
+    private void matchResting(final Order order) {
+        while (true) {
+            locking.lock(order.getId());
+            final boolean matched;
+            try {
+                matched = executeTradePlan(order);
+            } finally {
+                locking.unlock(order.getId());
+            }
+            if (matched)
+                return;
 
-    private ConcurrentNavigableMap<BigDecimal, NavigableSet<Order>> getOppositeSideOrderMap(final String symbol, final Side side) {
-        return provider.getOrderBookBySymbol(symbol).getOrders(side == Side.BUY ? Side.SELL : Side.BUY);
+            Thread.yield();
+        }
     }
 
 }
@@ -0,0 +1,70 @@
+package com.iggroup.trade.event;
+
+import com.iggroup.model.Side;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ *
+ * One execution between an aggressor, the newer order, and the resting order it
+ * traded against. Price in ticks of the symbol.
+ * <br>
+ * Instances are preallocated slots of the {@link TradeEventPublisher} ring and
+ * are overwritten once every listener has moved past them, a listener must copy
+ * what it keeps before returning.
+ *
+ */
+@Getter
+@ToString
+public final class TradeEvent {
+
+    /**
+     * Gap-free, in publication order
+     */
+    private long sequence;
+    /**
+     * Epoch millis of the execution
+     */
+    private long timestamp;
+    private String symbol;
+    private long aggressorId;
+    private Side aggressorSide;
+    /**
+     * Gateway session of the aggressor, 0 when it did not come through the gateway
+     */
+    private int aggressorSessionId;
+    private long restingId;
+    private int restingSessionId;
+    private long price;
+    private int quantity;
+    private int aggressorQuantityLeft;
+    private int restingQuantityLeft;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    volatile long publishedSequence = -1L;
+
+    public Side getRestingSide() {
+        return aggressorSide == Side.BUY ? Side.SELL : Side.BUY;
+    }
+
+    void set(final long sequence, final String symbol, final long aggressorId, final Side aggressorSide, final int aggressorSessionId,
+             final long restingId, final int restingSessionId, final long price, final int quantity, final int aggressorQuantityLeft,
+             final int restingQuantityLeft) {
+        this.sequence = sequence;
+        this.timestamp = System.currentTimeMillis();
+        this.symbol = symbol;
+        this.aggressorId = aggressorId;
+        this.aggressorSide = aggressorSide;
+        this.aggressorSessionId = aggressorSessionId;
+        this.restingId = restingId;
+        this.restingSessionId = restingSessionId;
+        this.price = price;
+        this.quantity = quantity;
+        this.aggressorQuantityLeft = aggressorQuantityLeft;
+        this.restingQuantityLeft = restingQuantityLeft;
+    }
+
+}
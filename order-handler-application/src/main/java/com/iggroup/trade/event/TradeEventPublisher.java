@@ -0,0 +1,210 @@
+package com.iggroup.trade.event;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import com.iggroup.model.Side;
+import com.iggroup.queue.WaitStrategy;
+import com.iggroup.queue.YieldingWaitStrategy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Hands executions from the matching threads to {@link TradeListener}s through a
+ * ring of {@link TradeEvent}s preallocated at construction. Publishing claims a
+ * sequence with one atomic increment and fills the slot in place, nothing is
+ * allocated or locked.
+ * <br>
+ * Every listener runs on its own thread with its own position in the ring and
+ * sees every event. A publisher only waits when the ring is full, i.e. when the
+ * slowest listener is a whole ring behind; fills are never dropped. With no
+ * listener, publishing returns straight away.
+ *
+ */
+@Slf4j
+public class TradeEventPublisher {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /**
+     * Publishes to nobody and cannot be subscribed to
+     */
+    public static final TradeEventPublisher NONE = new TradeEventPublisher(1, new YieldingWaitStrategy());
+
+    private final TradeEvent[] ring;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile Processor[] processors = new Processor[0];
+
+    /**
+     *
+     * @param capacity rounded up to a power of two
+     * @param waitStrategy shared by the listeners waiting for events and the
+     *                     publishers waiting for room
+     */
+    public TradeEventPublisher(final int capacity, final WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got [" + capacity + "]");
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.ring = new TradeEvent[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new TradeEvent();
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     *
+     * Starts a daemon thread delivering every event published from now on
+     *
+     */
+    public synchronized void subscribe(final String name, final TradeListener listener) {
+        if (this == NONE) {
+            throw new UnsupportedOperationException("Cannot subscribe to TradeEventPublisher.NONE");
+        }
+        final Processor processor = new Processor(listener, claimed.get());
+        final Processor[] current = processors;
+        final Processor[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = processor;
+        processors = updated;
+        processor.thread = new Thread(processor, "trade-listener-" + name);
+        processor.thread.setDaemon(true);
+        processor.thread.start();
+    }
+
+    /**
+     *
+     * Stops the listener's thread once it has delivered the events already
+     * published
+     *
+     */
+    public synchronized void unsubscribe(final TradeListener listener) throws InterruptedException {
+        final Processor[] current = processors;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener == listener) {
+                final Processor processor = current[i];
+                final Processor[] updated = new Processor[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                processor.stopAt = claimed.get();
+                processors = updated;
+                waitStrategy.signalAll();
+                processor.thread.join();
+                return;
+            }
+        }
+    }
+
+    public boolean hasListeners() {
+        return processors.length > 0;
+    }
+
+    /**
+     *
+     * Called by the matcher right after an execution was applied to the book
+     *
+     * @param aggressorSessionId gateway session of the order, 0 if none
+     */
+    public void publish(final String symbol, final long aggressorId, final Side aggressorSide, final int aggressorSessionId, final long restingId,
+                        final int restingSessionId, final long price, final int quantity, final int aggressorQuantityLeft,
+                        final int restingQuantityLeft) {
+        if (processors.length == 0)
+            return;
+
+        final long sequence = claimed.getAndIncrement();
+        if (sequence - ring.length >= minimumPosition()) {
+            awaitRoom(sequence);
+        }
+        final TradeEvent event = ring[(int) sequence & mask];
+        event.set(sequence, symbol, aggressorId, aggressorSide, aggressorSessionId, restingId, restingSessionId, price, quantity,
+                  aggressorQuantityLeft, restingQuantityLeft);
+        event.publishedSequence = sequence;
+        waitStrategy.signalAll();
+    }
+
+    private void awaitRoom(final long sequence) {
+        final BooleanSupplier room = () -> sequence - ring.length < minimumPosition();
+        try {
+            while (!waitStrategy.await(room, Long.MAX_VALUE)) {
+                // Retried until the slowest listener frees the slot
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room to publish trade [" + sequence + "]", e);
+        }
+    }
+
+    /**
+     *
+     * Next sequence the slowest listener will read
+     *
+     */
+    private long minimumPosition() {
+        long minimum = Long.MAX_VALUE;
+        for (Processor processor : processors) {
+            minimum = Math.min(minimum, processor.position);
+        }
+        return minimum;
+    }
+
+    /**
+     *
+     * Delivers the events of one listener, in batches of whatever is published
+     *
+     */
+    private final class Processor implements Runnable {
+
+        private final TradeListener listener;
+        private final BooleanSupplier publishedOrStopped = this::isNextPublishedOrStopped;
+        private volatile long position;
+        private volatile long stopAt = Long.MAX_VALUE;
+        private Thread thread;
+
+        private Processor(final TradeListener listener, final long position) {
+            this.listener = listener;
+            this.position = position;
+        }
+
+        @Override
+        public void run() {
+            long next = position;
+            while (next < stopAt) {
+                try {
+                    if (!isNextPublished()) {
+                        waitStrategy.await(publishedOrStopped, Long.MAX_VALUE);
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                TradeEvent event;
+                while (next < stopAt && (event = ring[(int) next & mask]).publishedSequence == next) {
+                    try {
+                        listener.onTrade(event);
+                    } catch (RuntimeException e) {
+                        log.error("Trade listener [{}] failed on trade [{}]", thread.getName(), next, e);
+                    }
+                    next++;
+                }
+                position = next;
+                waitStrategy.signalAll();
+            }
+            log.debug("Trade listener [{}] stopped at [{}]", thread.getName(), next);
+        }
+
+        private boolean isNextPublished() {
+            final long next = position;
+            return ring[(int) next & mask].publishedSequence == next;
+        }
+
+        private boolean isNextPublishedOrStopped() {
+            return position >= stopAt || isNextPublished();
+        }
+    }
+
+}
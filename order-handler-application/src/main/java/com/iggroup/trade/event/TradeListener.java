@@ -0,0 +1,13 @@
+package com.iggroup.trade.event;
+
+/**
+ *
+ * Receives every execution in sequence order, on a thread of its own
+ *
+ */
+@FunctionalInterface
+public interface TradeListener {
+
+    void onTrade(TradeEvent event);
+
+}
@@ -0,0 +1,281 @@
+package com.iggroup.trade.matcher;
+
+import java.util.function.Consumer;
+
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.metrics.LatencyRecorder;
+import com.iggroup.metrics.LatencyStage;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.PriceLevels;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ *
+ * Price-time matching of an order against the opposite side of its book, either
+ * for an order already resting or for one that has just arrived.
+ *
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class OrderMatcher {
+
+    /**
+     * Returned by a level when a resting order is locked by another thread
+     */
+    private static final int CONTENDED = -1;
+    private static final String SIDE_TRADE_EXECUTED_LOG_FORMAT = "OrderId [{}]: {} TRADE EXECUTED at price: [{}] and amount [{}] against OrderId [{}]";
+
+    private final OrderBookProvider provider;
+    /**
+     * Takes each filled order once it has left the book and its trade was
+     * recorded, to journal, count and recycle it
+     */
+    private final Consumer<Order> filledConsumer;
+    private final OrderLocking locking;
+
+    /**
+     * 
+     * Checks if order price matches against the order (level 1 of order book). If
+     * matches, execute trade. <br>
+     * Scenario 1: Order fill the opposite side order but with quantity left,
+     * continue to look for next level for price match and repeat <br>
+     * Scenario 2: Order completely fill the opposite side order with all of the
+     * quantity <br>
+     * Scenario 3: Order unable to completely fill the opposite side order. <br>
+     * 
+     * @param order
+     * @return false if matching stopped at a resting order locked by another
+     *         thread, it has to be done again once the order's lock was let go of
+     */
+    public boolean executeTradePlan(final Order order) {
+        if (!provider.checkIfOrderExists(order))
+            return true;
+
+        return timedMatch(provider.getOrderBook(order), order);
+    }
+
+    /**
+     *
+     * Crosses an incoming order that is not resting yet against the opposite side
+     * of its book. Only the quantity left, if any, should then be added to the
+     * book, so a marketable order is never visible on the wrong side.
+     * <br>
+     * Crossing stops at a resting order locked by another thread rather than
+     * waiting out of lock order, the quantity left then rests and is re-checked
+     * from the trade queue.
+     *
+     * @param order
+     * @return quantity left to rest
+     */
+    public int crossIncoming(final Order order) {
+        return crossIncoming(provider.getOrderBook(order), order);
+    }
+
+    /**
+     *
+     * @param orderBook book of the order's symbol, already looked up by the caller
+     */
+    public int crossIncoming(final OrderBook orderBook, final Order order) {
+        timedMatch(orderBook, order);
+        return order.getQuantity();
+    }
+
+    private boolean timedMatch(final OrderBook orderBook, final Order order) {
+        final long start = LatencyRecorder.start();
+        final boolean matched = match(orderBook, order);
+        orderBook.getLatencies().record(LatencyStage.MATCHING, start);
+        return matched;
+    }
+
+    /**
+     *
+     * @return false if stopped at a resting order locked by another thread
+     */
+    private boolean match(final OrderBook orderBook, final Order order) {
+        final PriceLevels orderMap = getOppositeSideOrderMap(orderBook, order.getSide());
+        log.debug("ExecuteTradePlan for OrderId [{}]", order.getId());
+        log.debug("Checking if price matches for trade...");
+        for (PriceLevel level : orderMap.values()) {
+            if (!priceMatch(level.getPrice(), order)) {
+                log.debug("No further price match for trade.");
+                return true;
+            }
+
+            // Ask price is lower than/equal to bid price
+            // Or the bid price is greater than/equal the ask price
+            log.debug("Price matches...");
+            int quantityLeft = executeTrade(orderBook, order, level);
+            if (quantityLeft == CONTENDED)
+                return false;
+            if (quantityLeft == 0)
+                return true;
+        }
+        return true;
+    }
+
+    private int executeTrade(final OrderBook orderBook, final Order order, final PriceLevel level) {
+        Order next;
+        for (Order orderToTradeAgainst = level.first(); orderToTradeAgainst != null; orderToTradeAgainst = next) {
+            // Taken before trading as a filled order is unlinked from the level
+            next = orderToTradeAgainst.getNext();
+            if (!arrivedAfter(order, orderToTradeAgainst))
+                continue;
+
+            log.debug("Price match against orderId: {}", orderToTradeAgainst.getId());
+            // The order's own lock may be held, a stripe out of order is only tried
+            if (!locking.lockAfter(order.getId(), orderToTradeAgainst.getId())) {
+                log.debug("OrderId [{}] is locked by another thread, matching of OrderId [{}] stops", orderToTradeAgainst.getId(), order.getId());
+                return CONTENDED;
+            }
+            if (!provider.checkIfOrderExists(orderToTradeAgainst) || !checkIfPriceIsStillSameLevel(orderToTradeAgainst.getPrice(), level.getPrice())) {
+                locking.unlock(orderToTradeAgainst.getId());
+                continue;
+            }
+
+            log.debug("Trade executing for orderId [{}]... against orderId [{}]", order.getId(), orderToTradeAgainst.getId());
+            int previousQuantTotal = order.getQuantity();
+            int quantityLeft = previousQuantTotal - orderToTradeAgainst.getQuantity();
+            if (quantityLeft > 0) {
+                // Order to trade is completely filled and order is partially filled
+                orderCompletelyFilledAndOrderAgainstPartiallyFilled(orderBook, order, orderToTradeAgainst, quantityLeft);
+            } else if (quantityLeft == 0) {
+                // Both orders is completely filled
+                return orderAndOrderAgainstCompletelyFilled(orderBook, order, orderToTradeAgainst);
+            } else {
+                // Order to trade partially filled and order is completely filled
+                return orderPartiallyFilledAndOrderAgainstCompletelyFilled(orderBook, order, orderToTradeAgainst, quantityLeft);
+            }
+        }
+        return order.getQuantity();
+    }
+
+    private boolean checkIfPriceIsStillSameLevel(long price, long currentPriceLevel) {
+        return price == currentPriceLevel;
+    }
+
+    /*
+     * Readers of the book see both quantities and the filled orders leaving it
+     * as one change. The trade is recorded once the change is over, so journal
+     * I/O and a full event ring never hold readers back, from what was captured
+     * before a filled order is handed on and may be recycled.
+     */
+    private void orderCompletelyFilledAndOrderAgainstPartiallyFilled(final OrderBook orderBook, final Order order, final Order orderToTradeAgainst,
+                                                                     int quantityLeft) {
+        final long orderToTradeAgainstId = orderToTradeAgainst.getId();
+        final int orderToTradeAgainstSessionId = orderToTradeAgainst.getSessionId();
+        final long price = orderToTradeAgainst.getPrice();
+        final int tradedQuantity = orderToTradeAgainst.getQuantity();
+        log.debug(SIDE_TRADE_EXECUTED_LOG_FORMAT, order.getId(), order.getSide(), price, tradedQuantity, orderToTradeAgainstId);
+        orderBook.beginChange();
+        try {
+            orderBook.updateQuantity(order, quantityLeft);
+            orderBook.updateQuantity(orderToTradeAgainst, 0);
+            orderBook.removeOrder(orderToTradeAgainst);
+        } finally {
+            orderBook.endChange();
+        }
+        executed(order, orderToTradeAgainstId, orderToTradeAgainstSessionId, price, tradedQuantity, quantityLeft, 0);
+        filledConsumer.accept(orderToTradeAgainst);
+        locking.unlock(orderToTradeAgainstId);
+    }
+
+    private int orderAndOrderAgainstCompletelyFilled(final OrderBook orderBook, final Order order, final Order orderToTradeAgainst) {
+        final long orderToTradeAgainstId = orderToTradeAgainst.getId();
+        final int orderToTradeAgainstSessionId = orderToTradeAgainst.getSessionId();
+        final long price = orderToTradeAgainst.getPrice();
+        final int tradedQuantity = order.getQuantity();
+        log.debug(SIDE_TRADE_EXECUTED_LOG_FORMAT, order.getId(), order.getSide(), price, tradedQuantity, orderToTradeAgainstId);
+        final boolean resting;
+        orderBook.beginChange();
+        try {
+            orderBook.updateQuantity(order, 0);
+            orderBook.updateQuantity(orderToTradeAgainst, 0);
+            orderBook.removeOrder(orderToTradeAgainst);
+            resting = orderBook.removeOrder(order);
+        } finally {
+            orderBook.endChange();
+        }
+        executed(order, orderToTradeAgainstId, orderToTradeAgainstSessionId, price, tradedQuantity, 0, 0);
+        filledConsumer.accept(orderToTradeAgainst);
+        filledIfRested(order, resting);
+        locking.unlock(orderToTradeAgainstId);
+        return 0;
+    }
+
+    private int orderPartiallyFilledAndOrderAgainstCompletelyFilled(final OrderBook orderBook, final Order order, final Order orderToTradeAgainst,
+                                                                    int quantityLeft) {
+        final long orderToTradeAgainstId = orderToTradeAgainst.getId();
+        final int tradedQuantity = order.getQuantity();
+        log.debug(SIDE_TRADE_EXECUTED_LOG_FORMAT, order.getId(), order.getSide(), orderToTradeAgainst.getPrice(), tradedQuantity,
+                  orderToTradeAgainstId);
+        final boolean resting;
+        orderBook.beginChange();
+        try {
+            orderBook.updateQuantity(orderToTradeAgainst, Math.abs(quantityLeft));
+            orderBook.updateQuantity(order, 0);
+            resting = orderBook.removeOrder(order);
+        } finally {
+            orderBook.endChange();
+        }
+        executed(order, orderToTradeAgainstId, orderToTradeAgainst.getSessionId(), orderToTradeAgainst.getPrice(), tradedQuantity, 0,
+                 Math.abs(quantityLeft));
+        filledIfRested(order, resting);
+        locking.unlock(orderToTradeAgainstId);
+        return 0;
+    }
+
+    /**
+     *
+     * Records an execution once the book shows it, before either order is handed
+     * on to be recycled
+     *
+     */
+    private void executed(final Order order, final long orderToTradeAgainstId, final int orderToTradeAgainstSessionId, final long price,
+                          final int tradedQuantity, final int quantityLeft, final int quantityLeftAgainst) {
+        provider.getJournal().trade(order.getId(), orderToTradeAgainstId, price, tradedQuantity, quantityLeft, quantityLeftAgainst);
+        provider.getTradeEvents().publish(order.getSymbol(), order.getId(), order.getSide(), order.getSessionId(), orderToTradeAgainstId,
+                                          orderToTradeAgainstSessionId, price, tradedQuantity, quantityLeft, quantityLeftAgainst);
+        provider.getCounters().filled();
+    }
+
+    private void filledIfRested(final Order order, final boolean resting) {
+        // An incoming order filled on arrival was never added to the book
+        if (resting)
+            filledConsumer.accept(order);
+    }
+
+    /**
+     *
+     * A resting order re-checked by a consumer only trades against orders stamped
+     * before it, newer ones take it when they are checked themselves
+     *
+     */
+    private boolean arrivedAfter(final Order order, final Order orderToTradeAgainst) {
+        return order.getSequence() > orderToTradeAgainst.getSequence();
+    }
+
+    /**
+     * 
+     * If Ask price is lower than/equal to bid price Or the bid price is
+     * greater/equal than the ask price. The Price matches and will return true,
+     * otherwise false
+     * 
+     * @param levelPrice
+     * @param order
+     * @return
+     */
+    private boolean priceMatch(long levelPrice, Order order) {
+        return order.getSide() == Side.BUY ? levelPrice <= order.getPrice() : levelPrice >= order.getPrice();
+    }
+
+    private PriceLevels getOppositeSideOrderMap(final OrderBook orderBook, final Side side) {
+        return orderBook.getOrders(side == Side.BUY ? Side.SELL : Side.BUY);
+    }
+
+}
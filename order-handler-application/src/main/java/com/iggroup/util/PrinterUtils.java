@@ -1,18 +1,13 @@
 package com.iggroup.util;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NavigableSet;
-import java.util.Optional;
 
-import org.apache.commons.lang3.tuple.Pair;
-
-import com.iggroup.model.Order;
 import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.TickSize;
 
 import dnl.utils.text.table.TextTable;
 import lombok.extern.slf4j.Slf4j;
@@ -25,8 +20,8 @@ public final class PrinterUtils {
     private PrinterUtils() {}
 
     public static void printStatus(final OrderBook orderBook) {
-        printStatus(orderBook, Math.max(orderBook.getBuyOrders().values().size(),
-                                        orderBook.getSellOrders().values().size()));
+        printStatus(orderBook, Math.max(orderBook.getBuyOrders().size(),
+                                        orderBook.getSellOrders().size()));
     }
 
     /**
@@ -44,38 +39,52 @@ public final class PrinterUtils {
      *   | 1          | 5           | 30       | 3    | -        | -           | -          |
      * </pre>
      * 
+     * The rows are read again if the book changed while they were read, so the
+     * table shows the book as it was between two changes, never half a trade.
+     * 
      */
     public static void printStatus(final OrderBook orderBook, final int maxPriceLevel) {
-        Collection<NavigableSet<Order>> buyOrders = orderBook.getBuyOrders().values();
-        Collection<NavigableSet<Order>> sellOrders = orderBook.getSellOrders().values();
-        Iterator<NavigableSet<Order>> buyIt = buyOrders.iterator();
-        Iterator<NavigableSet<Order>> sellIt = sellOrders.iterator();
+        String[][] data;
+        long stamp;
+        do {
+            stamp = orderBook.beginRead();
+            data = readRows(orderBook, maxPriceLevel);
+        } while (!orderBook.validate(stamp));
+        log.info("\n================================== SYMBOL [{}] ==================================", orderBook.getSymbol());
+        new TextTable(HEADERS, data).printTable();
+    }
+
+    private static String[][] readRows(final OrderBook orderBook, final int maxPriceLevel) {
+        Iterator<PriceLevel> buyIt = orderBook.getBuyOrders().values().iterator();
+        Iterator<PriceLevel> sellIt = orderBook.getSellOrders().values().iterator();
         final String[][] data = new String[maxPriceLevel][];
         int level = 0;
         while (level++ < maxPriceLevel){
             List<String> row = new ArrayList<>();
-            row.addAll(getDataFromOrders(sellIt));
+            row.addAll(getDataFromLevel(sellIt, orderBook.getTickSize()));
             row.add(String.valueOf(level));
 
-            List<String> buyData = getDataFromOrders(buyIt);
+            List<String> buyData = getDataFromLevel(buyIt, orderBook.getTickSize());
             Collections.reverse(buyData);
             row.addAll(buyData);
 
             data[level - 1] = row.toArray(new String[0]);
         }
-        log.info("\n================================== SYMBOL [{}] ==================================", orderBook.getSymbol());
-        new TextTable(HEADERS, data).printTable();
+        return data;
     }
 
-    private static List<String> getDataFromOrders(Iterator<NavigableSet<Order>> sellIt) {
+    /**
+     * 
+     * Reads the cached order count and total quantity of the next level
+     * 
+     */
+    private static List<String> getDataFromLevel(Iterator<PriceLevel> levelIt, TickSize tickSize) {
         List<String> data = new ArrayList<>();
-        if (sellIt.hasNext()) {
-            Collection<Order> sellOrders = sellIt.next();
-            mapToPAndQ(sellOrders).ifPresentOrElse(pair -> {
-                data.add(String.valueOf(sellOrders.size()));
-                data.add(pair.getRight().toString());
-                data.add(pair.getLeft().toPlainString());
-            }, () -> addEmptyDataOrder(data));
+        if (levelIt.hasNext()) {
+            PriceLevel priceLevel = levelIt.next();
+            data.add(String.valueOf(priceLevel.getOrderCount()));
+            data.add(String.valueOf(priceLevel.getTotalQuantity()));
+            data.add(tickSize.toPrice(priceLevel.getPrice()).toPlainString());
         } else {
             addEmptyDataOrder(data);
         }
@@ -88,17 +97,4 @@ public final class PrinterUtils {
         row.add("-");
     }
 
-    /**
-     * 
-     * Returns a pair with price and combined quantity of an order for that price
-     * 
-     * @param sellOrders
-     * @return
-     */
-    private static Optional<Pair<BigDecimal, Integer>> mapToPAndQ(Collection<Order> sellOrders) {
-        return sellOrders.stream()
-                         .map(order -> Pair.of(order.getPrice().get(), order.getQuantity().get()))
-                         .reduce((a, b) -> Pair.of(a.getLeft(), a.getRight() + b.getRight()));
-    }
-
 }
@@ -0,0 +1,240 @@
+package com.iggroup.engine;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.toTicks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderAmendment;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.BlockingWaitStrategy;
+
+class MatchingEngineTest {
+
+    private static final String SYMBOL_IGG = "IGG";
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private MatchingEngine engine;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+        engine = new MatchingEngine(provider, 4);
+        engine.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+
+    @Test
+    void testRouteIsStablePerSymbol() {
+        assertSame(engine.route(SYMBOL_IGG), engine.route(SYMBOL_IGG));
+        assertSame(engine.route(SYMBOL_IGG), engine.route(new String("IGG")));
+    }
+
+    @Test
+    void testAddRestsNonCrossingOrders() throws InterruptedException {
+        // Given
+        Order buyOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        Order sellOrder = createOrder(Side.SELL, BigDecimal.valueOf(11));
+
+        // When
+        engine.addOrder(buyOrder);
+        engine.addOrder(sellOrder);
+        awaitShard(SYMBOL_IGG);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(buyOrder.getPrice());
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).containsOnlyKeys(sellOrder.getPrice());
+    }
+
+    @Test
+    void testAddMatchesOnOwningShard() throws InterruptedException {
+        // Given
+        Order sellOrder = createOrder(Side.SELL, BigDecimal.TEN);
+        Order buyOrder = createOrder(Side.BUY, BigDecimal.TEN);
+
+        // When
+        engine.addOrder(sellOrder);
+        engine.addOrder(buyOrder);
+        awaitShard(SYMBOL_IGG);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).isEmpty();
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).isEmpty();
+        assertThat(buyOrder.getQuantity()).isZero();
+        assertThat(sellOrder.getQuantity()).isZero();
+    }
+
+    @Test
+    void testRejectedModificationDoesNotStopShard() throws InterruptedException {
+        // Given
+        Order order = createOrder(Side.BUY, BigDecimal.TEN);
+        order.setModifications(5);
+        Order modifiedOrder = createOrder(Side.BUY, BigDecimal.ONE);
+        modifiedOrder.setId(order.getId());
+        Order removedOrder = createOrder(Side.BUY, BigDecimal.ONE);
+
+        // When
+        engine.addOrder(order);
+        engine.modifyOrder(order, modifiedOrder);
+        engine.addOrder(removedOrder);
+        engine.removeOrder(removedOrder);
+        awaitShard(SYMBOL_IGG);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(toTicks(10));
+    }
+
+    @Test
+    void testBatchesAreSplitByOwningShard() throws InterruptedException {
+        // Given
+        List<String> symbols = List.of("IGG", "AAA", "BBB", "CCC", "DDD", "EEE");
+        List<Order> orders = new ArrayList<>();
+        for (String symbol : symbols) {
+            Order order = createOrder(Side.BUY, BigDecimal.TEN);
+            order.setSymbol(symbol);
+            orders.add(order);
+        }
+
+        // When
+        engine.addOrders(orders);
+        symbols.forEach(this::awaitShardUnchecked);
+        engine.modifyOrders(List.of(OrderAmendment.of(orders.get(0).getId(), 3, toTicks(9))));
+        engine.removeOrders(new long[] { orders.get(1).getId(), orders.get(2).getId() });
+        engine.removeOrders("DDD", Side.BUY);
+        symbols.forEach(this::awaitShardUnchecked);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(toTicks(9));
+        assertThat(orders).extracting(order -> provider.checkIfOrderExists(order.getId()))
+                          .containsExactly(true, false, false, true, false, true);
+
+        // When
+        engine.removeOrders(null, null);
+        symbols.forEach(this::awaitShardUnchecked);
+
+        // Then
+        assertThat(orders).noneMatch(order -> provider.checkIfOrderExists(order.getId()));
+    }
+
+    @Test
+    void testIdCommandsReachOrdersStillQueued() throws InterruptedException {
+        // Given
+        Order modifiedOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        Order removedOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        Order batchRemovedOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the shard, the adds below are still queued when the id commands are sent
+        engine.submit(SYMBOL_IGG, handler -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        engine.addOrder(modifiedOrder);
+        engine.addOrders(List.of(removedOrder, batchRemovedOrder));
+
+        // When
+        engine.modifyOrder(modifiedOrder.getId(), 3, toTicks(9));
+        engine.removeOrder(removedOrder.getId());
+        engine.removeOrders(new long[] { batchRemovedOrder.getId() });
+        release.countDown();
+        awaitShard(SYMBOL_IGG);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(toTicks(9));
+        assertThat(provider.getOrder(modifiedOrder.getId()).getQuantity()).isEqualTo(3);
+        assertThat(List.of(removedOrder, batchRemovedOrder)).noneMatch(order -> engine.isResting(order.getId()));
+    }
+
+    @Test
+    void testOffHeapRoutesByIdThroughSlotIndex() throws InterruptedException {
+        // Given
+        engine.stop();
+        engine = new MatchingEngine(provider, 4, MatchingEngine.DEFAULT_QUEUE_CAPACITY, BlockingWaitStrategy::new, OrderPool.NONE,
+                                    OrderStorage.OFF_HEAP);
+        engine.start();
+        List<String> symbols = List.of("IGG", "AAA", "BBB", "CCC");
+        List<Order> orders = new ArrayList<>();
+        for (String symbol : symbols) {
+            Order order = createOrder(Side.BUY, BigDecimal.TEN);
+            order.setSymbol(symbol);
+            orders.add(order);
+        }
+        engine.addOrders(orders);
+        symbols.forEach(this::awaitShardUnchecked);
+
+        // When
+        engine.modifyOrder(orders.get(0).getId(), 3, toTicks(9));
+        engine.removeOrders(new long[] { orders.get(1).getId(), orders.get(2).getId() });
+        symbols.forEach(this::awaitShardUnchecked);
+
+        // Then
+        assertThat(orders).extracting(order -> engine.isResting(order.getId()))
+                          .containsExactly(true, false, false, true);
+        assertThat(engine.getPrice(SYMBOL_IGG, 3, Side.BUY)).isEqualTo(9.0);
+        assertThat(symbols).extracting(symbol -> engine.getOffHeapOrderCount(symbol, Side.BUY))
+                           .containsExactly(1L, 0L, 0L, 1L);
+        assertThat(provider.getOrderBooks()).isEmpty();
+    }
+
+    @Test
+    void testRecoveredOrdersMoveOffHeapInTimePriority() throws InterruptedException {
+        // Given
+        Order first = createOrder(Side.SELL, BigDecimal.TEN);
+        Order second = createOrder(Side.SELL, BigDecimal.TEN);
+        Order buy = createOrder(Side.BUY, BigDecimal.ONE);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(first);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(second);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(buy);
+        engine.stop();
+        engine = new MatchingEngine(provider, 4, MatchingEngine.DEFAULT_QUEUE_CAPACITY, BlockingWaitStrategy::new, OrderPool.NONE,
+                                    OrderStorage.OFF_HEAP);
+        engine.start();
+
+        // When
+        long moved = engine.moveRecoveredOrders();
+        engine.addOrder(createOrder(Side.BUY, BigDecimal.TEN));
+        awaitShard(SYMBOL_IGG);
+
+        // Then
+        assertThat(moved).isEqualTo(3L);
+        assertThat(provider.getOrderBooks()).isEmpty();
+        assertThat(engine.isResting(first.getId())).isFalse();
+        assertThat(engine.isResting(second.getId())).isTrue();
+        assertThat(engine.getOffHeapOrderCount(SYMBOL_IGG, Side.SELL)).isEqualTo(1L);
+        assertThat(engine.getPrice(SYMBOL_IGG, 10, Side.BUY)).isEqualTo(1.0);
+    }
+
+    private void awaitShardUnchecked(final String symbol) {
+        try {
+            awaitShard(symbol);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitShard(final String symbol) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        engine.submit(symbol, handler -> latch.countDown());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -1,15 +1,18 @@
 package com.iggroup.factory;
 
 import java.math.BigDecimal;
-import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceLevel;
 import com.iggroup.model.Side;
-import com.iggroup.model.concurrent.AtomicBigDecimal;
 import com.iggroup.provider.OrderBookProvider;
 
 public final class OrderFactory {
@@ -25,14 +28,22 @@ public final class OrderFactory {
         ID_COUNTER++;
         return Order.builder()
                     .id(ID_COUNTER)
-                    .arrivalDateTime(Instant.now())
+                    .arrivalTime(System.nanoTime())
                     .symbol("IGG")
-                    .quantity(new AtomicInteger(10))
-                    .price(AtomicBigDecimal.valueOf(price))
+                    .quantity(10)
+                    .price(toTicks(price))
                     .side(side)
                     .build();
     }
 
+    public static long toTicks(BigDecimal price) {
+        return OrderBookProvider.getInstance().getTickSize("IGG").toTicks(price);
+    }
+
+    public static long toTicks(long price) {
+        return toTicks(BigDecimal.valueOf(price));
+    }
+
     /**
      * 
      * Adds orders to IGG orderBook
@@ -105,21 +116,34 @@ public final class OrderFactory {
         final Random generator = new Random(1234L);
         IntStream.range(0, 250).forEach(i -> {
             Order order = createOrder(Side.SELL, BigDecimal.valueOf(generator.nextInt(50) + 51));
-            order.setArrivalDateTime(order.getArrivalDateTime().minusSeconds(i));
-            provider.getOrderBookBySymbol("IGG")
-                    .getSellOrders()
-                    .computeIfAbsent(order.getPrice().get(), k -> new ConcurrentSkipListSet<>())
-                    .add(order);
+            order.setArrivalTime(order.getArrivalTime() - TimeUnit.SECONDS.toNanos(i));
+            provider.getOrderBookBySymbol("IGG").addOrder(order);
         });
 
         IntStream.range(0, 250).forEach(i -> {
             Order order = createOrder(Side.BUY, BigDecimal.valueOf(generator.nextInt(50) + 1));
-            order.setArrivalDateTime(order.getArrivalDateTime().minusSeconds(i));
-            provider.getOrderBookBySymbol("IGG")
-                    .getBuyOrders()
-                    .computeIfAbsent(order.getPrice().get(), k -> new ConcurrentSkipListSet<>())
-                    .add(order);
+            order.setArrivalTime(order.getArrivalTime() - TimeUnit.SECONDS.toNanos(i));
+            provider.getOrderBookBySymbol("IGG").addOrder(order);
         });
         // PrinterUtils.printStatus(provider.getOrderBookBySymbol("IGG"));
     }
+
+    /**
+     *
+     * Every order of both sides as "id@price x quantity/modifications", best price
+     * first and in arrival order within a price, to compare rebuilt books
+     *
+     */
+    public static Map<Side, List<String>> describe(OrderBook orderBook) {
+        return Map.of(Side.BUY, describe(orderBook, Side.BUY), Side.SELL, describe(orderBook, Side.SELL));
+    }
+
+    private static List<String> describe(OrderBook orderBook, Side side) {
+        return orderBook.getOrders(side)
+                        .values()
+                        .stream()
+                        .flatMap((PriceLevel level) -> StreamSupport.stream(level.spliterator(), false))
+                        .map(o -> o.getId() + "@" + o.getPrice() + "x" + o.getQuantity() + "/" + o.getModifications())
+                        .collect(Collectors.toList());
+    }
 }
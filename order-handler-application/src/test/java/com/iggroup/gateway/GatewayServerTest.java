@@ -0,0 +1,248 @@
+package com.iggroup.gateway;
+
+import static com.iggroup.gateway.GatewayFormat.ACCEPTED;
+import static com.iggroup.gateway.GatewayFormat.ACK;
+import static com.iggroup.gateway.GatewayFormat.AMEND;
+import static com.iggroup.gateway.GatewayFormat.CANCEL;
+import static com.iggroup.gateway.GatewayFormat.FILL;
+import static com.iggroup.gateway.GatewayFormat.NEW_ORDER;
+import static com.iggroup.gateway.GatewayFormat.REJECTED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.engine.MatchingEngine;
+import com.iggroup.engine.OrderStorage;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.BlockingWaitStrategy;
+import com.iggroup.trade.event.TradeEventPublisher;
+
+class GatewayServerTest {
+
+    private static final String SYMBOL = "IGG";
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private MatchingEngine engine;
+    private GatewayServer gateway;
+    private List<Client> clients = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        provider.clear();
+        provider.setTradeEvents(new TradeEventPublisher(1024, new BlockingWaitStrategy()));
+        engine = new MatchingEngine(provider, 2);
+        engine.start();
+        gateway = new GatewayServer(provider, engine, OrderPool.NONE, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+        gateway.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException, InterruptedException {
+        for (Client client : clients) {
+            client.close();
+        }
+        gateway.close();
+        engine.stop();
+        provider.setTradeEvents(TradeEventPublisher.NONE);
+        provider.clear();
+    }
+
+    @Test
+    void testOrdersAreAckedAndFillsSentToBothSessions() throws IOException {
+        // Given
+        Client seller = connect();
+        Client buyer = connect();
+        long sellId = seller.newOrder(1L, Side.SELL, 1000L, 10).expectAck(NEW_ORDER, 1L, ACCEPTED);
+
+        // When
+        long buyId = buyer.newOrder(2L, Side.BUY, 1000L, 4).expectAck(NEW_ORDER, 2L, ACCEPTED);
+
+        // Then
+        assertThat(buyId).isGreaterThan(sellId);
+        buyer.expectFill(buyId, 1000L, 4, 0);
+        seller.expectFill(sellId, 1000L, 4, 6);
+    }
+
+    @Test
+    void testOnlyTheOwningSessionAmendsAndCancels() throws IOException {
+        // Given
+        Client owner = connect();
+        Client other = connect();
+        long orderId = owner.newOrder(1L, Side.BUY, 900L, 5).expectAck(NEW_ORDER, 1L, ACCEPTED);
+
+        // When
+        other.cancel(orderId).expectAck(CANCEL, 0L, REJECTED);
+        owner.amend(orderId, 950L, 7).expectAck(AMEND, 0L, ACCEPTED);
+
+        // Then
+        owner.amend(orderId, 950L, 0).expectAck(AMEND, 0L, REJECTED);
+        owner.cancel(orderId).expectAck(CANCEL, 0L, ACCEPTED);
+        owner.cancel(orderId).expectAck(CANCEL, 0L, REJECTED);
+        assertNull(provider.getOrder(orderId));
+    }
+
+    @Test
+    void testAmendAckTellsWhetherItWasApplied() throws IOException {
+        // Given
+        Client client = connect();
+        long orderId = client.newOrder(1L, Side.BUY, 900L, 5).expectAck(NEW_ORDER, 1L, ACCEPTED);
+        for (int i = 1; i <= 5; i++) {
+            client.amend(orderId, 900L, 5 + i).expectAck(AMEND, 0L, ACCEPTED);
+        }
+
+        // When
+        long rejectedId = client.amend(orderId, 900L, 20).expectAck(AMEND, 0L, REJECTED);
+
+        // Then
+        assertEquals(orderId, rejectedId);
+        assertEquals(10, provider.getOrder(orderId).getQuantity());
+    }
+
+    @Test
+    void testOffHeapEngineTradesAndChecksOwners() throws IOException, InterruptedException {
+        // Given
+        gateway.close();
+        engine.stop();
+        engine = new MatchingEngine(provider, 2, MatchingEngine.DEFAULT_QUEUE_CAPACITY, BlockingWaitStrategy::new, OrderPool.NONE,
+                                    OrderStorage.OFF_HEAP);
+        engine.start();
+        gateway = new GatewayServer(provider, engine, OrderPool.NONE, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+        gateway.start();
+        Client seller = connect();
+        Client buyer = connect();
+        long sellId = seller.newOrder(1L, Side.SELL, 1000L, 10).expectAck(NEW_ORDER, 1L, ACCEPTED);
+        buyer.cancel(sellId).expectAck(CANCEL, 0L, REJECTED);
+
+        // When
+        long buyId = buyer.newOrder(2L, Side.BUY, 1000L, 4).expectAck(NEW_ORDER, 2L, ACCEPTED);
+
+        // Then
+        buyer.expectFill(buyId, 1000L, 4, 0);
+        seller.expectFill(sellId, 1000L, 4, 6);
+        seller.cancel(sellId).expectAck(CANCEL, 0L, ACCEPTED);
+        assertThat(engine.getOffHeapOrderCount(SYMBOL, Side.SELL)).isZero();
+        assertThat(provider.getOrderBooks()).isEmpty();
+    }
+
+    @Test
+    void testInvalidOrdersAreRejected() throws IOException {
+        // Given
+        Client client = connect();
+
+        // When
+        client.newOrder(1L, Side.BUY, 0L, 5).expectAck(NEW_ORDER, 1L, REJECTED);
+        client.newOrder(2L, Side.BUY, 100L, -1).expectAck(NEW_ORDER, 2L, REJECTED);
+
+        // Then
+        assertThat(provider.getOrderBooks()).isEmpty();
+    }
+
+    @Test
+    void testManySessionsOnFewLoops() throws IOException {
+        // Given
+        int sessions = 500;
+        for (int i = 0; i < sessions; i++) {
+            connect();
+        }
+
+        // When
+        for (int i = 0; i < sessions; i++) {
+            clients.get(i).newOrder(i, i % 2 == 0 ? Side.BUY : Side.SELL, i % 2 == 0 ? 900L : 1100L, 1);
+        }
+
+        // Then
+        for (int i = 0; i < sessions; i++) {
+            clients.get(i).expectAck(NEW_ORDER, i, ACCEPTED);
+        }
+        assertEquals(sessions, gateway.getConnectedSessions());
+    }
+
+    @Test
+    void testUnknownMessageDisconnects() throws IOException {
+        // Given
+        Client client = connect();
+
+        // When
+        client.send(ByteBuffer.allocate(1).put((byte) 99));
+
+        // Then
+        assertThrows(EOFException.class, client.in::readByte);
+    }
+
+    private Client connect() throws IOException {
+        Client client = new Client(new Socket(InetAddress.getLoopbackAddress(), gateway.getPort()));
+        clients.add(client);
+        return client;
+    }
+
+    private static final class Client {
+
+        private final Socket socket;
+        private final DataInputStream in;
+
+        private Client(final Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setSoTimeout(5000);
+            this.in = new DataInputStream(socket.getInputStream());
+        }
+
+        private Client newOrder(final long clientOrderId, final Side side, final long price, final int quantity) throws IOException {
+            return send(GatewayFormat.putNewOrder(ByteBuffer.allocate(GatewayFormat.NEW_ORDER_SIZE), clientOrderId, SYMBOL, side, price, quantity));
+        }
+
+        private Client amend(final long orderId, final long price, final int quantity) throws IOException {
+            return send(GatewayFormat.putAmend(ByteBuffer.allocate(GatewayFormat.AMEND_SIZE), orderId, price, quantity));
+        }
+
+        private Client cancel(final long orderId) throws IOException {
+            return send(GatewayFormat.putCancel(ByteBuffer.allocate(GatewayFormat.CANCEL_SIZE), orderId));
+        }
+
+        private Client send(final ByteBuffer message) throws IOException {
+            socket.getOutputStream().write(message.array(), 0, message.position());
+            return this;
+        }
+
+        /**
+         * @return the order id acked
+         */
+        private long expectAck(final byte requestType, final long clientOrderId, final byte status) throws IOException {
+            assertEquals(ACK, in.readByte());
+            assertEquals(requestType, in.readByte());
+            assertEquals(clientOrderId, in.readLong());
+            long orderId = in.readLong();
+            assertEquals(status, in.readByte());
+            return orderId;
+        }
+
+        private void expectFill(final long orderId, final long price, final int quantity, final int quantityLeft) throws IOException {
+            assertEquals(FILL, in.readByte());
+            assertEquals(orderId, in.readLong());
+            assertEquals(price, in.readLong());
+            assertEquals(quantity, in.readInt());
+            assertEquals(quantityLeft, in.readInt());
+        }
+
+        private void close() throws IOException {
+            socket.close();
+        }
+    }
+
+}
@@ -1,17 +1,16 @@
 package com.iggroup.handler;
 
 import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.toTicks;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.math.BigDecimal;
-import java.util.NavigableSet;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,7 +19,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.iggroup.exception.OrderModificationException;
 import com.iggroup.factory.OrderFactory;
+import com.iggroup.metrics.LatencyRecorder;
+import com.iggroup.metrics.LatencyStage;
 import com.iggroup.model.Order;
+import com.iggroup.model.OrderAmendment;
+import com.iggroup.model.PriceLevel;
 import com.iggroup.model.Side;
 import com.iggroup.provider.OrderBookProvider;
 
@@ -32,10 +35,11 @@ class DefaultOrderHandlerTest {
 
     private OrderBookProvider provider = OrderBookProvider.getInstance();
     private static final String SYMBOL_IGG = "IGG";
+    private static final String SYMBOL_OTHER = "OTHER";
 
     @BeforeEach
     void setup() {
-        provider.getOrderBooks().clear();
+        provider.clear();
         tradeQueue.clear();
         orderHandler = new DefaultOrderHandler(provider, tradeQueue);
     }
@@ -55,61 +59,118 @@ class DefaultOrderHandlerTest {
         // Then
         // buy orders
         assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).hasSize(1)
-                                                                            .containsOnlyKeys(order1.getPrice().get())
-                                                                            .extractingByKey(order1.getPrice().get())
-                                                                            .extracting(NavigableSet::size)
+                                                                            .containsOnlyKeys(order1.getPrice())
+                                                                            .extractingByKey(order1.getPrice())
+                                                                            .extracting(PriceLevel::getOrderCount)
                                                                             .isEqualTo(2);
         // sell orders
         assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).hasSize(1)
-                                                                             .containsOnlyKeys(order3.getPrice().get())
-                                                                             .extractingByKey(order3.getPrice().get())
-                                                                             .extracting(NavigableSet::size)
+                                                                             .containsOnlyKeys(order3.getPrice())
+                                                                             .extractingByKey(order3.getPrice())
+                                                                             .extracting(PriceLevel::getOrderCount)
                                                                              .isEqualTo(1);
         assertThat(tradeQueue).hasSize(3);
     }
 
+    @Test
+    void testAddCrossesBeforeResting() {
+        // Given
+        Order sellOrder = createOrder(Side.SELL, BigDecimal.TEN);
+        orderHandler.addOrder(sellOrder);
+        tradeQueue.clear();
+        Order buyOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        buyOrder.setQuantity(15);
+
+        // When
+        orderHandler.addOrder(buyOrder);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).isEmpty();
+        assertThat(provider.checkIfOrderExists(sellOrder)).isFalse();
+        assertThat(buyOrder.getQuantity()).isEqualTo(5);
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(buyOrder.getPrice());
+        assertThat(tradeQueue).containsExactly(buyOrder);
+    }
+
+    @Test
+    void testAddFilledOnArrivalNeverRests() {
+        // Given
+        Order sellOrder = createOrder(Side.SELL, BigDecimal.ONE);
+        orderHandler.addOrder(sellOrder);
+        tradeQueue.clear();
+        Order buyOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        buyOrder.setQuantity(4);
+
+        // When
+        orderHandler.addOrder(buyOrder);
+
+        // Then
+        assertThat(provider.checkIfOrderExists(buyOrder)).isFalse();
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).isEmpty();
+        assertThat(sellOrder.getQuantity()).isEqualTo(6);
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).extractingByKey(sellOrder.getPrice())
+                                                                             .extracting(PriceLevel::getTotalQuantity)
+                                                                             .isEqualTo(6L);
+        assertThat(tradeQueue).isEmpty();
+    }
+
     @Test
     void testModify() throws OrderModificationException {
         // Given
         Order order = createOrder(Side.BUY, BigDecimal.TEN);
-        provider.getOrderBookBySymbol(SYMBOL_IGG)
-                .getBuyOrders()
-                .computeIfAbsent(order.getPrice().get(), k -> new ConcurrentSkipListSet<>())
-                .add(order);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(order);
         Order modifiedOrder = createOrder(Side.BUY, BigDecimal.ONE);
         modifiedOrder.setId(order.getId());
-        modifiedOrder.setQuantity(new AtomicInteger(3));
+        modifiedOrder.setQuantity(3);
 
         // When
         orderHandler.modifyOrder(order, modifiedOrder);
 
         // Then
         assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).hasSize(1)
-                                                                            .containsOnlyKeys(modifiedOrder.getPrice().get());
+                                                                            .containsOnlyKeys(modifiedOrder.getPrice());
 
         assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG)
                            .getBuyOrders()
-                           .get(modifiedOrder.getPrice().get())).extracting(o -> o.getModification().get(),
-                                                                            o -> o.getQuantity().get(),
-                                                                            o -> o.getPrice().get())
+                           .get(modifiedOrder.getPrice())).extracting(Order::getModifications,
+                                                                            Order::getQuantity,
+                                                                            Order::getPrice)
                                                                 .containsOnly(tuple(1,
-                                                                                    modifiedOrder.getQuantity().get(),
-                                                                                    modifiedOrder.getPrice().get()));
+                                                                                    modifiedOrder.getQuantity(),
+                                                                                    modifiedOrder.getPrice()));
         assertThat(tradeQueue).hasSize(1);
     }
 
+    @Test
+    void testTimePriorityFollowsAcceptanceNotArrivalTime() throws OrderModificationException {
+        // Given
+        Order first = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order second = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order repriced = createOrder(Side.SELL, BigDecimal.valueOf(12));
+        // Created before the others by the clock, accepted after them
+        second.setArrivalTime(first.getArrivalTime() - 1_000_000L);
+
+        // When
+        orderHandler.addOrder(first);
+        orderHandler.addOrder(second);
+        orderHandler.addOrder(repriced);
+        orderHandler.modifyOrder(repriced.getId(), 10, toTicks(11));
+
+        // Then
+        assertThat(first).isLessThan(second);
+        assertThat(second).isLessThan(repriced);
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders().get(toTicks(11))).containsExactly(first, second, repriced);
+    }
+
     @Test
     void testModifyModificationException() throws OrderModificationException {
         // Given
         Order order = createOrder(Side.BUY, BigDecimal.TEN);
-        order.setModification(new AtomicInteger(5));
-        provider.getOrderBookBySymbol(SYMBOL_IGG)
-                .getBuyOrders()
-                .computeIfAbsent(order.getPrice().get(), k -> new ConcurrentSkipListSet<>())
-                .add(order);
+        order.setModifications(5);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(order);
         Order modifiedOrder = createOrder(Side.BUY, BigDecimal.ONE);
         modifiedOrder.setId(order.getId());
-        modifiedOrder.setQuantity(new AtomicInteger(3));
+        modifiedOrder.setQuantity(3);
 
         // When & Then
         assertThrows(OrderModificationException.class, () -> orderHandler.modifyOrder(order, modifiedOrder));
@@ -120,10 +181,7 @@ class DefaultOrderHandlerTest {
     void testRemove() {
         // Given
         Order order = createOrder();
-        NavigableSet<Order> orders = provider.getOrderBookBySymbol(SYMBOL_IGG)
-                                             .getBuyOrders()
-                                             .computeIfAbsent(order.getPrice().get(), k -> new ConcurrentSkipListSet<>());
-        orders.add(order);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(order);
 
         // When
         orderHandler.removeOrder(order);
@@ -133,6 +191,124 @@ class DefaultOrderHandlerTest {
         assertThat(tradeQueue).isEmpty();
     }
 
+    @Test
+    void testModifyById() throws OrderModificationException {
+        // Given
+        Order order = createOrder(Side.BUY, BigDecimal.TEN);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(order);
+
+        // When
+        orderHandler.modifyOrder(order.getId(), 3, toTicks(11));
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(toTicks(11));
+        assertThat(provider.getOrder(order.getId())).extracting(Order::getQuantity, Order::getPrice)
+                                                    .containsExactly(3, toTicks(11));
+        assertThat(tradeQueue).hasSize(1);
+    }
+
+    @Test
+    void testRemoveById() {
+        // Given
+        Order order = createOrder();
+        provider.getOrderBookBySymbol(SYMBOL_IGG).addOrder(order);
+
+        // When
+        orderHandler.removeOrder(order.getId());
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).isEmpty();
+        assertThat(provider.checkIfOrderExists(order.getId())).isFalse();
+    }
+
+    @Test
+    void testAddOrders() {
+        // Given
+        Order sellOrder = createOrder(Side.SELL, BigDecimal.TEN);
+        Order otherSymbolOrder = createOrder(Side.SELL, BigDecimal.TEN);
+        otherSymbolOrder.setSymbol(SYMBOL_OTHER);
+        Order buyOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        buyOrder.setQuantity(4);
+        Order restingOrder = createOrder(Side.BUY, BigDecimal.ONE);
+
+        // When
+        orderHandler.addOrders(List.of(sellOrder, otherSymbolOrder, buyOrder, restingOrder));
+
+        // Then
+        // the buy order crossed the sell order added earlier in the same batch
+        assertThat(provider.getOrder(sellOrder.getId()).getQuantity()).isEqualTo(6);
+        assertThat(provider.checkIfOrderExists(buyOrder.getId())).isFalse();
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(restingOrder.getPrice());
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_OTHER).getSellOrders()).containsOnlyKeys(otherSymbolOrder.getPrice());
+        assertThat(tradeQueue).containsExactly(sellOrder, otherSymbolOrder, restingOrder);
+    }
+
+    @Test
+    void testModifyOrdersReportsRejectedAfterApplyingOthers() {
+        // Given
+        Order order = createOrder(Side.BUY, BigDecimal.TEN);
+        Order rejectedOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        rejectedOrder.setModifications(5);
+        Order movedOrder = createOrder(Side.BUY, BigDecimal.TEN);
+        orderHandler.addOrders(List.of(order, rejectedOrder, movedOrder));
+
+        // When
+        OrderModificationException exception = assertThrows(OrderModificationException.class, () -> orderHandler.modifyOrders(
+                List.of(OrderAmendment.of(order.getId(), 3, order.getPrice()),
+                        OrderAmendment.of(rejectedOrder.getId(), 1, rejectedOrder.getPrice()),
+                        OrderAmendment.of(movedOrder.getId(), 7, toTicks(9)))));
+
+        // Then
+        assertThat(exception.getMessage()).contains(String.valueOf(rejectedOrder.getId()));
+        assertThat(order.getQuantity()).isEqualTo(3);
+        assertThat(rejectedOrder.getQuantity()).isEqualTo(10);
+        assertThat(provider.getOrder(movedOrder.getId())).extracting(Order::getQuantity, Order::getPrice)
+                                                         .containsExactly(7, toTicks(9));
+    }
+
+    @Test
+    void testRemoveOrdersById() {
+        // Given
+        Order order1 = createOrder();
+        Order order2 = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order order3 = createOrder();
+        orderHandler.addOrders(List.of(order1, order2, order3));
+        long[] orderIds = { order1.getId(), order2.getId(), -1L };
+
+        // When
+        orderHandler.removeOrders(orderIds);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).isEmpty();
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).containsOnlyKeys(order3.getPrice());
+        assertThat(provider.checkIfOrderExists(order3.getId())).isTrue();
+    }
+
+    @Test
+    void testRemoveOrdersBySymbolAndSide() {
+        // Given
+        OrderFactory.initIGGOrders();
+        Order otherSymbolOrder = createOrder();
+        otherSymbolOrder.setSymbol(SYMBOL_OTHER);
+        orderHandler.addOrder(otherSymbolOrder);
+
+        // When
+        orderHandler.removeOrders(SYMBOL_IGG, Side.BUY);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getBuyOrders()).isEmpty();
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).hasSize(50);
+        assertThat(provider.checkIfOrderExists(otherSymbolOrder.getId())).isTrue();
+
+        // When
+        orderHandler.removeOrders(null, null);
+
+        // Then
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_IGG).getSellOrders()).isEmpty();
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_OTHER).getBuyOrders()).isEmpty();
+        assertThat(provider.checkIfOrderExists(otherSymbolOrder.getId())).isFalse();
+    }
+
     @Test
     void testGetPrice() {
         // Given
@@ -146,4 +322,39 @@ class DefaultOrderHandlerTest {
         assertEquals(49.4, averagePrice);
         assertThat(tradeQueue).isEmpty();
     }
+
+    @Test
+    void testGetPriceAcrossSeveralLevels() {
+        // Given
+        OrderFactory.initIGGOrders();
+
+        // When
+        double averagePrice = orderHandler.getPrice(SYMBOL_IGG, 150, Side.BUY);
+
+        // Then
+        // ((40 * 50) + (70 * 49) + (40 * 48)) / 150
+        assertEquals(49.0, averagePrice);
+    }
+
+    @Test
+    void testLatenciesAreRecordedPerSymbol() {
+        // Given
+        Order order = createOrder();
+
+        // When
+        orderHandler.addOrder(order);
+        orderHandler.getPrice(SYMBOL_IGG, 1, Side.BUY);
+
+        // Then
+        LatencyRecorder latencies = provider.getOrderBookBySymbol(SYMBOL_IGG).getLatencies();
+        assertEquals(1, latencies.get(LatencyStage.ORDER_ENTRY).total().getCount());
+        assertEquals(1, latencies.get(LatencyStage.MATCHING).total().getCount());
+        assertEquals(1, latencies.get(LatencyStage.GET_PRICE).total().getCount());
+        // Taken off the trade queue by a consumer
+        assertEquals(0, latencies.get(LatencyStage.QUEUE_WAIT).total().getCount());
+        assertThat(tradeQueue.peek().getQueuedTime()).isPositive();
+        assertThat(provider.getOrderBookBySymbol(SYMBOL_OTHER).getLatencies().interval()).allSatisfy((stage, snapshot) -> assertEquals(0,
+                                                                                                                                        snapshot.getCount()));
+    }
+
 }
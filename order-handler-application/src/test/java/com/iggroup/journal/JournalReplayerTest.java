@@ -0,0 +1,282 @@
+package com.iggroup.journal;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.describe;
+import static com.iggroup.factory.OrderFactory.toTicks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.handler.OrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.Side;
+import com.iggroup.offheap.OffHeapOrderHandler;
+import com.iggroup.offheap.SlotIndex;
+import com.iggroup.provider.OrderBookProvider;
+
+class JournalReplayerTest {
+
+    private static final int SYMBOL_RECORD_SIZE = JournalFormat.SYMBOL_HEADER_SIZE + "IGG".length() + JournalFormat.CHECKSUM_SIZE;
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.setJournal(OrderJournal.NONE);
+        provider.clear();
+    }
+
+    @Test
+    void testReplayRebuildsBooks() throws IOException, OrderModificationException {
+        // Given
+        Order sell1 = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order sell2 = createOrder(Side.SELL, BigDecimal.valueOf(12));
+        Order buy1 = createOrder(Side.BUY, BigDecimal.valueOf(9));
+        Order buy2 = createOrder(Side.BUY, BigDecimal.valueOf(8));
+        Order aggressor = createOrder(Side.BUY, BigDecimal.valueOf(12));
+        aggressor.setQuantity(15);
+        try (MappedJournal journal = new MappedJournal(directory, MappedJournal.DEFAULT_SEGMENT_SIZE, FlushPolicy.COMMAND, 1)) {
+            provider.setJournal(journal);
+            orderHandler.addOrder(sell1);
+            orderHandler.addOrder(sell2);
+            orderHandler.addOrder(buy1);
+            orderHandler.addOrder(buy2);
+            // Fills sell1, leaves 5 of sell2
+            orderHandler.addOrder(aggressor);
+            orderHandler.modifyOrder(buy1.getId(), 4, buy1.getPrice());
+            orderHandler.modifyOrder(buy2.getId(), 7, toTicks(10));
+            orderHandler.addOrder(createOrder(Side.SELL, BigDecimal.valueOf(20)));
+            orderHandler.removeOrder(buy1.getId());
+        }
+        provider.setJournal(OrderJournal.NONE);
+        Map<Side, List<String>> expected = describe(provider.getOrderBookBySymbol("IGG"));
+        provider.clear();
+
+        // When
+        JournalReplayer replayer = new JournalReplayer(provider).replay(directory);
+
+        // Then
+        assertEquals(expected, describe(provider.getOrderBookBySymbol("IGG")));
+        assertThat(expected.get(Side.SELL)).hasSize(2);
+        assertThat(expected.get(Side.BUY)).hasSize(1);
+        assertNull(provider.getOrder(sell1.getId()));
+        assertNull(provider.getOrder(aggressor.getId()));
+        assertEquals(5, provider.getOrder(sell2.getId()).getQuantity());
+        assertThat(replayer.getMaxOrderId()).isGreaterThanOrEqualTo(aggressor.getId());
+    }
+
+    @Test
+    void testOffHeapJournalReplaysLikeHeap() throws IOException, OrderModificationException {
+        // Given
+        try (MappedJournal journal = new MappedJournal(directory.resolve("heap"))) {
+            provider.setJournal(journal);
+            play(orderHandler);
+        }
+        provider.setJournal(OrderJournal.NONE);
+        new JournalReplayer(provider).replay(directory.resolve("heap"));
+        Map<Side, List<String>> expected = describe(provider.getOrderBookBySymbol("IGG"));
+        provider.clear();
+        try (MappedJournal journal = new MappedJournal(directory.resolve("offHeap"))) {
+            provider.setJournal(journal);
+            play(new OffHeapOrderHandler(provider, 0, new SlotIndex(), OrderPool.NONE));
+        }
+        provider.setJournal(OrderJournal.NONE);
+
+        // When
+        new JournalReplayer(provider).replay(directory.resolve("offHeap"));
+
+        // Then
+        assertEquals(expected, describe(provider.getOrderBookBySymbol("IGG")));
+        assertThat(expected.get(Side.SELL)).hasSize(2);
+        assertThat(expected.get(Side.BUY)).isEmpty();
+    }
+
+    @Test
+    void testOrderCrossedAsSoonAsItRestsReplays() throws IOException {
+        // Given
+        Order sell = createOrder(Side.SELL, BigDecimal.TEN);
+        Order buy = createOrder(Side.BUY, BigDecimal.TEN);
+        try (MappedJournal mapped = new MappedJournal(directory, MappedJournal.DEFAULT_SEGMENT_SIZE, FlushPolicy.COMMAND, 1)) {
+            // Another producer crosses the book while the sell is being journaled
+            provider.setJournal(new OrderJournal() {
+
+                @Override
+                public void add(final Order order) {
+                    if (order == sell) {
+                        orderHandler.addOrder(buy);
+                    }
+                    mapped.add(order);
+                }
+
+                @Override
+                public void modify(final long orderId, final int quantity, final int modifications) {
+                    mapped.modify(orderId, quantity, modifications);
+                }
+
+                @Override
+                public void remove(final long orderId) {
+                    mapped.remove(orderId);
+                }
+
+                @Override
+                public void trade(final long orderId, final long orderAgainstId, final long price, final int quantity, final int quantityLeft,
+                                  final int quantityLeftAgainst) {
+                    mapped.trade(orderId, orderAgainstId, price, quantity, quantityLeft, quantityLeftAgainst);
+                }
+            });
+
+            // When
+            orderHandler.addOrder(sell);
+        }
+        provider.setJournal(OrderJournal.NONE);
+        Map<Side, List<String>> expected = describe(provider.getOrderBookBySymbol("IGG"));
+        provider.clear();
+        new JournalReplayer(provider).replay(directory);
+
+        // Then
+        assertEquals(expected, describe(provider.getOrderBookBySymbol("IGG")));
+        assertEquals(10, provider.getOrder(sell.getId()).getQuantity());
+    }
+
+    @Test
+    void testSegmentRolling() throws IOException {
+        // Given
+        int segmentSize = 64 * 1024;
+        int records = 20_000;
+        Order order = createOrder();
+        try (MappedJournal journal = new MappedJournal(directory, segmentSize, FlushPolicy.BATCH, 100)) {
+            journal.add(order);
+            for (int i = 1; i < records; i++) {
+                journal.modify(order.getId(), i, 0);
+            }
+            assertThat(journal.getSegmentIndex()).isGreaterThan(0L);
+        }
+
+        // When
+        JournalReplayer replayer = new JournalReplayer(provider).replay(directory);
+
+        // Then
+        assertThat(JournalFormat.segments(directory).size()).isGreaterThan(1);
+        assertEquals(records, replayer.getRecords() - 1, "one symbol record besides the commands");
+        assertEquals(records - 1, provider.getOrder(order.getId()).getQuantity());
+    }
+
+    @Test
+    void testReopenStartsNewSegment() throws IOException {
+        // Given
+        Order order = createOrder();
+        try (MappedJournal journal = new MappedJournal(directory)) {
+            journal.add(order);
+        }
+
+        // When
+        try (MappedJournal journal = new MappedJournal(directory)) {
+            journal.remove(order.getId());
+
+            // Then
+            assertEquals(1L, journal.getSegmentIndex());
+        }
+        new JournalReplayer(provider).replay(directory);
+        assertNull(provider.getOrder(order.getId()));
+    }
+
+    @Test
+    void testReplayStopsAtTruncatedTail() throws IOException {
+        // Given
+        Order sell = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order buy = createOrder(Side.BUY, BigDecimal.valueOf(9));
+        try (MappedJournal journal = new MappedJournal(directory)) {
+            journal.add(sell);
+            journal.add(buy);
+        }
+        try (FileChannel channel = FileChannel.open(JournalFormat.segment(directory, 0L), StandardOpenOption.WRITE)) {
+            // Cut in the middle of the buy's add
+            channel.truncate(SYMBOL_RECORD_SIZE + JournalFormat.ADD_SIZE + JournalFormat.ADD_SIZE / 2);
+        }
+
+        // When
+        JournalReplayer replayer = new JournalReplayer(provider).replay(directory);
+
+        // Then
+        assertEquals(2L, replayer.getRecords());
+        assertNotNull(provider.getOrder(sell.getId()));
+        assertNull(provider.getOrder(buy.getId()));
+    }
+
+    @Test
+    void testReplayStopsAtTornRecord() throws IOException {
+        // Given
+        Order sell = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order buy = createOrder(Side.BUY, BigDecimal.valueOf(9));
+        try (MappedJournal journal = new MappedJournal(directory)) {
+            journal.add(sell);
+            journal.add(buy);
+            journal.remove(sell.getId());
+        }
+        try (MappedJournal journal = new MappedJournal(directory)) {
+            journal.remove(buy.getId());
+        }
+        try (FileChannel channel = FileChannel.open(JournalFormat.segment(directory, 0L), StandardOpenOption.WRITE)) {
+            // The end of the buy's add never reached the file
+            channel.write(ByteBuffer.allocate(8), SYMBOL_RECORD_SIZE + 2L * JournalFormat.ADD_SIZE - 8);
+        }
+
+        // When
+        JournalReplayer replayer = new JournalReplayer(provider).replay(directory);
+
+        // Then
+        assertEquals(2L, replayer.getRecords());
+        assertNotNull(provider.getOrder(sell.getId()));
+        assertNull(provider.getOrder(buy.getId()));
+    }
+
+    /**
+     *
+     * Adds crossing and resting orders, amends one in place and one to a new price,
+     * reprices one across the book and cancels one
+     *
+     */
+    private static void play(final OrderHandler orderHandler) throws OrderModificationException {
+        orderHandler.addOrder(new Order().init(1L, "IGG", Side.SELL, toTicks(11), 10));
+        orderHandler.addOrder(new Order().init(2L, "IGG", Side.SELL, toTicks(12), 10));
+        orderHandler.addOrder(new Order().init(3L, "IGG", Side.BUY, toTicks(9), 10));
+        orderHandler.addOrder(new Order().init(4L, "IGG", Side.BUY, toTicks(8), 10));
+        // Fills 1, leaves 5 of 2
+        orderHandler.addOrder(new Order().init(5L, "IGG", Side.BUY, toTicks(12), 15));
+        orderHandler.modifyOrder(3L, 4, toTicks(9));
+        orderHandler.modifyOrder(4L, 7, toTicks(10));
+        orderHandler.addOrder(new Order().init(6L, "IGG", Side.SELL, toTicks(20), 10));
+        orderHandler.removeOrder(3L);
+        // Fills 4, leaves 3 of 6 at 10
+        orderHandler.modifyOrder(6L, 10, toTicks(10));
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.iggroup.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.iggroup.engine.MatchingEngine;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+class LoadGeneratorTest {
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.clear();
+    }
+
+    @Test
+    void testSameSeedGivesSameStream() {
+        // Given
+        LoadScenario scenario = LoadScenario.builder().seed(7L).commands(10_000).build();
+
+        // When
+        LoadStream first = LoadGenerator.generate(scenario, 1L);
+        LoadStream second = LoadGenerator.generate(scenario, 1L);
+        LoadStream otherSeed = LoadGenerator.generate(scenario.toBuilder().seed(8L).build(), 1L);
+
+        // Then
+        assertEquals(first, second);
+        assertThat(otherSeed).isNotEqualTo(first);
+        assertEquals(10_000, first.size());
+    }
+
+    @Test
+    void testRecordedStreamReplaysTheSame() throws IOException {
+        // Given
+        LoadStream stream = LoadGenerator.generate(LoadScenario.builder().commands(5_000).build(), 1L);
+        Path file = directory.resolve("load.bin");
+
+        // When
+        stream.write(file);
+
+        // Then
+        assertEquals(stream, LoadStream.read(file));
+    }
+
+    @Test
+    void testRunnerSendsEveryCommand() throws InterruptedException {
+        // Given
+        LoadScenario scenario = LoadScenario.builder().commands(5_000).symbols(4).amendRatio(0.0).aggressiveness(0.0).build();
+        LoadStream stream = LoadGenerator.generate(scenario, 1L);
+        int resting = 0;
+        for (int i = 0; i < stream.size(); i++) {
+            resting += stream.type(i) == LoadStream.ADD ? 1 : -1;
+        }
+        MatchingEngine engine = new MatchingEngine(provider, 2);
+        engine.start();
+
+        // When
+        LoadReport report;
+        try {
+            report = new LoadRunner(engine).run(stream, 0L);
+        } finally {
+            engine.stop();
+        }
+
+        // Then
+        assertEquals(5_000, report.getCommands());
+        assertEquals(5_000, report.getLatency().getCount());
+        // Nothing crosses, so every cancel finds its order
+        assertEquals(0, report.getRejected());
+        long booked = 0;
+        for (OrderBook orderBook : provider.getOrderBooks().values()) {
+            booked += orderBook.getOrderCount(Side.BUY) + orderBook.getOrderCount(Side.SELL);
+        }
+        assertEquals(resting, booked);
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.iggroup.lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class StripedOrderLocksTest {
+
+    @Test
+    void testStripeCountRoundedUpToPowerOfTwo() {
+        assertEquals(1, new StripedOrderLocks(1).getStripeCount());
+        assertEquals(8, new StripedOrderLocks(5).getStripeCount());
+        assertEquals(1024, new StripedOrderLocks(1024).getStripeCount());
+    }
+
+    @Test
+    void testReentrantAndBounded() {
+        // Given
+        StripedOrderLocks locks = new StripedOrderLocks(4);
+
+        // When
+        for (long id = 0; id < 10_000; id++) {
+            locks.lock(id);
+            assertTrue(locks.tryLock(id));
+            locks.unlock(id);
+            locks.unlock(id);
+        }
+
+        // Then
+        long acquisitions = 0;
+        for (int i = 0; i < locks.getStripeCount(); i++) {
+            acquisitions += locks.getAcquisitions(i);
+        }
+        assertEquals(20_000, acquisitions);
+        assertEquals(0, locks.getTotalContentions());
+    }
+
+    @Test
+    void testContentionCountedOnStripe() throws InterruptedException {
+        // Given
+        StripedOrderLocks locks = new StripedOrderLocks(1);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            locks.lock(1L);
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            locks.unlock(1L);
+        });
+        holder.start();
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+
+        // When
+        // Different order, same (single) stripe
+        assertFalse(locks.tryLock(2L));
+        Thread waiter = new Thread(() -> {
+            locks.lock(2L);
+            locks.unlock(2L);
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        holder.join();
+        waiter.join();
+
+        // Then
+        assertEquals(1, locks.getContentions(0));
+        assertEquals(1, locks.getFailedTryLocks(0));
+        assertEquals(2, locks.getAcquisitions(0));
+    }
+}
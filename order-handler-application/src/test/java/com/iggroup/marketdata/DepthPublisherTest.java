@@ -0,0 +1,125 @@
+package com.iggroup.marketdata;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.toTicks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.factory.OrderFactory;
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+class DepthPublisherTest {
+
+    private static final String SYMBOL_IGG = "IGG";
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+    private List<Object[]> updates = new ArrayList<>();
+    private DepthListener recorder = (symbol, side, update, price, totalQuantity, orderCount) -> updates.add(
+            new Object[] { side, update, price, totalQuantity, orderCount });
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @Test
+    void testLevelDeltas() throws OrderModificationException {
+        // Given
+        Order buyOrder1 = createOrder(Side.BUY, BigDecimal.TEN);
+        Order buyOrder2 = createOrder(Side.BUY, BigDecimal.TEN);
+        Order sellOrder = createOrder(Side.SELL, BigDecimal.TEN);
+        sellOrder.setQuantity(4);
+        provider.getOrderBookBySymbol(SYMBOL_IGG).getDepthPublisher().subscribe(recorder);
+
+        // When
+        orderHandler.addOrder(buyOrder1);
+        orderHandler.addOrder(buyOrder2);
+        orderHandler.modifyOrder(buyOrder1.getId(), 5, buyOrder1.getPrice());
+        // Trades 4 against buyOrder1, arriving sell order never rests
+        orderHandler.addOrder(sellOrder);
+        orderHandler.removeOrder(buyOrder2.getId());
+        orderHandler.removeOrder(buyOrder1.getId());
+
+        // Then
+        assertThat(updates).extracting(u -> tuple(u)).containsExactly(
+                tuple(Side.BUY, DepthUpdate.LEVEL_ADDED, toTicks(10), 10L, 1),
+                tuple(Side.BUY, DepthUpdate.LEVEL_CHANGED, toTicks(10), 20L, 2),
+                tuple(Side.BUY, DepthUpdate.LEVEL_CHANGED, toTicks(10), 15L, 2),
+                tuple(Side.BUY, DepthUpdate.LEVEL_CHANGED, toTicks(10), 11L, 2),
+                tuple(Side.BUY, DepthUpdate.LEVEL_CHANGED, toTicks(10), 1L, 1),
+                tuple(Side.BUY, DepthUpdate.LEVEL_REMOVED, toTicks(10), 0L, 0));
+    }
+
+    @Test
+    void testSubscribeSendsSnapshotThenDeltas() {
+        // Given
+        OrderFactory.initIGGOrders();
+        OrderBook orderBook = provider.getOrderBookBySymbol(SYMBOL_IGG);
+        Map<Side, Map<Long, Long>> depth = Map.of(Side.BUY, new TreeMap<>(), Side.SELL, new TreeMap<>());
+        DepthListener book = (symbol, side, update, price, totalQuantity, orderCount) -> {
+            if (update == DepthUpdate.LEVEL_REMOVED) {
+                depth.get(side).remove(price);
+            } else {
+                depth.get(side).put(price, totalQuantity);
+            }
+        };
+
+        // When
+        orderBook.getDepthPublisher().subscribe(book);
+        Order sweep = createOrder(Side.BUY, BigDecimal.valueOf(53));
+        sweep.setQuantity(150);
+        orderHandler.addOrder(sweep);
+
+        // Then
+        assertThat(depth.get(Side.SELL)).containsOnlyKeys(orderBook.getSellOrders().keySet().toArray(new Long[0]));
+        assertThat(depth.get(Side.BUY)).hasSameSizeAs(orderBook.getBuyOrders());
+        for (Side side : Side.values()) {
+            for (PriceLevel level : orderBook.getOrders(side).values()) {
+                assertThat(depth.get(side)).containsEntry(level.getPrice(), level.getTotalQuantity());
+            }
+        }
+    }
+
+    @Test
+    void testFailingListenerDoesNotFailTheBook() {
+        // Given
+        OrderBook orderBook = provider.getOrderBookBySymbol(SYMBOL_IGG);
+        orderBook.getDepthPublisher().subscribe((symbol, side, update, price, totalQuantity, orderCount) -> {
+            throw new IllegalStateException("listener failure");
+        });
+        orderBook.getDepthPublisher().subscribe(recorder);
+        Order order = createOrder();
+
+        // When
+        orderHandler.addOrder(order);
+
+        // Then
+        assertThat(provider.checkIfOrderExists(order.getId())).isTrue();
+        assertThat(updates).hasSize(1);
+
+        // When
+        orderBook.getDepthPublisher().unsubscribe(recorder);
+        orderHandler.removeOrder(order.getId());
+
+        // Then
+        assertThat(updates).hasSize(1);
+    }
+
+}
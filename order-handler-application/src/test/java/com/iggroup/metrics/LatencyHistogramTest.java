@@ -0,0 +1,70 @@
+package com.iggroup.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.assertj.core.data.Percentage;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    private LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    void testPercentiles() {
+        // Given
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        // When
+        LatencySnapshot snapshot = histogram.total();
+
+        // Then
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMax());
+        // Within the 1/16 of a bucket
+        assertThat(snapshot.getP50()).isCloseTo(50_000L, Percentage.withPercentage(6.25));
+        assertThat(snapshot.getP99()).isCloseTo(99_000L, Percentage.withPercentage(6.25));
+        assertThat(snapshot.getP999()).isCloseTo(99_900L, Percentage.withPercentage(6.25));
+        assertThat(snapshot.getP50()).isGreaterThanOrEqualTo(50_000L);
+    }
+
+    @Test
+    void testIntervalOnlyCoversValuesSinceThePreviousOne() {
+        // Given
+        histogram.record(1_000_000);
+        histogram.interval();
+        histogram.record(10);
+        histogram.record(20);
+
+        // When
+        LatencySnapshot interval = histogram.interval();
+
+        // Then
+        assertEquals(2, interval.getCount());
+        assertEquals(20, interval.getMax());
+        assertEquals(LatencySnapshot.EMPTY, histogram.interval());
+        assertEquals(3, histogram.total().getCount());
+        assertEquals(1_000_000, histogram.total().getMax());
+    }
+
+    @Test
+    void testBucketsCoverEveryValue() {
+        // Given
+        long[] values = { 0, 1, 15, 16, 17, 31, 32, 1_000, 123_456_789, LatencyHistogram.HIGHEST_VALUE };
+
+        for (long value : values) {
+            // When
+            int index = LatencyHistogram.index(value);
+
+            // Then
+            assertThat(LatencyHistogram.highestValueOf(index)).isGreaterThanOrEqualTo(value)
+                                                              .isLessThanOrEqualTo(value + value / 16);
+        }
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(-5);
+        assertEquals(LatencyHistogram.HIGHEST_VALUE, histogram.total().getMax());
+    }
+
+}
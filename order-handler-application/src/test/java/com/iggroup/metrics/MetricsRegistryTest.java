@@ -0,0 +1,128 @@
+package com.iggroup.metrics;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.lock.StripedOrderLocks;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+class MetricsRegistryTest {
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+    private ThreadUtilisation consumer = new ThreadUtilisation();
+    private MetricsRegistry registry = new MetricsRegistry(provider, () -> 7, new StripedOrderLocks(1), List.of(consumer));
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.stop();
+        provider.clear();
+    }
+
+    @Test
+    void testBookCountsFollowAddsFillsAndRemoves() {
+        // Given
+        Order buy1 = createOrder(Side.BUY, BigDecimal.valueOf(9));
+        Order buy2 = createOrder(Side.BUY, BigDecimal.valueOf(9));
+        Order buy3 = createOrder(Side.BUY, BigDecimal.valueOf(8));
+        Order sell = createOrder(Side.SELL, BigDecimal.valueOf(12));
+        long fills = provider.getCounters().getFills();
+
+        // When
+        orderHandler.addOrders(List.of(buy1, buy2, buy3, sell));
+        // Fills buy1
+        orderHandler.addOrder(createOrder(Side.SELL, BigDecimal.valueOf(9)));
+        orderHandler.removeOrder(buy3.getId());
+
+        // Then
+        OrderBook orderBook = provider.getOrderBookBySymbol("IGG");
+        assertEquals(1, orderBook.getOrderCount(Side.BUY));
+        assertEquals(1, orderBook.getLevelCount(Side.BUY));
+        assertEquals(1, orderBook.getOrderCount(Side.SELL));
+        assertEquals(1, orderBook.getLevelCount(Side.SELL));
+        assertEquals(fills + 1, provider.getCounters().getFills());
+    }
+
+    @Test
+    void testSampleWorksOutRatesAndBusyRatio() throws InterruptedException {
+        // Given
+        registry.sample();
+        long added = registry.getOrdersAdded();
+        orderHandler.addOrder(createOrder());
+        orderHandler.addOrder(createOrder());
+        consumer.busy(300);
+        consumer.idle(100);
+        Thread.sleep(20);
+
+        // When
+        registry.sample();
+
+        // Then
+        assertEquals(added + 2, registry.getOrdersAdded());
+        assertThat(registry.getOrdersAddedPerSecond()).isPositive();
+        assertThat(registry.getFillsPerSecond()).isZero();
+        assertEquals(0.75, registry.getConsumerBusyRatio());
+        assertEquals(7, registry.getTradeQueueDepth());
+    }
+
+    @Test
+    void testBooksAreExposedOverJmxAndHttp() throws IOException, JMException {
+        // Given
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        orderHandler.addOrder(createOrder());
+        registry.start(server, 60_000);
+        MetricsHttpServer httpServer = new MetricsHttpServer(registry, 0);
+        httpServer.start();
+
+        // When
+        String text;
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + httpServer.getPort() + MetricsHttpServer.PATH)
+                                                                                                                                 .openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            httpServer.stop();
+        }
+
+        // Then
+        ObjectName book = new ObjectName(MetricsRegistry.DOMAIN + ":type=OrderBook,symbol=" + ObjectName.quote("IGG"));
+        assertEquals(1L, server.getAttribute(book, "BuyOrders"));
+        assertEquals(7, server.getAttribute(new ObjectName(MetricsRegistry.DOMAIN + ":type=Engine"), "TradeQueueDepth"));
+        assertEquals(200, connection.getResponseCode());
+        assertThat(text).contains("order_handler_trade_queue_depth 7\n")
+                        .contains("order_handler_resting_orders{symbol=\"IGG\",side=\"BUY\"} 1\n")
+                        .contains("order_handler_price_levels{symbol=\"IGG\",side=\"SELL\"} 0\n");
+        registry.stop();
+        assertThat(server.queryNames(new ObjectName(MetricsRegistry.DOMAIN + ":*"), null)).isEqualTo(Collections.emptySet());
+    }
+
+}
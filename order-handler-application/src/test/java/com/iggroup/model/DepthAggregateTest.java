@@ -0,0 +1,88 @@
+package com.iggroup.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.provider.OrderBookProvider;
+
+class DepthAggregateTest {
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private OrderBook orderBook;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+        orderBook = provider.getOrderBookBySymbol("IGG");
+    }
+
+    @Test
+    void testMatchesLevelWalkWhileGrowing() {
+        // Given
+        Random random = new Random(42L);
+        List<Order> resting = new ArrayList<>();
+        long id = 0;
+
+        for (int i = 0; i < 5_000; i++) {
+            // When
+            int action = random.nextInt(10);
+            if (action < 6 || resting.isEmpty()) {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                // Widening range, so the window is re-centred and grown on both ends
+                long spread = 100 + i * 4L;
+                long price = 100_000 + (side == Side.BUY ? -1 : 1) * (1 + random.nextInt((int) spread));
+                Order order = new Order().init(++id, "IGG", side, price, random.nextInt(50) + 1);
+                orderBook.addOrder(order);
+                resting.add(order);
+            } else if (action < 8) {
+                Order order = resting.get(random.nextInt(resting.size()));
+                orderBook.updateQuantity(order, random.nextInt(50) + 1);
+            } else {
+                Order order = resting.remove(random.nextInt(resting.size()));
+                orderBook.removeOrder(order);
+            }
+
+            // Then
+            if (i % 50 == 0) {
+                long quantity = random.nextInt(2_000) + 1;
+                assertEquals(walk(Side.BUY, quantity), orderBook.getNotionalToFill(Side.BUY, quantity));
+                assertEquals(walk(Side.SELL, quantity), orderBook.getNotionalToFill(Side.SELL, quantity));
+            }
+        }
+        assertEquals(walk(Side.SELL, Long.MAX_VALUE / 2), orderBook.getNotionalToFill(Side.SELL, Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void testTooWideSideFallsBackToLevelWalk() {
+        // Given
+        orderBook.addOrder(new Order().init(1L, "IGG", Side.SELL, 100L, 5));
+        orderBook.addOrder(new Order().init(2L, "IGG", Side.SELL, 100L + DepthAggregate.MAX_CAPACITY, 5));
+        orderBook.addOrder(new Order().init(3L, "IGG", Side.SELL, 150L, 5));
+
+        // When
+        long notional = orderBook.getNotionalToFill(Side.SELL, 12);
+
+        // Then
+        assertEquals(100L * 5 + 150L * 5 + (100L + DepthAggregate.MAX_CAPACITY) * 2, notional);
+    }
+
+    private long walk(final Side side, final long quantity) {
+        long filled = 0;
+        long notional = 0;
+        for (PriceLevel level : orderBook.getOrders(side).values()) {
+            long taken = Math.min(level.getTotalQuantity(), quantity - filled);
+            notional += taken * level.getPrice();
+            filled += taken;
+            if (filled >= quantity)
+                break;
+        }
+        return notional;
+    }
+
+}
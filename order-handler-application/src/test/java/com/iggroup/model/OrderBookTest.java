@@ -0,0 +1,153 @@
+package com.iggroup.model;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.journal.OrderJournal;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.marketdata.DepthListener;
+import com.iggroup.marketdata.DepthUpdate;
+import com.iggroup.provider.OrderBookProvider;
+
+class OrderBookTest {
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private OrderBook orderBook;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+        orderBook = provider.getOrderBookBySymbol("IGG");
+    }
+
+    @Test
+    void testChangeInvalidatesRead() {
+        // Given
+        long stamp = orderBook.beginRead();
+
+        // When
+        orderBook.addOrder(createOrder(Side.BUY, BigDecimal.TEN));
+
+        // Then
+        assertFalse(orderBook.validate(stamp));
+        assertTrue(orderBook.validate(orderBook.beginRead()));
+    }
+
+    @Test
+    void testOpenChangeInvalidatesRead() {
+        // Given
+        long stamp = orderBook.beginRead();
+
+        // When
+        orderBook.beginChange();
+        orderBook.addOrder(createOrder(Side.BUY, BigDecimal.TEN));
+
+        // Then
+        assertFalse(orderBook.validate(stamp));
+        orderBook.endChange();
+        assertFalse(orderBook.validate(stamp));
+    }
+
+    @Test
+    void testTradeIsOneChange() throws InterruptedException {
+        // Given
+        DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+        orderHandler.addOrder(createOrder(Side.SELL, BigDecimal.TEN));
+        CountDownLatch read = new CountDownLatch(1);
+        AtomicBoolean checked = new AtomicBoolean();
+        AtomicBoolean readDuringTrade = new AtomicBoolean();
+        // Published while the level changes, the filled order is still to leave the book
+        DepthListener listener = (symbol, side, update, price, totalQuantity, orderCount) -> {
+            if (update == DepthUpdate.LEVEL_ADDED || !checked.compareAndSet(false, true))
+                return;
+
+            new Thread(() -> {
+                orderBook.beginRead();
+                read.countDown();
+            }).start();
+            try {
+                readDuringTrade.set(read.await(100, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        orderBook.getDepthPublisher().subscribe(listener);
+
+        // When
+        try {
+            orderHandler.addOrder(createOrder(Side.BUY, BigDecimal.TEN));
+        } finally {
+            orderBook.getDepthPublisher().unsubscribe(listener);
+        }
+
+        // Then
+        assertFalse(readDuringTrade.get());
+        assertTrue(read.await(1, TimeUnit.SECONDS));
+        assertThat(orderBook.getOrderCount(Side.SELL)).isZero();
+    }
+
+    @Test
+    void testTradeIsRecordedOnceTheBookShowsIt() throws InterruptedException {
+        // Given
+        DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+        orderHandler.addOrder(createOrder(Side.SELL, BigDecimal.TEN));
+        CountDownLatch read = new CountDownLatch(1);
+        AtomicLong restingSells = new AtomicLong(-1L);
+        AtomicBoolean readDuringJournal = new AtomicBoolean();
+        provider.setJournal(new OrderJournal() {
+
+            @Override
+            public void add(final Order order) {}
+
+            @Override
+            public void modify(final long orderId, final int quantity, final int modifications) {}
+
+            @Override
+            public void remove(final long orderId) {}
+
+            @Override
+            public void trade(final long orderId, final long orderAgainstId, final long price, final int quantity, final int quantityLeft,
+                              final int quantityLeftAgainst) {
+                // A slow journal does not hold readers back
+                new Thread(() -> {
+                    long stamp;
+                    long orderCount;
+                    do {
+                        stamp = orderBook.beginRead();
+                        orderCount = orderBook.getOrderCount(Side.SELL);
+                    } while (!orderBook.validate(stamp));
+                    restingSells.set(orderCount);
+                    read.countDown();
+                }).start();
+                try {
+                    readDuringJournal.set(read.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        // When
+        try {
+            orderHandler.addOrder(createOrder(Side.BUY, BigDecimal.TEN));
+        } finally {
+            provider.setJournal(OrderJournal.NONE);
+        }
+
+        // Then
+        assertTrue(readDuringJournal.get());
+        assertThat(restingSells.get()).isZero();
+    }
+}
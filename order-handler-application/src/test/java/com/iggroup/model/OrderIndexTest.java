@@ -0,0 +1,73 @@
+package com.iggroup.model;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OrderIndexTest {
+
+    private OrderIndex index = new OrderIndex();
+
+    @Test
+    void testPutGetRemove() {
+        // Given
+        Order order = createOrder();
+
+        // When
+        assertNull(index.putIfAbsent(order));
+
+        // Then
+        assertSame(order, index.get(order.getId()));
+        assertSame(order, index.putIfAbsent(order));
+        assertTrue(index.remove(order.getId(), order));
+        assertNull(index.get(order.getId()));
+        assertFalse(index.remove(order.getId(), order));
+    }
+
+    @Test
+    void testRemoveOnlyWhenStillMappedToSameOrder() {
+        // Given
+        Order order = createOrder();
+        Order sameId = createOrder();
+        sameId.setId(order.getId());
+        index.putIfAbsent(order);
+
+        // When & Then
+        assertFalse(index.remove(order.getId(), sameId));
+        assertSame(order, index.get(order.getId()));
+    }
+
+    @Test
+    void testManyOrdersAcrossResizesAndRemovals() {
+        // Given
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Order order = createOrder();
+            orders.add(order);
+            index.putIfAbsent(order);
+        }
+
+        // When
+        for (int i = 0; i < orders.size(); i += 2) {
+            index.remove(orders.get(i).getId(), orders.get(i));
+        }
+
+        // Then
+        assertEquals(10_000, index.size());
+        for (int i = 0; i < orders.size(); i++) {
+            if (i % 2 == 0) {
+                assertNull(index.get(orders.get(i).getId()));
+            } else {
+                assertSame(orders.get(i), index.get(orders.get(i).getId()));
+            }
+        }
+    }
+}
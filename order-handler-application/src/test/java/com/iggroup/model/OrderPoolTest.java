@@ -0,0 +1,81 @@
+package com.iggroup.model;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.toTicks;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.provider.OrderBookProvider;
+
+class OrderPoolTest {
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @Test
+    void testReleasedOrderIsResetAndReused() {
+        // Given
+        OrderPool pool = new OrderPool(1);
+        Order order = pool.acquire().init(1L, "IGG", Side.BUY, 100L, 5);
+
+        // When
+        pool.release(order);
+
+        // Then
+        assertEquals(0L, order.getId());
+        assertNull(order.getSymbol());
+        assertSame(order, pool.acquire());
+        assertEquals(0L, pool.getAllocations());
+        // Empty pool allocates
+        assertNotSame(order, pool.acquire());
+        assertEquals(1L, pool.getAllocations());
+    }
+
+    @Test
+    void testRestingOrderCannotBeReleased() {
+        // Given
+        OrderPool pool = new OrderPool(1);
+        Order order = createOrder();
+        provider.getOrderBookBySymbol("IGG").addOrder(order);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> pool.release(order));
+    }
+
+    @Test
+    void testFilledAndRemovedOrdersAreRecycled() {
+        // Given
+        OrderPool pool = new OrderPool(4);
+        DefaultOrderHandler handler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE, pool);
+        Order sellOrder = pool.acquire().init(1L, "IGG", Side.SELL, toTicks(10), 10);
+        Order buyOrder = pool.acquire().init(2L, "IGG", Side.BUY, toTicks(10), 10);
+        Order restingOrder = pool.acquire().init(3L, "IGG", Side.BUY, toTicks(5), 10);
+        handler.addOrder(sellOrder);
+        handler.addOrder(restingOrder);
+
+        // When
+        handler.addOrder(buyOrder);
+        handler.removeOrder(restingOrder.getId());
+
+        // Then
+        assertEquals(4, pool.available());
+        assertEquals(0L, pool.getAllocations());
+        assertEquals(0L, sellOrder.getId());
+        assertEquals(0L, buyOrder.getId());
+        assertNull(provider.getOrder(1L));
+        assertNull(provider.getOrder(3L));
+    }
+
+}
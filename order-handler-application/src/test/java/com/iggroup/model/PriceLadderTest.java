@@ -0,0 +1,104 @@
+package com.iggroup.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PriceLadderTest {
+
+    private final OrderIndex orderIndex = new OrderIndex();
+    private final OrderBook ladderBook = new OrderBook("IGG", TickSize.ONE_HUNDREDTH, orderIndex, PriceBand.of(1_000L, 1_199L));
+    private final OrderBook skipListBook = new OrderBook("IGG", TickSize.ONE_HUNDREDTH, new OrderIndex());
+
+    @Test
+    void testLevelsInsideAndOutsideOfBandIterateBestFirst() {
+        // Given
+        long[] prices = { 1_100L, 1_250L, 1_000L, 990L, 1_199L, 1_050L };
+        long id = 0;
+
+        // When
+        for (long price : prices) {
+            ladderBook.addOrder(new Order().init(++id, "IGG", Side.BUY, price, 1));
+            ladderBook.addOrder(new Order().init(++id, "IGG", Side.SELL, price, 1));
+        }
+
+        // Then
+        assertThat(ladderBook.getBuyOrders().keySet()).containsExactly(1_250L, 1_199L, 1_100L, 1_050L, 1_000L, 990L);
+        assertThat(ladderBook.getSellOrders().keySet()).containsExactly(990L, 1_000L, 1_050L, 1_100L, 1_199L, 1_250L);
+        assertEquals(1_250L, ladderBook.getBuyOrders().best().getPrice());
+        assertEquals(990L, ladderBook.getSellOrders().best().getPrice());
+        assertThat(ladderBook.getBuyOrders()).hasSize(6);
+        assertSame(ladderBook.getBuyOrders().level(1_050L), ladderBook.getBuyOrders().get(1_050L));
+    }
+
+    @Test
+    void testBestMovesPastEmptiedLevels() {
+        // Given
+        Order best = new Order().init(1L, "IGG", Side.SELL, 1_001L, 1);
+        Order next = new Order().init(2L, "IGG", Side.SELL, 1_190L, 1);
+        ladderBook.addOrder(best);
+        ladderBook.addOrder(next);
+
+        // When
+        ladderBook.removeOrder(best);
+
+        // Then
+        assertSame(next.getLevel(), ladderBook.getSellOrders().best());
+        assertEquals(1_190L, ladderBook.getTopOfBook().getAskPrice());
+
+        // When
+        ladderBook.removeOrder(next);
+
+        // Then
+        assertNull(ladderBook.getSellOrders().best());
+        assertThat(ladderBook.getSellOrders()).isEmpty();
+        assertNull(ladderBook.getSellOrders().level(1_190L));
+    }
+
+    @Test
+    void testMatchesSkipListBook() {
+        // Given
+        Random random = new Random(42L);
+        List<Order[]> resting = new ArrayList<>();
+        long id = 0;
+
+        for (int i = 0; i < 5_000; i++) {
+            // When
+            int action = random.nextInt(10);
+            if (action < 6 || resting.isEmpty()) {
+                Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+                // Mostly inside the band, some on either side of it
+                long price = 950L + random.nextInt(300);
+                int quantity = random.nextInt(50) + 1;
+                Order[] pair = { new Order().init(++id, "IGG", side, price, quantity), new Order().init(id, "IGG", side, price, quantity) };
+                ladderBook.addOrder(pair[0]);
+                skipListBook.addOrder(pair[1]);
+                resting.add(pair);
+            } else {
+                Order[] pair = resting.remove(random.nextInt(resting.size()));
+                ladderBook.removeOrder(pair[0]);
+                skipListBook.removeOrder(pair[1]);
+            }
+
+            // Then
+            for (Side side : Side.values()) {
+                assertThat(ladderBook.getOrders(side).keySet()).containsExactlyElementsOf(skipListBook.getOrders(side).keySet());
+                assertEquals(price(skipListBook.getOrders(side).best()), price(ladderBook.getOrders(side).best()));
+            }
+            assertEquals(skipListBook.getTopOfBook().getBidPrice(), ladderBook.getTopOfBook().getBidPrice());
+            assertEquals(skipListBook.getTopOfBook().getAskPrice(), ladderBook.getTopOfBook().getAskPrice());
+        }
+    }
+
+    private static Long price(final PriceLevel level) {
+        return level == null ? null : level.getPrice();
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.iggroup.model;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class PriceLevelTest {
+
+    private PriceLevel level = new PriceLevel(1000L);
+
+    @Test
+    void testAppendKeepsArrivalOrderAndTotals() {
+        // Given
+        Order first = createOrder(Side.BUY, BigDecimal.TEN);
+        Order second = createOrder(Side.BUY, BigDecimal.TEN);
+        Order third = createOrder(Side.BUY, BigDecimal.TEN);
+
+        // When
+        level.append(first);
+        level.append(second);
+        level.append(third);
+
+        // Then
+        assertThat(level).containsExactly(first, second, third);
+        assertEquals(3, level.getOrderCount());
+        assertEquals(30, level.getTotalQuantity());
+    }
+
+    @Test
+    void testRemoveByHandle() {
+        // Given
+        Order first = createOrder(Side.BUY, BigDecimal.TEN);
+        Order second = createOrder(Side.BUY, BigDecimal.TEN);
+        Order third = createOrder(Side.BUY, BigDecimal.TEN);
+        level.append(first);
+        level.append(second);
+        level.append(third);
+
+        // When
+        assertTrue(level.remove(second));
+
+        // Then
+        assertThat(level).containsExactly(first, third);
+        assertEquals(2, level.getOrderCount());
+        assertEquals(20, level.getTotalQuantity());
+        assertFalse(level.contains(second));
+        assertNull(second.getNext());
+        assertFalse(level.remove(second));
+    }
+
+    @Test
+    void testRemoveWhileIterating() {
+        // Given
+        Order first = createOrder(Side.BUY, BigDecimal.TEN);
+        Order second = createOrder(Side.BUY, BigDecimal.TEN);
+        level.append(first);
+        level.append(second);
+
+        // When
+        for (Order order : level) {
+            level.remove(order);
+        }
+
+        // Then
+        assertTrue(level.isEmpty());
+        assertEquals(0, level.getTotalQuantity());
+    }
+
+    @Test
+    void testUpdateQuantity() {
+        // Given
+        Order order = createOrder(Side.BUY, BigDecimal.TEN);
+        level.append(order);
+
+        // When
+        level.updateQuantity(order, 4);
+
+        // Then
+        assertEquals(4, order.getQuantity());
+        assertEquals(4, level.getTotalQuantity());
+    }
+}
@@ -0,0 +1,96 @@
+package com.iggroup.model;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.toTicks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.provider.OrderBookProvider;
+
+class TopOfBookTest {
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+    private OrderBook orderBook;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+        orderBook = provider.getOrderBookBySymbol("IGG");
+    }
+
+    @Test
+    void testTracksBestLevels() {
+        // Given
+        Order bid1 = createOrder(Side.BUY, BigDecimal.TEN);
+        Order bid2 = createOrder(Side.BUY, BigDecimal.TEN);
+        Order ask = createOrder(Side.SELL, BigDecimal.valueOf(12));
+
+        // When
+        orderHandler.addOrder(bid1);
+        orderHandler.addOrder(bid2);
+        orderHandler.addOrder(ask);
+
+        // Then
+        TopOfBook top = orderBook.getTopOfBook();
+        assertThat(top).extracting(TopOfBook::getBidPrice, TopOfBook::getBidQuantity, TopOfBook::getBidOrderCount,
+                                   TopOfBook::getAskPrice, TopOfBook::getAskQuantity, TopOfBook::getAskOrderCount, TopOfBook::getSequence)
+                       .containsExactly(toTicks(10), 20L, 2, toTicks(12), 10L, 1, 3L);
+    }
+
+    @Test
+    void testDeeperLevelsDoNotPublish() {
+        // Given
+        orderHandler.addOrder(createOrder(Side.BUY, BigDecimal.TEN));
+        TopOfBook top = orderBook.getTopOfBook();
+        Order deepBid = createOrder(Side.BUY, BigDecimal.ONE);
+
+        // When
+        orderHandler.addOrder(deepBid);
+        orderHandler.removeOrder(deepBid.getId());
+
+        // Then
+        assertSame(top, orderBook.getTopOfBook());
+    }
+
+    @Test
+    void testTradeAndRemovalMoveTheTop() {
+        // Given
+        Order bestBid = createOrder(Side.BUY, BigDecimal.valueOf(11));
+        Order nextBid = createOrder(Side.BUY, BigDecimal.TEN);
+        orderHandler.addOrder(bestBid);
+        orderHandler.addOrder(nextBid);
+        Order sellOrder = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        sellOrder.setQuantity(4);
+
+        // When
+        orderHandler.addOrder(sellOrder);
+
+        // Then
+        assertEquals(6L, orderBook.getTopOfBook().getBidQuantity());
+        assertFalse(orderBook.getTopOfBook().hasAsk());
+
+        // When
+        orderHandler.removeOrder(bestBid.getId());
+
+        // Then
+        assertEquals(toTicks(10), orderBook.getTopOfBook().getBidPrice());
+
+        // When
+        orderHandler.removeOrder(nextBid.getId());
+
+        // Then
+        assertThat(orderBook.getTopOfBook()).extracting(TopOfBook::hasBid, TopOfBook::getBidQuantity, TopOfBook::getBidPrice)
+                                            .containsExactly(false, 0L, 0L);
+    }
+
+}
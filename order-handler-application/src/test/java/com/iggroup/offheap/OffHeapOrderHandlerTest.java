@@ -0,0 +1,148 @@
+package com.iggroup.offheap;
+
+import static com.iggroup.factory.OrderFactory.toTicks;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.BlockingWaitStrategy;
+import com.iggroup.trade.event.TradeEvent;
+import com.iggroup.trade.event.TradeEventPublisher;
+import com.iggroup.trade.event.TradeListener;
+
+class OffHeapOrderHandlerTest {
+
+    private static final String SYMBOL = "IGG";
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private SlotIndex slots = new SlotIndex();
+    private OffHeapOrderHandler handler = new OffHeapOrderHandler(provider, 0, slots, OrderPool.NONE);
+    private long nextId;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.setTradeEvents(TradeEventPublisher.NONE);
+    }
+
+    @Test
+    void testIncomingOrderCrossesAndOnlyQuantityLeftRests() throws InterruptedException {
+        // Given
+        TradeEventPublisher tradeEvents = new TradeEventPublisher(64, new BlockingWaitStrategy());
+        provider.setTradeEvents(tradeEvents);
+        List<String> fills = new ArrayList<>();
+        TradeListener listener = event -> fills.add(describe(event));
+        tradeEvents.subscribe("test", listener);
+        long first = add(Side.SELL, 100, 10);
+        long second = add(Side.SELL, 101, 5);
+
+        // When
+        long buy = add(Side.BUY, 101, 12);
+
+        // Then
+        tradeEvents.unsubscribe(listener);
+        assertThat(fills).containsExactly(buy + "/" + first + "@" + toTicks(100) + "x10", buy + "/" + second + "@" + toTicks(101) + "x2");
+        assertEquals(0, handler.getOrderCount(SYMBOL, Side.BUY));
+        assertEquals(1, handler.getOrderCount(SYMBOL, Side.SELL));
+        assertEquals(SlotIndex.ABSENT, slots.get(first));
+        assertEquals(SlotIndex.ABSENT, slots.get(buy));
+        assertEquals(1, handler.getStore().size());
+        assertEquals(3, handler.getStore().quantity(SlotIndex.slot(slots.get(second))));
+    }
+
+    @Test
+    void testModifyAndRemoveById() throws OrderModificationException {
+        // Given
+        long buy = add(Side.BUY, 99, 10);
+        long sell = add(Side.SELL, 101, 4);
+
+        // When
+        handler.modifyOrder(buy, 6, toTicks(99));
+        handler.modifyOrder(buy, 6, toTicks(101));
+        handler.removeOrder(sell);
+
+        // Then
+        int slot = SlotIndex.slot(slots.get(buy));
+        assertEquals(2, handler.getStore().quantity(slot));
+        assertEquals(toTicks(101), handler.getStore().price(slot));
+        assertEquals(2, handler.getStore().modifications(slot));
+        assertEquals(SlotIndex.ABSENT, slots.get(sell));
+        assertEquals(0, handler.getOrderCount(SYMBOL, Side.SELL));
+    }
+
+    @Test
+    void testModificationsAreLimited() throws OrderModificationException {
+        // Given
+        long buy = add(Side.BUY, 99, 10);
+        for (int i = 0; i < 5; i++) {
+            handler.modifyOrder(buy, 10 - i, toTicks(99));
+        }
+
+        // When / Then
+        assertThrows(OrderModificationException.class, () -> handler.modifyOrder(buy, 1, toTicks(99)));
+    }
+
+    @Test
+    void testMassCancelAndGetPrice() {
+        // Given
+        add(Side.SELL, 10, 2);
+        add(Side.SELL, 11, 2);
+        add(Side.BUY, 9, 5);
+
+        // When
+        double price = handler.getPrice(SYMBOL, 3, Side.SELL);
+        handler.removeOrders(SYMBOL, Side.SELL);
+
+        // Then
+        assertEquals(10.3333, price);
+        assertEquals(0, handler.getOrderCount(SYMBOL, Side.SELL));
+        assertEquals(1, handler.getOrderCount(SYMBOL, Side.BUY));
+        assertEquals(1, slots.size());
+    }
+
+    @Test
+    void testStoreReusesSlotsAndGrowsByChunk() {
+        // Given
+        OffHeapOrderStore store = new OffHeapOrderStore();
+        for (int i = 0; i <= OffHeapOrderStore.CHUNK_RECORDS; i++) {
+            store.setId(store.allocate(), i + 1L);
+        }
+
+        // When
+        store.release(7);
+        int reused = store.allocate();
+
+        // Then
+        assertEquals(7, reused);
+        assertEquals(OffHeapOrderStore.CHUNK_RECORDS + 1, store.size());
+        assertEquals(2L * OffHeapOrderStore.CHUNK_RECORDS * OffHeapOrderStore.RECORD_SIZE, store.capacityBytes());
+        assertEquals(OffHeapOrderStore.CHUNK_RECORDS + 1L, store.id(OffHeapOrderStore.CHUNK_RECORDS));
+    }
+
+    private long add(final Side side, final long price, final int quantity) {
+        long id = ++nextId;
+        handler.addOrder(new Order().init(id, SYMBOL, side, toTicks(price), quantity));
+        return id;
+    }
+
+    private static String describe(final TradeEvent event) {
+        return event.getAggressorId() + "/" + event.getRestingId() + "@" + event.getPrice() + "x" + event.getQuantity();
+    }
+
+}
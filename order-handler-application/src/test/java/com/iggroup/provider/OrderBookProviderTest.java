@@ -1,10 +1,25 @@
 package com.iggroup.provider;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
 
 import org.junit.jupiter.api.Test;
 
+import com.iggroup.exception.UnknownSymbolException;
+import com.iggroup.factory.OrderFactory;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceBand;
+import com.iggroup.model.TickSize;
+
 class OrderBookProviderTest {
 
     private OrderBookProvider provider = OrderBookProvider.getInstance();
@@ -18,4 +33,79 @@ class OrderBookProviderTest {
     void testGetOrderBookBySymbol() {
         assertNotNull(provider.getOrderBookBySymbol("IGG"));
     }
+
+    @Test
+    void testTickSizePerSymbol() {
+        provider.setTickSize("TICK", TickSize.of("0.5"));
+
+        assertEquals(TickSize.of("0.5"), provider.getOrderBookBySymbol("TICK").getTickSize());
+        assertEquals(21L, provider.getTickSize("TICK").toTicks(new BigDecimal("10.5")));
+        assertThrows(IllegalArgumentException.class, () -> provider.getTickSize("TICK").toTicks(new BigDecimal("10.25")));
+        assertThrows(IllegalStateException.class, () -> provider.setTickSize("TICK", TickSize.ONE_HUNDREDTH));
+    }
+
+    @Test
+    void testPriceBandPerSymbol() {
+        provider.setPriceBand("BAND", PriceBand.of(100L, 199L));
+
+        assertEquals(PriceBand.of(100L, 199L), provider.getOrderBookBySymbol("BAND").getPriceBand());
+        assertNull(provider.getOrderBookBySymbol("IGG").getPriceBand());
+        assertThrows(IllegalStateException.class, () -> provider.setPriceBand("BAND", PriceBand.of(100L, 299L)));
+        assertThrows(IllegalArgumentException.class, () -> PriceBand.of(100L, 99L));
+    }
+
+    @Test
+    void testSymbolIdFindsTheBook() {
+        // Given
+        int symbolId = provider.list("IDS");
+
+        // When
+        Order order = OrderFactory.createOrder();
+        order.setSymbol("IDS");
+        provider.admit(order);
+
+        // Then
+        assertEquals(symbolId, order.getSymbolId());
+        assertEquals(symbolId, provider.list("IDS"));
+        assertNotEquals(symbolId, provider.admit("IDS-OTHER"));
+        assertSame(provider.getOrderBookBySymbol("IDS"), provider.getOrderBook(symbolId));
+        assertSame(provider.getOrderBook(symbolId), provider.getOrderBook(order));
+    }
+
+    @Test
+    void testExplicitListingRejectsUnknownSymbols() {
+        provider.list("LISTED");
+        provider.setExplicitListing(true);
+        try {
+            assertNotNull(provider.getOrderBookBySymbol("LISTED"));
+            assertThrows(UnknownSymbolException.class, () -> provider.getOrderBookBySymbol("UNLISTED"));
+            assertEquals(OrderBookProvider.NO_SYMBOL_ID, provider.getSymbolId("UNLISTED"));
+        } finally {
+            provider.setExplicitListing(false);
+        }
+    }
+
+    @Test
+    void testDelistDropsTheBookAndItsOrders() {
+        // Given
+        int symbolId = provider.list("DELIST");
+        OrderBook orderBook = provider.getOrderBook(symbolId);
+        Order order = OrderFactory.createOrder();
+        order.setSymbol("DELIST");
+        orderBook.addOrder(order);
+
+        // When
+        boolean delisted = provider.delist("DELIST");
+
+        // Then
+        assertTrue(delisted);
+        assertFalse(provider.delist("DELIST"));
+        assertNull(provider.getOrderBook(symbolId));
+        assertNull(provider.getOrderBook(order));
+        assertNull(provider.getOrder(order.getId()));
+        assertEquals(OrderBookProvider.NO_SYMBOL_ID, provider.getSymbolId("DELIST"));
+        // Listed again with a new id and an empty book
+        assertNotEquals(symbolId, provider.list("DELIST"));
+        assertTrue(provider.getOrderBookBySymbol("DELIST").getBuyOrders().isEmpty());
+    }
 }
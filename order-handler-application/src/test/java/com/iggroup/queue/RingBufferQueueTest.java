@@ -0,0 +1,130 @@
+package com.iggroup.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class RingBufferQueueTest {
+
+    @Test
+    void testFifoAndBounded() {
+        // Given
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(3, new BlockingWaitStrategy());
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+
+        // Then
+        assertEquals(4, queue.capacity());
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.peek());
+        assertThat(queue).containsExactly(0, 1, 2, 3);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void testDrainInBatches() {
+        // Given
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(16, new BlockingWaitStrategy());
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+
+        // When
+        int first = queue.drainTo(drained, 4);
+        int second = queue.drain(drained::add, 100);
+
+        // Then
+        assertEquals(4, first);
+        assertEquals(6, second);
+        assertThat(drained).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testPollTimesOut() throws InterruptedException {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(2, new BlockingWaitStrategy());
+
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        queue.offer(1);
+        queue.offer(2);
+        assertFalse(queue.offer(3, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testMultiProducerMultiConsumer() throws InterruptedException {
+        for (String strategy : new String[] { "BLOCKING", "YIELDING" }) {
+            assertEquals(expectedSum(4, 50_000), transfer(WaitStrategy.forName(strategy), 4, 50_000), strategy);
+        }
+    }
+
+    @Test
+    void testBusySpin() throws InterruptedException {
+        // Kept small, spinning threads can share a single core on build machines
+        assertEquals(expectedSum(1, 2_000), transfer(new BusySpinWaitStrategy(), 1, 2_000));
+    }
+
+    private long transfer(final WaitStrategy waitStrategy, final int producers, final int perProducer) throws InterruptedException {
+        RingBufferQueue<Long> queue = new RingBufferQueue<>(64, waitStrategy);
+        AtomicLong sum = new AtomicLong();
+        AtomicLong consumed = new AtomicLong();
+        long total = (long) producers * perProducer;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (long i = 1; i <= perProducer; i++) {
+                        queue.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                List<Long> batch = new ArrayList<>();
+                try {
+                    while (consumed.get() < total) {
+                        Long first = queue.poll(10, TimeUnit.MILLISECONDS);
+                        if (first == null)
+                            continue;
+                        batch.add(first);
+                        queue.drainTo(batch, 31);
+                        batch.forEach(sum::addAndGet);
+                        consumed.addAndGet(batch.size());
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        assertEquals(total, consumed.get());
+        return sum.get();
+    }
+
+    private long expectedSum(final int producers, final long perProducer) {
+        return producers * perProducer * (perProducer + 1) / 2;
+    }
+}
@@ -0,0 +1,183 @@
+package com.iggroup.snapshot;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.describe;
+import static com.iggroup.factory.OrderFactory.initIGGOrders;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.journal.FlushPolicy;
+import com.iggroup.journal.JournalReplayer;
+import com.iggroup.journal.MappedJournal;
+import com.iggroup.journal.OrderJournal;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.Side;
+import com.iggroup.model.TickSize;
+import com.iggroup.provider.OrderBookProvider;
+
+class SnapshotTest {
+
+    private static final String SYMBOL_IGG = "IGG";
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.setJournal(OrderJournal.NONE);
+        provider.clear();
+    }
+
+    @Test
+    void testWriteAndLoad() throws IOException {
+        // Given
+        initIGGOrders();
+        provider.setTickSize("SNAP", TickSize.of("0.5"));
+        Order order = Order.builder().id(1_000_000L).symbol("SNAP").side(Side.SELL).price(3L).quantity(7).modifications(2).build();
+        provider.getOrderBookBySymbol("SNAP").addOrder(order);
+        Map<Side, List<String>> expectedIGG = describe(provider.getOrderBookBySymbol(SYMBOL_IGG));
+        Map<Side, List<String>> expectedSnap = describe(provider.getOrderBookBySymbol("SNAP"));
+
+        // When
+        Path snapshot = new SnapshotWriter(provider, directory).write();
+        provider.clear();
+        SnapshotLoader loader = new SnapshotLoader(provider).load(SnapshotLoader.latest(directory).get());
+
+        // Then
+        assertEquals(snapshot, SnapshotLoader.latest(directory).get());
+        assertEquals(501L, loader.getOrders());
+        assertEquals(-1L, loader.getJournalSegment());
+        assertEquals(1_000_000L, loader.getMaxOrderId());
+        assertEquals(expectedIGG, describe(provider.getOrderBookBySymbol(SYMBOL_IGG)));
+        assertEquals(expectedSnap, describe(provider.getOrderBookBySymbol("SNAP")));
+        assertEquals(TickSize.of("0.5"), provider.getOrderBookBySymbol("SNAP").getTickSize());
+    }
+
+    @Test
+    void testLoadThenReplayJournalTail() throws IOException, OrderModificationException {
+        // Given
+        Order sell = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order buy = createOrder(Side.BUY, BigDecimal.valueOf(9));
+        Order aggressor = createOrder(Side.BUY, BigDecimal.valueOf(11));
+        aggressor.setQuantity(4);
+        long snapshotSegment;
+        try (MappedJournal journal = new MappedJournal(directory, MappedJournal.DEFAULT_SEGMENT_SIZE, FlushPolicy.NONE, 1)) {
+            provider.setJournal(journal);
+            orderHandler.addOrder(sell);
+            orderHandler.addOrder(buy);
+            new SnapshotWriter(provider, directory).write();
+            snapshotSegment = journal.getSegmentIndex();
+            // After the snapshot, only in the journal
+            orderHandler.addOrder(aggressor);
+            orderHandler.modifyOrder(buy.getId(), 3, buy.getPrice());
+            orderHandler.addOrder(createOrder(Side.SELL, BigDecimal.valueOf(12)));
+        }
+        provider.setJournal(OrderJournal.NONE);
+        Map<Side, List<String>> expected = describe(provider.getOrderBookBySymbol(SYMBOL_IGG));
+        provider.clear();
+
+        // When
+        SnapshotLoader loader = new SnapshotLoader(provider).load(SnapshotLoader.latest(directory).get());
+        new JournalReplayer(provider).replay(directory, loader.getJournalSegment());
+
+        // Then
+        assertEquals(snapshotSegment, loader.getJournalSegment());
+        assertEquals(2L, loader.getOrders());
+        assertEquals(expected, describe(provider.getOrderBookBySymbol(SYMBOL_IGG)));
+        assertEquals(6, provider.getOrder(sell.getId()).getQuantity());
+    }
+
+    @Test
+    void testOrderRestingDuringSnapshotIsRecovered() throws IOException, InterruptedException {
+        // Given
+        Order sell = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order buy = createOrder(Side.BUY, BigDecimal.valueOf(9));
+        CountDownLatch written = new CountDownLatch(1);
+        Thread snapshotThread = new Thread(() -> {
+            try {
+                new SnapshotWriter(provider, directory).write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                written.countDown();
+            }
+        });
+        try (MappedJournal journal = new MappedJournal(directory, MappedJournal.DEFAULT_SEGMENT_SIZE, FlushPolicy.NONE, 1) {
+
+            @Override
+            public void add(final Order order) {
+                super.add(order);
+                if (order != buy)
+                    return;
+
+                // Snapshot taken between the buy being journaled and resting
+                snapshotThread.start();
+                try {
+                    written.await(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }) {
+            provider.setJournal(journal);
+            orderHandler.addOrder(sell);
+
+            // When
+            orderHandler.addOrder(buy);
+            snapshotThread.join();
+            orderHandler.addOrder(createOrder(Side.SELL, BigDecimal.valueOf(12)));
+        }
+        provider.setJournal(OrderJournal.NONE);
+        Map<Side, List<String>> expected = describe(provider.getOrderBookBySymbol(SYMBOL_IGG));
+        provider.clear();
+        SnapshotLoader loader = new SnapshotLoader(provider).load(SnapshotLoader.latest(directory).get());
+        new JournalReplayer(provider).replay(directory, loader.getJournalSegment());
+
+        // Then
+        assertEquals(expected, describe(provider.getOrderBookBySymbol(SYMBOL_IGG)));
+        assertEquals(10, provider.getOrder(buy.getId()).getQuantity());
+    }
+
+    @Test
+    void testTruncatedSnapshotIsRejected() throws IOException {
+        // Given
+        initIGGOrders();
+        Path snapshot = new SnapshotWriter(provider, directory).write();
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length / 2));
+        provider.clear();
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> new SnapshotLoader(provider).load(snapshot));
+        assertThat(Files.list(directory)).noneMatch(path -> path.toString().endsWith(".tmp"));
+    }
+
+}
@@ -1,27 +1,26 @@
 package com.iggroup.trade.consumer;
 
 import static com.iggroup.factory.OrderFactory.createOrder;
+import static com.iggroup.factory.OrderFactory.toTicks;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.math.BigDecimal;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.NavigableSet;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.iggroup.factory.OrderFactory;
+import com.iggroup.lock.StripedOrderLocks;
 import com.iggroup.model.Order;
-import com.iggroup.model.concurrent.AtomicBigDecimal;
+import com.iggroup.model.PriceLevel;
+import com.iggroup.model.Side;
 import com.iggroup.provider.OrderBookProvider;
 
 class TradeOrderConsumerTest {
@@ -35,7 +34,7 @@ class TradeOrderConsumerTest {
     void setup() {
         tradeQueue = new ArrayBlockingQueue<>(500);
         orderToBeRemoved = new ArrayList<>();
-        provider.getOrderBooks().clear();
+        provider.clear();
         tradeService = new TradeOrderConsumer(provider, tradeQueue, o ->orderToBeRemoved.add(o));
         OrderFactory.initIGGOrders();
     }
@@ -53,13 +52,13 @@ class TradeOrderConsumerTest {
          */
         // Given
         Order buyOrder = createOrder();
-        buyOrder.setArrivalDateTime(Instant.now().plusSeconds(1));
-        buyOrder.setPrice(AtomicBigDecimal.valueOf(52));
-        buyOrder.setQuantity(new AtomicInteger(80));
-        provider.getOrderBookBySymbol("IGG").getBuyOrders().computeIfAbsent(buyOrder.getPrice().get(), k -> new ConcurrentSkipListSet<>()).add(buyOrder);
-        NavigableSet<Order> firstLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(BigDecimal.valueOf(51));
-        NavigableSet<Order> secondLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(BigDecimal.valueOf(52));
-        List<Order> expectedRemoved = firstLevel.stream().collect(Collectors.toList()); // Already sorted by price and arrivaldatetime
+        buyOrder.setPrice(toTicks(52));
+        buyOrder.setQuantity(80);
+        provider.getOrderBookBySymbol("IGG").addOrder(buyOrder);
+        PriceLevel firstLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(toTicks(51));
+        PriceLevel secondLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(toTicks(52));
+        List<Order> expectedRemoved = new ArrayList<>();
+        firstLevel.forEach(expectedRemoved::add); // Already sorted by price and the order the book added them in
         Iterator<Order> it = secondLevel.iterator();
         expectedRemoved.add(it.next());
         expectedRemoved.add(it.next());
@@ -76,11 +75,11 @@ class TradeOrderConsumerTest {
     void testExecuteTradePlan_OrderExecutedFirstWithArrival() {
         // Given
         Order buyOrder = createOrder();
-        buyOrder.setPrice(AtomicBigDecimal.valueOf(51));
-        buyOrder.setQuantity(new AtomicInteger(10));
-        provider.getOrderBookBySymbol("IGG").getBuyOrders().computeIfAbsent(buyOrder.getPrice().get(), k -> new ConcurrentSkipListSet<>()).add(buyOrder);
-        NavigableSet<Order> firstLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(BigDecimal.valueOf(51));
-        List<Order> expectedRemoved = new ArrayList<>(); // Already sorted by price and arrivaldatetime
+        buyOrder.setPrice(toTicks(51));
+        buyOrder.setQuantity(10);
+        provider.getOrderBookBySymbol("IGG").addOrder(buyOrder);
+        PriceLevel firstLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(toTicks(51));
+        List<Order> expectedRemoved = new ArrayList<>(); // Already sorted by price and the order the book added them in
         expectedRemoved.add(firstLevel.first());
         expectedRemoved.add(buyOrder);
 
@@ -94,11 +93,11 @@ class TradeOrderConsumerTest {
     void testExecuteTradePlan_PartiallyFilled() {
         // Given
         Order buyOrder = createOrder();
-        buyOrder.setPrice(AtomicBigDecimal.valueOf(51));
-        buyOrder.setQuantity(new AtomicInteger(5));
-        provider.getOrderBookBySymbol("IGG").getBuyOrders().computeIfAbsent(buyOrder.getPrice().get(), k -> new ConcurrentSkipListSet<>()).add(buyOrder);
-        NavigableSet<Order> firstLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(BigDecimal.valueOf(51));
-        List<Order> expectedRemoved = new ArrayList<>(); // Already sorted by price and arrivaldatetime
+        buyOrder.setPrice(toTicks(51));
+        buyOrder.setQuantity(5);
+        provider.getOrderBookBySymbol("IGG").addOrder(buyOrder);
+        PriceLevel firstLevel = provider.getOrderBookBySymbol("IGG").getSellOrders().get(toTicks(51));
+        List<Order> expectedRemoved = new ArrayList<>(); // Already sorted by price and the order the book added them in
         expectedRemoved.add(buyOrder);
 
         // When
@@ -106,14 +105,14 @@ class TradeOrderConsumerTest {
 
         // Then
         assertEquals(expectedRemoved, orderToBeRemoved);
-        assertEquals(5, firstLevel.first().getQuantity().get());
+        assertEquals(5, firstLevel.first().getQuantity());
     }
     
     @Test
     void testExecuteTradePlan_NoPriceMatch() {
         // Given
         Order buyOrder = createOrder();
-        buyOrder.setPrice(AtomicBigDecimal.valueOf(1));
+        buyOrder.setPrice(toTicks(1));
 
         // When
         tradeService.executeTradePlan(buyOrder);
@@ -121,5 +120,57 @@ class TradeOrderConsumerTest {
         // Then
         assertTrue(orderToBeRemoved.isEmpty());
     }
-    
+
+    @Test
+    void testConsumersSharingStripesDoNotDeadlock() throws InterruptedException {
+        // Given
+        // Two stripes, each consumer holds the stripe of its order and crosses one on the other stripe
+        StripedOrderLocks locks = new StripedOrderLocks(2);
+        BlockingQueue<Order> firstQueue = new ArrayBlockingQueue<>(16);
+        BlockingQueue<Order> secondQueue = new ArrayBlockingQueue<>(16);
+        startConsumer(new TradeOrderConsumer(provider, firstQueue, order -> {}, locks));
+        startConsumer(new TradeOrderConsumer(provider, secondQueue, order -> {}, locks));
+        long id = 1_000_000L;
+
+        for (int round = 0; round < 2_000; round++) {
+            Order firstSell = restingOrder("IGG", Side.SELL, id = nextIdOnStripe(locks, id, 0));
+            Order firstBuy = restingOrder("IGG", Side.BUY, id = nextIdOnStripe(locks, id, 1));
+            Order secondSell = restingOrder("DLK", Side.SELL, id = nextIdOnStripe(locks, id, 1));
+            Order secondBuy = restingOrder("DLK", Side.BUY, id = nextIdOnStripe(locks, id, 0));
+
+            // When
+            firstQueue.put(firstBuy);
+            secondQueue.put(secondBuy);
+
+            // Then
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (provider.checkIfOrderExists(firstSell) || provider.checkIfOrderExists(secondSell)) {
+                assertTrue(System.nanoTime() < deadline, "Consumers are stuck in round " + round);
+                Thread.yield();
+            }
+        }
+    }
+
+    private Order restingOrder(final String symbol, final Side side, final long id) {
+        Order order = createOrder(side, BigDecimal.TEN);
+        order.setId(id);
+        order.setSymbol(symbol);
+        provider.getOrderBookBySymbol(symbol).addOrder(order);
+        return order;
+    }
+
+    private static long nextIdOnStripe(final StripedOrderLocks locks, final long after, final int stripe) {
+        long id = after + 1;
+        while (locks.stripeIndex(id) != stripe) {
+            id++;
+        }
+        return id;
+    }
+
+    private static void startConsumer(final TradeOrderConsumer consumer) {
+        Thread thread = new Thread(consumer);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
 }
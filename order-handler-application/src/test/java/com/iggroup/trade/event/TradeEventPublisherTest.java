@@ -0,0 +1,148 @@
+package com.iggroup.trade.event;
+
+import static com.iggroup.factory.OrderFactory.createOrder;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.queue.BlockingWaitStrategy;
+import com.iggroup.queue.YieldingWaitStrategy;
+
+class TradeEventPublisherTest {
+
+    private OrderBookProvider provider = OrderBookProvider.getInstance();
+    private DefaultOrderHandler orderHandler = new DefaultOrderHandler(provider, order -> {}, OrderLocking.NONE);
+    private List<TradeListener> listeners = new ArrayList<>();
+    private TradeEventPublisher publisher;
+
+    @BeforeEach
+    void setup() {
+        provider.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (TradeListener listener : listeners) {
+            publisher.unsubscribe(listener);
+        }
+        provider.setTradeEvents(TradeEventPublisher.NONE);
+        provider.clear();
+    }
+
+    @Test
+    void testMatcherPublishesExecutions() throws InterruptedException {
+        // Given
+        publisher = new TradeEventPublisher(16, new BlockingWaitStrategy());
+        provider.setTradeEvents(publisher);
+        List<String> trades = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2);
+        subscribe("test", event -> {
+            trades.add(event.getSequence() + ":" + event.getSymbol() + ":" + event.getAggressorId() + ":" + event.getAggressorSide() + ":"
+                       + event.getRestingId() + ":" + event.getRestingSide() + ":" + event.getPrice() + ":" + event.getQuantity() + ":"
+                       + event.getAggressorQuantityLeft() + ":" + event.getRestingQuantityLeft());
+            latch.countDown();
+        });
+        Order sellOrder1 = createOrder(Side.SELL, BigDecimal.TEN);
+        Order sellOrder2 = createOrder(Side.SELL, BigDecimal.valueOf(11));
+        Order buyOrder = createOrder(Side.BUY, BigDecimal.valueOf(11));
+        buyOrder.setQuantity(15);
+        orderHandler.addOrder(sellOrder1);
+        orderHandler.addOrder(sellOrder2);
+
+        // When
+        orderHandler.addOrder(buyOrder);
+
+        // Then
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(trades).containsExactly(
+                "0:IGG:" + buyOrder.getId() + ":BUY:" + sellOrder1.getId() + ":SELL:" + sellOrder1.getPrice() + ":10:5:0",
+                "1:IGG:" + buyOrder.getId() + ":BUY:" + sellOrder2.getId() + ":SELL:" + sellOrder2.getPrice() + ":5:0:5");
+    }
+
+    @Test
+    void testEveryListenerSeesEveryEventThroughASmallRing() throws InterruptedException {
+        // Given
+        int producers = 2;
+        int perProducer = 10_000;
+        publisher = new TradeEventPublisher(8, new YieldingWaitStrategy());
+        SequenceCheck fast = new SequenceCheck(producers * perProducer);
+        SequenceCheck slow = new SequenceCheck(producers * perProducer);
+        subscribe("fast", fast);
+        subscribe("slow", event -> {
+            if (event.getSequence() % 1_000 == 0) {
+                Thread.yield();
+            }
+            slow.onTrade(event);
+        });
+        // Keeps receiving after failing
+        SequenceCheck failing = new SequenceCheck(producers * perProducer);
+        subscribe("failing", event -> {
+            failing.onTrade(event);
+            if (event.getSequence() == 0) {
+                throw new IllegalStateException("listener failure");
+            }
+        });
+
+        // When
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    publisher.publish("IGG", i, Side.BUY, 0, i, 0, 100L, 1, 0, 0);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertTrue(fast.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(slow.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(failing.latch.await(10, TimeUnit.SECONDS));
+        assertThat(fast.outOfOrder).isZero();
+        assertThat(slow.outOfOrder).isZero();
+    }
+
+    private void subscribe(final String name, final TradeListener listener) {
+        publisher.subscribe(name, listener);
+        listeners.add(listener);
+    }
+
+    private static final class SequenceCheck implements TradeListener {
+
+        private final CountDownLatch latch;
+        private long expected;
+        private volatile int outOfOrder;
+
+        private SequenceCheck(final int events) {
+            this.latch = new CountDownLatch(events);
+        }
+
+        @Override
+        public void onTrade(final TradeEvent event) {
+            if (event.getSequence() != expected++) {
+                outOfOrder++;
+            }
+            latch.countDown();
+        }
+    }
+
+}
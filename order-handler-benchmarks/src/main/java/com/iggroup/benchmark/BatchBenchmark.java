@@ -0,0 +1,86 @@
+package com.iggroup.benchmark;
+
+import static com.iggroup.benchmark.BookFixture.ORDER_QUANTITY;
+import static com.iggroup.benchmark.BookFixture.SYMBOL;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+/**
+ *
+ * Adding then removing {@link #batchSize} orders through the batch calls against
+ * the same orders one call at a time, on a book 10 levels deep. Scores are per
+ * batch.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkRunner.LOGBACK_CONFIG)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+
+    private static final int DEPTH = 10;
+
+    @Param({ "10", "100", "500" })
+    private int batchSize;
+
+    private DefaultOrderHandler handler;
+    private List<Order> orders;
+    private long[] orderIds;
+
+    @Setup
+    public void setup() {
+        final OrderBookProvider provider = OrderBookProvider.getInstance();
+        provider.clear();
+        handler = new DefaultOrderHandler(provider, o -> {}, OrderLocking.NONE);
+        final long firstId = BookFixture.fill(provider, SYMBOL, DEPTH, 1L).size() + 1L;
+        orders = new ArrayList<>(batchSize);
+        orderIds = new long[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            // Bids spread over the existing levels, never crossing the asks
+            final Order order = BookFixture.order(provider, firstId + i, SYMBOL, Side.BUY, 1 + i % DEPTH, ORDER_QUANTITY);
+            orders.add(order);
+            orderIds[i] = order.getId();
+        }
+    }
+
+    @Benchmark
+    public List<Order> batch() {
+        handler.addOrders(orders);
+        handler.removeOrders(orderIds);
+        return orders;
+    }
+
+    @Benchmark
+    public List<Order> oneByOne() {
+        for (Order order : orders) {
+            handler.addOrder(order);
+        }
+        for (long orderId : orderIds) {
+            handler.removeOrder(orderId);
+        }
+        return orders;
+    }
+
+}
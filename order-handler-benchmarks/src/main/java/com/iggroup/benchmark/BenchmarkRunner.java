@@ -0,0 +1,32 @@
+package com.iggroup.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *
+ * Runs the benchmarks with the GC profiler, so allocation rate per operation is
+ * reported next to throughput and average time. Takes the usual JMH command line,
+ * e.g. a regex of the benchmarks to run.
+ *
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Forks log at warn level, the engine logs every order at debug
+     */
+    public static final String LOGBACK_CONFIG = "-Dlogback.configurationFile=logback-benchmark.xml";
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+                                              .addProfiler(GCProfiler.class)
+                                              .build();
+        new Runner(options).run();
+    }
+
+}
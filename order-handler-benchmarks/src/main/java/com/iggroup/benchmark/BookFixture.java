@@ -0,0 +1,59 @@
+package com.iggroup.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+import com.iggroup.model.TickSize;
+import com.iggroup.provider.OrderBookProvider;
+
+/**
+ *
+ * Builds books for the benchmarks. Buys rest at 1..depth and sells at
+ * depth+1..2*depth whole units, so the book is never crossed.
+ *
+ */
+public final class BookFixture {
+
+    public static final String SYMBOL = "IGG";
+    public static final int ORDERS_PER_LEVEL = 10;
+    public static final int ORDER_QUANTITY = 10;
+
+    private BookFixture() {}
+
+    /**
+     *
+     * @return the orders added, in arrival order
+     */
+    public static List<Order> fill(final OrderBookProvider provider, final String symbol, final int depth, final long firstId) {
+        return fill(provider, symbol, depth, ORDERS_PER_LEVEL, firstId);
+    }
+
+    public static List<Order> fill(final OrderBookProvider provider, final String symbol, final int depth, final int ordersPerLevel,
+                                   final long firstId) {
+        final OrderBook orderBook = provider.getOrderBookBySymbol(symbol);
+        final List<Order> orders = new ArrayList<>(depth * ordersPerLevel * 2);
+        long id = firstId;
+        for (int level = 1; level <= depth; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                orders.add(add(orderBook, order(provider, id++, symbol, Side.BUY, level, ORDER_QUANTITY)));
+                orders.add(add(orderBook, order(provider, id++, symbol, Side.SELL, depth + level, ORDER_QUANTITY)));
+            }
+        }
+        return orders;
+    }
+
+    public static Order order(final OrderBookProvider provider, final long id, final String symbol, final Side side, final long price,
+                              final int quantity) {
+        final TickSize tickSize = provider.getTickSize(symbol);
+        return new Order().init(id, symbol, side, tickSize.toTicks(price), quantity);
+    }
+
+    private static Order add(final OrderBook orderBook, final Order order) {
+        orderBook.addOrder(order);
+        return order;
+    }
+
+}
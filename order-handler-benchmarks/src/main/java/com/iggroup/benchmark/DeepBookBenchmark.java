@@ -0,0 +1,113 @@
+package com.iggroup.benchmark;
+
+import static com.iggroup.benchmark.BookFixture.ORDER_QUANTITY;
+import static com.iggroup.benchmark.BookFixture.SYMBOL;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iggroup.engine.OrderStorage;
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.handler.OrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderPool;
+import com.iggroup.model.Side;
+import com.iggroup.offheap.OffHeapOrderHandler;
+import com.iggroup.offheap.SlotIndex;
+import com.iggroup.provider.OrderBookProvider;
+
+/**
+ *
+ * A book of {@link #orders} resting orders over {@link #LEVELS} price levels per
+ * side, held by the {@link #storage} the handler uses. Levels are fixed so only
+ * the order count grows.
+ * <br>
+ * Run with the GC profiler: an add and cancel at the top allocates the same per
+ * operation at every depth, but a full collection traces every resting order on
+ * the heap, so {@link #fullGc()} grows with the book for HEAP and stays flat for
+ * OFF_HEAP, where the heap only holds the levels and the primitive arrays of the
+ * id index. The heap used once filled is printed by each trial.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { BenchmarkRunner.LOGBACK_CONFIG, "-Xmx4g" })
+@State(Scope.Benchmark)
+public class DeepBookBenchmark {
+
+    public static final int LEVELS = 1000;
+
+    @Param({ "10000", "100000", "1000000" })
+    private int orders;
+
+    @Param({ "HEAP", "OFF_HEAP" })
+    private OrderStorage storage;
+
+    private OrderBookProvider provider;
+    private OrderHandler handler;
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        provider = OrderBookProvider.getInstance();
+        provider.clear();
+        handler = storage == OrderStorage.HEAP ? new DefaultOrderHandler(provider, o -> {}, OrderLocking.NONE)
+                                               : new OffHeapOrderHandler(provider, 0, new SlotIndex(), OrderPool.NONE);
+        final int ordersPerLevel = Math.max(1, orders / (LEVELS * 2));
+        long id = 1L;
+        for (int level = 1; level <= LEVELS; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                handler.addOrder(BookFixture.order(provider, id++, SYMBOL, Side.BUY, level, ORDER_QUANTITY));
+                handler.addOrder(BookFixture.order(provider, id++, SYMBOL, Side.SELL, LEVELS + level, ORDER_QUANTITY));
+            }
+        }
+        // Joins the best bid, behind the orders already there
+        order = BookFixture.order(provider, id, SYMBOL, Side.BUY, LEVELS, ORDER_QUANTITY);
+        System.gc();
+        System.out.printf("%n%s book of %d orders, heap used %d MB%n", storage, id - 1,
+                          ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // Off-heap records go with the handler
+        handler = null;
+        provider.clear();
+    }
+
+    @Benchmark
+    public Order addAndCancelAtTop() {
+        handler.addOrder(order);
+        handler.removeOrder(order.getId());
+        return order;
+    }
+
+    /**
+     *
+     * Pause of a full collection, which has to trace whatever the book keeps on
+     * the heap
+     *
+     */
+    @Benchmark
+    public void fullGc() {
+        System.gc();
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.iggroup.benchmark;
+
+import static com.iggroup.benchmark.BookFixture.ORDERS_PER_LEVEL;
+import static com.iggroup.benchmark.BookFixture.ORDER_QUANTITY;
+import static com.iggroup.benchmark.BookFixture.SYMBOL;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iggroup.exception.OrderModificationException;
+import com.iggroup.handler.DefaultOrderHandler;
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+/**
+ *
+ * {@link DefaultOrderHandler} operations against books of different depths, with
+ * the single writer configuration (no order locks, nothing queued for trade).
+ * <br>
+ * Every benchmark leaves the book as it found it, so an add is measured together
+ * with the remove that undoes it.
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkRunner.LOGBACK_CONFIG)
+@State(Scope.Benchmark)
+public class OrderHandlerBenchmark {
+
+    /**
+     * Price levels on each side
+     */
+    @Param({ "1", "10", "100" })
+    private int depth;
+
+    private OrderBookProvider provider;
+    private DefaultOrderHandler handler;
+    private Order order;
+    private Order restingOrder;
+    private long[] modifyPrices;
+    private int getPriceQuantity;
+    private int modifications;
+
+    @Setup
+    public void setup() {
+        provider = OrderBookProvider.getInstance();
+        provider.clear();
+        handler = new DefaultOrderHandler(provider, o -> {}, OrderLocking.NONE);
+        final List<Order> orders = BookFixture.fill(provider, SYMBOL, depth, 1L);
+        // A buy resting in the middle of the bids, never crossing the asks
+        final int midLevel = (depth + 1) / 2;
+        order = BookFixture.order(provider, orders.size() + 1L, SYMBOL, Side.BUY, midLevel, ORDER_QUANTITY);
+        restingOrder = orders.get((midLevel - 1) * ORDERS_PER_LEVEL * 2);
+        modifyPrices = new long[] { restingOrder.getPrice(), provider.getTickSize(SYMBOL).toTicks(depth) };
+        // Half of the asks
+        getPriceQuantity = Math.max(1, depth * ORDERS_PER_LEVEL * ORDER_QUANTITY / 2);
+    }
+
+    @Benchmark
+    public Order addAndRemoveOrder() {
+        handler.addOrder(order);
+        handler.removeOrder(order.getId());
+        return order;
+    }
+
+    @Benchmark
+    public Order modifyOrderQuantity() throws OrderModificationException {
+        // Kept under the modification limit
+        restingOrder.setModifications(0);
+        handler.modifyOrder(restingOrder.getId(), ORDER_QUANTITY + (modifications++ & 1), restingOrder.getPrice());
+        return restingOrder;
+    }
+
+    /**
+     *
+     * Moves the order between two bid levels, i.e. remove, cross check and add
+     *
+     */
+    @Benchmark
+    public Order modifyOrderPrice() throws OrderModificationException {
+        restingOrder.setModifications(0);
+        handler.modifyOrder(restingOrder.getId(), restingOrder.getQuantity(), modifyPrices[modifications++ & 1]);
+        return restingOrder;
+    }
+
+    @Benchmark
+    public double getPrice() {
+        return handler.getPrice(SYMBOL, getPriceQuantity, Side.SELL);
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.iggroup.benchmark;
+
+import static com.iggroup.benchmark.BookFixture.ORDER_QUANTITY;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+
+/**
+ *
+ * Several threads going through the shared {@link OrderBookProvider} for many
+ * symbols at once: book lookup, and adding/removing through the shared order
+ * index.
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkRunner.LOGBACK_CONFIG)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ProviderContentionBenchmark {
+
+    @Param({ "1", "16", "1024" })
+    private int symbolCount;
+
+    private OrderBookProvider provider;
+    private String[] symbols;
+    private final AtomicLong ids = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        provider = OrderBookProvider.getInstance();
+        provider.clear();
+        symbols = new String[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = "SYM" + i;
+            ids.addAndGet(BookFixture.fill(provider, symbols[i], 1, ids.get() + 1).size());
+        }
+    }
+
+    /**
+     *
+     * Each thread walks the symbols from its own offset, with its own order
+     *
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int cursor;
+        private Order order;
+
+        @Setup
+        public void setup(final ProviderContentionBenchmark benchmark) {
+            cursor = (int) (benchmark.ids.get() % benchmark.symbolCount);
+            order = BookFixture.order(benchmark.provider, benchmark.ids.incrementAndGet(), benchmark.symbols[0], Side.BUY, 1, ORDER_QUANTITY);
+        }
+
+        private String nextSymbol(final String[] symbols) {
+            cursor = cursor + 1 == symbols.length ? 0 : cursor + 1;
+            return symbols[cursor];
+        }
+    }
+
+    @Benchmark
+    public OrderBook getOrderBookBySymbol(final ThreadState state) {
+        return provider.getOrderBookBySymbol(state.nextSymbol(symbols));
+    }
+
+    @Benchmark
+    public Order addAndRemoveOrder(final ThreadState state) {
+        final Order order = state.order;
+        order.setSymbol(state.nextSymbol(symbols));
+        final OrderBook orderBook = provider.getOrderBookBySymbol(order.getSymbol());
+        orderBook.addOrder(order);
+        provider.checkIfOrderExists(order.getId());
+        orderBook.removeOrder(order);
+        return order;
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.iggroup.benchmark;
+
+import static com.iggroup.benchmark.BookFixture.SYMBOL;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.snapshot.SnapshotLoader;
+import com.iggroup.snapshot.SnapshotWriter;
+
+/**
+ *
+ * Time to write and to load a snapshot of one book holding {@link Book#orders}
+ * resting orders over {@link #LEVELS} price levels per side. Divide the order
+ * count by the score for orders per second.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { BenchmarkRunner.LOGBACK_CONFIG, "-Xmx8g" })
+public class SnapshotBenchmark {
+
+    public static final int LEVELS = 1000;
+
+    /**
+     *
+     * The provider's book filled for the trial and a temporary directory for the
+     * snapshots, both dropped after it
+     *
+     */
+    @State(Scope.Benchmark)
+    public abstract static class Book {
+
+        @Param({ "1000000", "10000000" })
+        int orders;
+
+        OrderBookProvider provider;
+        Path directory;
+
+        void fill() throws IOException {
+            provider = OrderBookProvider.getInstance();
+            provider.clear();
+            directory = Files.createTempDirectory("snapshot-benchmark");
+            BookFixture.fill(provider, SYMBOL, LEVELS, Math.max(1, orders / (LEVELS * 2)), 1L);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            provider.clear();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     *
+     * Loads a snapshot written once for the whole trial
+     *
+     */
+    @State(Scope.Benchmark)
+    public static class Load extends Book {
+
+        private Path snapshot;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            fill();
+            snapshot = new SnapshotWriter(provider, directory).write();
+        }
+
+        /**
+         *
+         * Loading needs empty books
+         *
+         */
+        @Setup(Level.Invocation)
+        public void clear() {
+            provider.clear();
+        }
+    }
+
+    /**
+     *
+     * Writes the books filled once for the whole trial
+     *
+     */
+    @State(Scope.Benchmark)
+    public static class Write extends Book {
+
+        private SnapshotWriter writer;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            fill();
+            writer = new SnapshotWriter(provider, directory);
+        }
+
+        @TearDown(Level.Iteration)
+        public void deleteSnapshots() throws IOException {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public long load(final Load state) throws IOException {
+        return new SnapshotLoader(state.provider).load(state.snapshot).getOrders();
+    }
+
+    @Benchmark
+    public Path write(final Write state) throws IOException {
+        return state.writer.write();
+    }
+
+}
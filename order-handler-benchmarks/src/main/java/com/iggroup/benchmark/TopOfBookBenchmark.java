@@ -0,0 +1,72 @@
+package com.iggroup.benchmark;
+
+import static com.iggroup.benchmark.BookFixture.ORDER_QUANTITY;
+import static com.iggroup.benchmark.BookFixture.SYMBOL;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.Side;
+import com.iggroup.model.TopOfBook;
+import com.iggroup.provider.OrderBookProvider;
+
+/**
+ *
+ * Top-of-book readers while one writer keeps changing the best bid, as risk
+ * checks and quoting do against a matching book
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkRunner.LOGBACK_CONFIG)
+@State(Scope.Group)
+public class TopOfBookBenchmark {
+
+    private static final int DEPTH = 10;
+
+    private OrderBook orderBook;
+    private Order order;
+
+    @Setup
+    public void setup() {
+        final OrderBookProvider provider = OrderBookProvider.getInstance();
+        provider.clear();
+        final int filled = BookFixture.fill(provider, SYMBOL, DEPTH, 1L).size();
+        orderBook = provider.getOrderBookBySymbol(SYMBOL);
+        // Bids are below the asks, the best bid level is the deepest price
+        order = BookFixture.order(provider, filled + 1L, SYMBOL, Side.BUY, DEPTH, ORDER_QUANTITY);
+    }
+
+    @Benchmark
+    @Group("readWhileMatching")
+    @GroupThreads(3)
+    public TopOfBook read() {
+        return orderBook.getTopOfBook();
+    }
+
+    @Benchmark
+    @Group("readWhileMatching")
+    @GroupThreads(1)
+    public Order changeBestBid() {
+        orderBook.addOrder(order);
+        orderBook.removeOrder(order);
+        return order;
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.iggroup.benchmark;
+
+import static com.iggroup.benchmark.BookFixture.ORDER_QUANTITY;
+import static com.iggroup.benchmark.BookFixture.SYMBOL;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iggroup.lock.OrderLocking;
+import com.iggroup.model.Order;
+import com.iggroup.model.OrderBook;
+import com.iggroup.model.PriceBand;
+import com.iggroup.model.Side;
+import com.iggroup.provider.OrderBookProvider;
+import com.iggroup.trade.consumer.TradeOrderConsumer;
+import com.iggroup.trade.matcher.OrderMatcher;
+
+/**
+ *
+ * Matching of an aggressive buy against the asks.
+ * <br>
+ * Single level fill: a small buy partially fills one large resting sell, the book
+ * keeps its shape. <br>
+ * Sweep: a buy takes every ask level, the asks are re-added within the same
+ * operation, so sweeps include the cost of rebuilding {@link #levels} levels.
+ * <br>
+ * Both run for a buy already resting ({@link TradeOrderConsumer#executeTradePlan})
+ * and for an incoming buy crossed before resting
+ * ({@link OrderMatcher#crossIncoming}).
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkRunner.LOGBACK_CONFIG)
+@State(Scope.Benchmark)
+public class TradeBenchmark {
+
+    private static final String BANDED_SYMBOL = "IGG-BAND";
+
+    /**
+     * Ask levels taken by a sweep, one order each
+     */
+    @Param({ "1", "10", "100" })
+    private int levels;
+    /**
+     * Whether the book indexes its levels by tick over the prices traded, see
+     * {@link PriceBand}
+     */
+    @Param({ "false", "true" })
+    private boolean priceBand;
+
+    private OrderBook orderBook;
+    private TradeOrderConsumer tradeConsumer;
+    private OrderMatcher matcher;
+    private Order[] asks;
+    private Order largeAsk;
+    private Order sweepingBuy;
+    private Order smallBuy;
+
+    @Setup
+    public void setup() {
+        final OrderBookProvider provider = OrderBookProvider.getInstance();
+        provider.clear();
+        final String symbol = priceBand ? BANDED_SYMBOL : SYMBOL;
+        if (priceBand) {
+            provider.setPriceBand(symbol, PriceBand.of(0L, provider.getTickSize(symbol).toTicks(levels + 1L)));
+        }
+        orderBook = provider.getOrderBookBySymbol(symbol);
+        tradeConsumer = new TradeOrderConsumer(provider, null, orderBook::removeOrder, OrderLocking.NONE);
+        matcher = new OrderMatcher(provider, orderBook::removeOrder, OrderLocking.NONE);
+
+        long id = 1L;
+        asks = new Order[levels];
+        for (int i = 0; i < levels; i++) {
+            asks[i] = BookFixture.order(provider, id++, symbol, Side.SELL, 2 + i, ORDER_QUANTITY);
+        }
+        // Beyond the sweep levels so a sweep never touches it
+        largeAsk = BookFixture.order(provider, id++, symbol, Side.SELL, 1, Integer.MAX_VALUE);
+        orderBook.addOrder(largeAsk);
+        // Created last, so they arrived after every resting ask
+        sweepingBuy = BookFixture.order(provider, id++, symbol, Side.BUY, 1 + levels, 0);
+        smallBuy = BookFixture.order(provider, id, symbol, Side.BUY, 1, 1);
+    }
+
+    @Setup(Level.Iteration)
+    public void refill() {
+        orderBook.updateQuantity(largeAsk, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Order singleLevelFillResting() {
+        smallBuy.setQuantity(1);
+        orderBook.addOrder(smallBuy);
+        tradeConsumer.executeTradePlan(smallBuy);
+        return smallBuy;
+    }
+
+    @Benchmark
+    public int singleLevelFillIncoming() {
+        smallBuy.setQuantity(1);
+        return matcher.crossIncoming(smallBuy);
+    }
+
+    @Benchmark
+    public Order sweepResting() {
+        // The large ask sits below the sweep levels, it is taken out for the sweep
+        orderBook.removeOrder(largeAsk);
+        addAsks();
+        sweepingBuy.setQuantity(levels * ORDER_QUANTITY);
+        orderBook.addOrder(sweepingBuy);
+        tradeConsumer.executeTradePlan(sweepingBuy);
+        orderBook.addOrder(largeAsk);
+        return sweepingBuy;
+    }
+
+    @Benchmark
+    public int sweepIncoming() {
+        orderBook.removeOrder(largeAsk);
+        addAsks();
+        sweepingBuy.setQuantity(levels * ORDER_QUANTITY);
+        final int quantityLeft = matcher.crossIncoming(sweepingBuy);
+        orderBook.addOrder(largeAsk);
+        return quantityLeft;
+    }
+
+    private void addAsks() {
+        for (Order ask : asks) {
+            ask.setQuantity(ORDER_QUANTITY);
+            orderBook.addOrder(ask);
+        }
+    }
+
+}